@@ -0,0 +1,82 @@
+package com.example.mlkitapp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Suppresses repeat reports of the same barcode value in continuous scanning.
+ * A value is reported the first time it is seen, then suppressed for as long as it keeps
+ * being seen at least once every {@code ttlNanos}; once it has been out of view for longer,
+ * the next sighting is reported again. At most {@code capacity} values are remembered, least
+ * recently seen first out. Not thread-safe.
+ */
+public final class BarcodeDedupeCache {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final class Entry {
+        long lastSeenNanos;
+    }
+
+    private final Clock clock;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+
+    public BarcodeDedupeCache(Clock clock, long ttlNanos, int capacity) {
+        if (ttlNanos <= 0) {
+            throw new IllegalArgumentException("ttlNanos must be positive");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.clock = clock;
+        this.ttlNanos = ttlNanos;
+        // Access order, so the eldest entry is always the least recently seen value
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Records a sighting of {@code value} and returns whether it should be reported.
+     */
+    public boolean shouldReport(String value) {
+        long now = clock.nanoTime();
+        Entry entry = entries.get(value);
+        if (entry == null) {
+            entry = new Entry();
+            entry.lastSeenNanos = now;
+            entries.put(value, entry);
+            return true;
+        }
+        boolean expired = now - entry.lastSeenNanos >= ttlNanos;
+        entry.lastSeenNanos = now;
+        return expired;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a barcode value, for keying per-value counters without strings.
+     */
+    public static long hash64(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash ^= c & 0xFF;
+            hash *= FNV_PRIME;
+            hash ^= c >>> 8;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.mlkitapp;
+
+/**
+ * Learns which barcode formats actually occur in a session so the scanner can decode only
+ * those. Formats are ML Kit's single-bit format constants, combined into a bitmask.
+ * Until something has been seen, every frame uses the full set. After that, frames use the
+ * learned set, except that every {@code probeInterval}th frame scans the full set again so
+ * new symbologies are still picked up. A learned format not seen for {@code forgetAfterFrames}
+ * frames is dropped; once all are dropped the policy falls back to the full set.
+ * All methods are synchronized: frames are planned on the analyzer thread and detections
+ * are reported from the main thread.
+ */
+public final class BarcodeFormatPolicy {
+    private final int allFormats;
+    private final int probeInterval;
+    private final long forgetAfterFrames;
+    // Frame number each format bit was last seen on
+    private final long[] lastSeenFrame = new long[Integer.SIZE];
+
+    private int learnedFormats = 0;
+    private long frameNumber = 0;
+    private long probeFrames = 0;
+
+    public BarcodeFormatPolicy(int allFormats, int probeInterval, long forgetAfterFrames) {
+        if (allFormats == 0) {
+            throw new IllegalArgumentException("allFormats must name at least one format");
+        }
+        if (probeInterval < 2) {
+            throw new IllegalArgumentException("probeInterval must be at least 2");
+        }
+        if (forgetAfterFrames <= probeInterval) {
+            throw new IllegalArgumentException("forgetAfterFrames must exceed probeInterval");
+        }
+        this.allFormats = allFormats;
+        this.probeInterval = probeInterval;
+        this.forgetAfterFrames = forgetAfterFrames;
+    }
+
+    /**
+     * Returns the formats to decode in the next frame and advances the frame count.
+     */
+    public synchronized int nextFrameFormats() {
+        frameNumber++;
+        forgetStaleFormats();
+        if (learnedFormats == 0 || learnedFormats == allFormats) {
+            return allFormats;
+        }
+        if (frameNumber % probeInterval == 0) {
+            probeFrames++;
+            return allFormats;
+        }
+        return learnedFormats;
+    }
+
+    /**
+     * Records a decoded barcode's format. Formats outside the full set are ignored.
+     */
+    public synchronized void onDetected(int format) {
+        int known = format & allFormats;
+        while (known != 0) {
+            int bit = Integer.numberOfTrailingZeros(known);
+            lastSeenFrame[bit] = frameNumber;
+            learnedFormats |= 1 << bit;
+            known &= known - 1;
+        }
+    }
+
+    private void forgetStaleFormats() {
+        int learned = learnedFormats;
+        while (learned != 0) {
+            int bit = Integer.numberOfTrailingZeros(learned);
+            if (frameNumber - lastSeenFrame[bit] > forgetAfterFrames) {
+                learnedFormats &= ~(1 << bit);
+            }
+            learned &= learned - 1;
+        }
+    }
+
+    public int getAllFormats() {
+        return allFormats;
+    }
+
+    public synchronized int getLearnedFormats() {
+        return learnedFormats;
+    }
+
+    public synchronized void reset() {
+        learnedFormats = 0;
+        frameNumber = 0;
+        probeFrames = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "learned=0x" + Integer.toHexString(learnedFormats)
+                + " of 0x" + Integer.toHexString(allFormats)
+                + " frames=" + frameNumber + " probes=" + probeFrames;
+    }
+}
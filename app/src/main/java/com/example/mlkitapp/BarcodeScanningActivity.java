@@ -5,14 +5,16 @@ import android.content.ClipData;
 import android.content.ClipboardManager;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.graphics.Rect;
 import android.media.MediaActionSound;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
+import android.preference.PreferenceManager;
 import android.util.Log;
-import android.util.Size;
 import android.view.OrientationEventListener;
 import android.view.Surface;
 import android.view.View;
@@ -20,14 +22,14 @@ import android.widget.Button;
 import android.widget.ImageButton;
 import android.widget.TextView;
 import android.widget.Toast;
+import android.widget.ToggleButton;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.camera.core.AspectRatio;
 import androidx.camera.core.Camera;
 import androidx.camera.core.CameraSelector;
-import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.core.ImageAnalysis;
-import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
@@ -35,24 +37,53 @@ import androidx.cardview.widget.CardView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
+import com.google.android.gms.tasks.Task;
 import com.google.android.material.snackbar.Snackbar;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.mlkit.vision.barcode.BarcodeScanner;
-import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
-import com.google.mlkit.vision.barcode.BarcodeScanning;
 import com.google.mlkit.vision.barcode.common.Barcode;
 import com.google.mlkit.vision.common.InputImage;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
-@androidx.annotation.OptIn(markerClass = ExperimentalGetImage.class)
 public class BarcodeScanningActivity extends AppCompatActivity {
     private static final String TAG = "BarcodeScanActivity";
     private static final int REQUEST_CODE_PERMISSIONS = 10;
     private static final String[] REQUIRED_PERMISSIONS = new String[]{Manifest.permission.CAMERA};
+    private static final float TARGET_ANALYSIS_FPS = 15f;
+    static final String PREF_SCAN_BOX_ONLY = "barcode_scan_box_only";
+    static final String PREF_ADAPTIVE_FORMATS = "barcode_adaptive_formats";
+    private static final int ALL_FORMATS = Barcode.FORMAT_QR_CODE
+            | Barcode.FORMAT_AZTEC
+            | Barcode.FORMAT_CODE_128
+            | Barcode.FORMAT_CODE_39
+            | Barcode.FORMAT_CODE_93
+            | Barcode.FORMAT_EAN_8
+            | Barcode.FORMAT_EAN_13
+            | Barcode.FORMAT_UPC_A
+            | Barcode.FORMAT_UPC_E
+            | Barcode.FORMAT_PDF417;
+    // With adaptive formats, about one frame a second still scans for every format
+    private static final int FORMAT_PROBE_INTERVAL = 15;
+    // A learned format unseen for about a minute stops being decoded outside probes
+    private static final long FORMAT_FORGET_FRAMES = 15 * 60;
+    // Smallest crop worth scanning; ML Kit needs barcodes of at least a few dozen pixels
+    private static final int MIN_ROI_SIZE = 64;
+    // A code held in view is reported once; it counts again after this long out of view
+    private static final long DEDUPE_TTL_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final int DEDUPE_CAPACITY = 256;
+    // Most recent values listed in the result panel; Copy exports the whole session
+    private static final int MAX_LISTED_VALUES = 20;
+    // Analysis sizes to choose from at runtime, all 16:9 like the preview
+    private static final int[][] ANALYSIS_RESOLUTIONS = {{960, 540}, {1280, 720}, {1920, 1080}};
+    private static final int INITIAL_RESOLUTION = 1;
+    // Decoding gets unreliable once a module, a barcode's narrowest bar or cell, spans
+    // fewer pixels than this
+    private static final float MIN_MODULE_PIXELS = 2f;
 
     private PreviewView previewView;
     private CardView resultPanel;
@@ -63,12 +94,35 @@ public class BarcodeScanningActivity extends AppCompatActivity {
     private Button btnScanAgain;
     private ImageButton btnToggleFlash;
     private View scanBoxGuide;
+    private ToggleButton continuousToggle;
 
     private Camera camera;
-    private ExecutorService cameraExecutor;
+    private FrameAnalysisPipeline analysisPipeline;
+    private FrameAdmissionController admissionController;
+    private DetectorRegistry.Handle<BarcodeScanner> barcodeScannerHandle;
     private BarcodeScanner barcodeScanner;
+    // Null unless adaptive formats are on
+    private BarcodeFormatPolicy formatPolicy;
+    // Scanner for the learned subset, swapped on the analyzer thread and closed on the main
+    // thread; these four fields are guarded by narrowedLock
+    private final Object narrowedLock = new Object();
+    private DetectorRegistry.Handle<BarcodeScanner> narrowedScanner;
+    private int narrowedFormats;
+    private Task<List<Barcode>> lastNarrowedTask;
+    private boolean narrowedClosed = false;
     private boolean isFlashEnabled = false;
-    private boolean isPaused = false;
+    // Scan box as left, top, right, bottom, preview width, preview height, in preview pixels
+    private volatile float[] scanBoxInPreview;
+
+    // Continuous mode state, only touched on the main thread
+    private boolean continuousMode = false;
+    private final BarcodeDedupeCache dedupeCache =
+            new BarcodeDedupeCache(Clock.SYSTEM, DEDUPE_TTL_NANOS, DEDUPE_CAPACITY);
+    // Scan count per value, keyed by BarcodeDedupeCache.hash64
+    private final LongIntHashMap scanCounts = new LongIntHashMap();
+    // Distinct values in the order they were first scanned
+    private final List<String> scannedValues = new ArrayList<>();
+    private int totalScans = 0;
     
     // Sound and vibration for feedback
     private MediaActionSound sound;
@@ -89,23 +143,33 @@ public class BarcodeScanningActivity extends AppCompatActivity {
         btnScanAgain = findViewById(R.id.btn_scan_again);
         btnToggleFlash = findViewById(R.id.btn_toggle_flash);
         scanBoxGuide = findViewById(R.id.scan_box_guide);
+        continuousToggle = findViewById(R.id.toggle_continuous);
 
         // Initialize barcode scanner
-        BarcodeScannerOptions options = new BarcodeScannerOptions.Builder()
-                .setBarcodeFormats(
-                        Barcode.FORMAT_QR_CODE,
-                        Barcode.FORMAT_AZTEC,
-                        Barcode.FORMAT_CODE_128,
-                        Barcode.FORMAT_CODE_39,
-                        Barcode.FORMAT_CODE_93,
-                        Barcode.FORMAT_EAN_8,
-                        Barcode.FORMAT_EAN_13,
-                        Barcode.FORMAT_UPC_A,
-                        Barcode.FORMAT_UPC_E,
-                        Barcode.FORMAT_PDF417
-                )
-                .build();
-        barcodeScanner = BarcodeScanning.getClient(options);
+        barcodeScannerHandle = DetectorClients.barcode(this, ALL_FORMATS);
+        barcodeScanner = barcodeScannerHandle.get();
+        BarcodeStage barcodeStage = new BarcodeStage();
+        analysisPipeline = new FrameAnalysisPipeline(barcodeStage);
+        admissionController = new FrameAdmissionController(Clock.SYSTEM, TARGET_ANALYSIS_FPS);
+        analysisPipeline.setResolutionController(new ResolutionController(
+                ANALYSIS_RESOLUTIONS, INITIAL_RESOLUTION, TARGET_ANALYSIS_FPS, MIN_MODULE_PIXELS),
+                admissionController);
+        analysisPipeline.setAdmissionController(barcodeStage, admissionController);
+
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
+        if (prefs.getBoolean(PREF_ADAPTIVE_FORMATS, true)) {
+            formatPolicy = new BarcodeFormatPolicy(
+                    ALL_FORMATS, FORMAT_PROBE_INTERVAL, FORMAT_FORGET_FRAMES);
+        }
+        if (prefs.getBoolean(PREF_SCAN_BOX_ONLY, true)) {
+            // Only the pixels under the guide are copied and scanned; codes outside it are ignored
+            analysisPipeline.setRegionOfInterest(this::computeScanBoxCrop);
+            View.OnLayoutChangeListener layoutListener =
+                    (v, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) ->
+                            updateScanBoxInPreview();
+            previewView.addOnLayoutChangeListener(layoutListener);
+            scanBoxGuide.addOnLayoutChangeListener(layoutListener);
+        }
 
         // Initialize sound and vibration
         sound = new MediaActionSound();
@@ -117,7 +181,10 @@ public class BarcodeScanningActivity extends AppCompatActivity {
         
         btnCopy.setOnClickListener(v -> {
             ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
-            ClipData clip = ClipData.newPlainText("Barcode Content", tvResultContent.getText().toString());
+            String content = continuousMode
+                    ? buildInventoryText(scannedValues.size())
+                    : tvResultContent.getText().toString();
+            ClipData clip = ClipData.newPlainText("Barcode Content", content);
             clipboard.setPrimaryClip(clip);
             Toast.makeText(this, "Content copied to clipboard", Toast.LENGTH_SHORT).show();
         });
@@ -125,12 +192,16 @@ public class BarcodeScanningActivity extends AppCompatActivity {
         btnAction.setOnClickListener(v -> performActionBasedOnBarcodeType());
         
         btnScanAgain.setOnClickListener(v -> {
+            if (continuousMode) {
+                clearInventory();
+            }
             resultPanel.setVisibility(View.GONE);
             scanBoxGuide.setVisibility(View.VISIBLE);
-            isPaused = false;
+            analysisPipeline.setPaused(false);
         });
-        
-        cameraExecutor = Executors.newSingleThreadExecutor();
+
+        continuousToggle.setOnCheckedChangeListener(
+                (buttonView, isChecked) -> setContinuousMode(isChecked));
 
         // Request camera permissions
         if (allPermissionsGranted()) {
@@ -140,6 +211,46 @@ public class BarcodeScanningActivity extends AppCompatActivity {
         }
     }
 
+    private void updateScanBoxInPreview() {
+        if (previewView.getWidth() == 0 || scanBoxGuide.getWidth() == 0) {
+            return;
+        }
+        int[] previewLocation = new int[2];
+        int[] boxLocation = new int[2];
+        previewView.getLocationInWindow(previewLocation);
+        scanBoxGuide.getLocationInWindow(boxLocation);
+        float left = boxLocation[0] - previewLocation[0];
+        float top = boxLocation[1] - previewLocation[1];
+        scanBoxInPreview = new float[]{
+                left, top, left + scanBoxGuide.getWidth(), top + scanBoxGuide.getHeight(),
+                previewView.getWidth(), previewView.getHeight()};
+    }
+
+    /**
+     * Maps the scan box into the frame being analyzed. Runs on the analyzer thread.
+     */
+    private boolean computeScanBoxCrop(int width, int height, int rotationDegrees, int[] out) {
+        float[] box = scanBoxInPreview;
+        return box != null && RoiMapper.mapViewRectToImage(box[0], box[1], box[2], box[3],
+                (int) box[4], (int) box[5], width, height, rotationDegrees, MIN_ROI_SIZE, out);
+    }
+
+    private void setContinuousMode(boolean enabled) {
+        continuousMode = enabled;
+        clearInventory();
+        btnScanAgain.setText(enabled ? "Clear" : "Scan Again");
+        resultPanel.setVisibility(View.GONE);
+        scanBoxGuide.setVisibility(View.VISIBLE);
+        analysisPipeline.setPaused(false);
+    }
+
+    private void clearInventory() {
+        dedupeCache.clear();
+        scanCounts.clear();
+        scannedValues.clear();
+        totalScans = 0;
+    }
+
     private void toggleFlash() {
         if (camera != null) {
             isFlashEnabled = !isFlashEnabled;
@@ -206,22 +317,22 @@ public class BarcodeScanningActivity extends AppCompatActivity {
                 ProcessCameraProvider cameraProvider = cameraProviderFuture.get();
 
                 // Set up the preview
-                Preview preview = new Preview.Builder().build();
-                preview.setSurfaceProvider(previewView.getSurfaceProvider());
-
-                // Set up the image analyzer
-                ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                        .setTargetResolution(new Size(1280, 720))
-                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                // Same aspect ratio as the analysis stream, so both show the same field of view
+                // and the scan box maps onto the analyzed frame
+                Preview preview = new Preview.Builder()
+                        .setTargetAspectRatio(AspectRatio.RATIO_16_9)
                         .build();
-
-                imageAnalysis.setAnalyzer(cameraExecutor, this::processImageForBarcodeScanning);
+                preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
                 // Select back camera as default
                 CameraSelector cameraSelector = new CameraSelector.Builder()
                         .requireLensFacing(CameraSelector.LENS_FACING_BACK)
                         .build();
 
+                // Set up the image analyzer
+                ImageAnalysis imageAnalysis =
+                        analysisPipeline.createImageAnalysis(cameraProvider, this, cameraSelector);
+
                 // Unbind use cases before rebinding
                 cameraProvider.unbindAll();
 
@@ -235,36 +346,172 @@ public class BarcodeScanningActivity extends AppCompatActivity {
         }, ContextCompat.getMainExecutor(this));
     }
 
-    @ExperimentalGetImage
-    private void processImageForBarcodeScanning(ImageProxy imageProxy) {
-        if (isPaused) {
-            imageProxy.close();
+    /**
+     * Scans {@code image} with a scanner narrowed to the given formats, switching scanners
+     * when the learned set changes. Runs on the analyzer thread.
+     */
+    private Task<List<Barcode>> processNarrowed(int formats, InputImage image) {
+        synchronized (narrowedLock) {
+            if (narrowedClosed) {
+                throw new IllegalStateException("Barcode scanner is closed");
+            }
+            if (narrowedScanner == null || formats != narrowedFormats) {
+                closeNarrowedScanner();
+                Log.d(TAG, "Narrowing barcode formats to 0x" + Integer.toHexString(formats));
+                narrowedFormats = formats;
+                narrowedScanner = DetectorClients.barcode(this, formats);
+            }
+            lastNarrowedTask = narrowedScanner.get().process(image);
+            return lastNarrowedTask;
+        }
+    }
+
+    /**
+     * Releases the narrowed scanner once the last frame sent to it has finished. Call with
+     * narrowedLock held.
+     */
+    private void closeNarrowedScanner() {
+        DetectorRegistry.Handle<BarcodeScanner> current = narrowedScanner;
+        if (current == null) {
             return;
         }
+        if (lastNarrowedTask != null && !lastNarrowedTask.isComplete()) {
+            lastNarrowedTask.addOnCompleteListener(task -> current.close());
+        } else {
+            current.close();
+        }
+        narrowedScanner = null;
+        lastNarrowedTask = null;
+    }
 
-        @androidx.camera.core.ExperimentalGetImage
-        InputImage image = InputImage.fromMediaImage(
-                imageProxy.getImage(),
-                imageProxy.getImageInfo().getRotationDegrees());
-
-        barcodeScanner.process(image)
-                .addOnSuccessListener(barcodes -> {
-                    if (!barcodes.isEmpty() && !isPaused) {
-                        isPaused = true;
-                        Barcode barcode = barcodes.get(0);
-                        handleBarcodeResult(barcode);
-                    }
-                })
-                .addOnFailureListener(e -> Log.e(TAG, "Barcode scanning failed: ", e))
-                .addOnCompleteListener(task -> imageProxy.close());
+    private class BarcodeStage implements FrameAnalysisPipeline.DetectorStage<List<Barcode>> {
+        @Override
+        public Task<List<Barcode>> process(InputImage image) {
+            if (formatPolicy == null) {
+                return barcodeScanner.process(image);
+            }
+            int formats = formatPolicy.nextFrameFormats();
+            if (formats == ALL_FORMATS) {
+                return barcodeScanner.process(image);
+            }
+            return processNarrowed(formats, image);
+        }
+
+        @Override
+        public void onResult(List<Barcode> barcodes, FrameMetadata frame) {
+            if (formatPolicy != null) {
+                for (Barcode barcode : barcodes) {
+                    formatPolicy.onDetected(barcode.getFormat());
+                }
+            }
+            analysisPipeline.reportSubjectSize(smallestModulePixels(barcodes));
+            if (barcodes.isEmpty()) {
+                return;
+            }
+            if (continuousMode) {
+                handleContinuousResult(barcodes);
+            } else {
+                analysisPipeline.setPaused(true);
+                handleBarcodeResult(barcodes.get(0));
+            }
+        }
     }
 
-    private void handleBarcodeResult(Barcode barcode) {
+    /**
+     * Estimates the module size of the smallest barcode in pixels, or NaN when there is
+     * none. ML Kit does not report symbol versions, so the module count across each format
+     * is a typical one: the long side of a small QR or Aztec code, the 95 modules of an
+     * EAN-13 or UPC-A, and so on.
+     */
+    private static float smallestModulePixels(List<Barcode> barcodes) {
+        float smallest = Float.NaN;
+        for (Barcode barcode : barcodes) {
+            Rect box = barcode.getBoundingBox();
+            if (box == null) {
+                continue;
+            }
+            float module = (float) Math.max(box.width(), box.height())
+                    / modulesAcross(barcode.getFormat());
+            if (Float.isNaN(smallest) || module < smallest) {
+                smallest = module;
+            }
+        }
+        return smallest;
+    }
+
+    private static int modulesAcross(int format) {
+        switch (format) {
+            case Barcode.FORMAT_QR_CODE:
+                return 25;
+            case Barcode.FORMAT_AZTEC:
+                return 19;
+            case Barcode.FORMAT_DATA_MATRIX:
+                return 16;
+            case Barcode.FORMAT_EAN_8:
+                return 67;
+            case Barcode.FORMAT_UPC_E:
+                return 51;
+            case Barcode.FORMAT_PDF417:
+                return 120;
+            default:
+                // EAN-13, UPC-A, and a typical short Code 128, 39 or 93 value
+                return 95;
+        }
+    }
+
+    private void playScanFeedback() {
         // Alert the user via sound and vibration
         sound.play(MediaActionSound.SHUTTER_CLICK);
         if (vibrator.hasVibrator()) {
             vibrator.vibrate(VibrationEffect.createOneShot(150, VibrationEffect.DEFAULT_AMPLITUDE));
         }
+    }
+
+    /**
+     * Counts every barcode in the frame without pausing the pipeline. A value that stays in
+     * view is counted once; feedback only fires when something new was counted.
+     */
+    private void handleContinuousResult(List<Barcode> barcodes) {
+        boolean counted = false;
+        for (Barcode barcode : barcodes) {
+            String value = barcode.getRawValue();
+            if (value == null || !dedupeCache.shouldReport(value)) {
+                continue;
+            }
+            if (scanCounts.addTo(BarcodeDedupeCache.hash64(value), 1) == 1) {
+                scannedValues.add(value);
+            }
+            totalScans++;
+            counted = true;
+        }
+        if (!counted) {
+            return;
+        }
+        playScanFeedback();
+        resultPanel.setVisibility(View.VISIBLE);
+        tvResultType.setText(scannedValues.size() + " items · " + totalScans + " scans");
+        tvResultContent.setText(buildInventoryText(MAX_LISTED_VALUES));
+        btnAction.setVisibility(View.GONE);
+    }
+
+    /**
+     * Lists up to {@code limit} scanned values, most recent first, one per line with its count.
+     */
+    private String buildInventoryText(int limit) {
+        StringBuilder sb = new StringBuilder();
+        int end = Math.max(0, scannedValues.size() - limit);
+        for (int i = scannedValues.size() - 1; i >= end; i--) {
+            String value = scannedValues.get(i);
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(value).append("  ×").append(scanCounts.get(BarcodeDedupeCache.hash64(value), 0));
+        }
+        return sb.toString();
+    }
+
+    private void handleBarcodeResult(Barcode barcode) {
+        playScanFeedback();
 
         runOnUiThread(() -> {
             // Hide scan box guide
@@ -401,7 +648,18 @@ public class BarcodeScanningActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        cameraExecutor.shutdown();
-        barcodeScanner.close();
+        // Drop late results; the analyzer thread itself is shared across screens
+        analysisPipeline.setPaused(true);
+        Log.d(TAG, "Frame admission: " + admissionController.getStats());
+        if (formatPolicy != null) {
+            Log.d(TAG, "Barcode formats: " + formatPolicy);
+        }
+        analysisPipeline.dumpLatency(new File(getExternalFilesDir(null),
+                "latency/barcode-" + System.currentTimeMillis() + ".txt"));
+        barcodeScannerHandle.close();
+        synchronized (narrowedLock) {
+            narrowedClosed = true;
+            closeNarrowedScanner();
+        }
     }
 }
\ No newline at end of file
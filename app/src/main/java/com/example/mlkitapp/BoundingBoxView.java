@@ -5,13 +5,11 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
-import android.graphics.RectF;
-import android.os.Handler;
 import android.util.AttributeSet;
 import android.util.Size;
+import android.view.Choreographer;
 import android.view.View;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -29,18 +27,24 @@ public class BoundingBoxView extends View {
     // Use thread-safe collection to prevent concurrent modification issues
     private final List<Rect> boxes = new CopyOnWriteArrayList<>();
 
-    // Variables for scaling factors
-    private float scaleX = 1.0f;
-    private float scaleY = 1.0f;
+    // Image size and rotation the boxes are given in; scaling is derived when drawing
     private int imageWidth = 1080; // Default value
     private int imageHeight = 1920; // Default value
     private int deviceRotation = 0; // 0, 90, 180, 270 degrees
 
+    // Maps and batches the boxes, and keeps the measured "N texts" labels, across draws
+    private final OverlayRenderer renderer;
+    private final OverlayLabelCache.Numbers countLabels;
+
     // Animation properties
     private boolean animateBoxes = true;
-    private Handler animationHandler;
+    private boolean animatingOut = false;
     private float animationProgress = 0f;
-    private static final long ANIMATION_DURATION = 300; // ms
+    // Frame time of the animation's first vsync, or 0 until it has run once
+    private long animationStartNanos = 0;
+    private boolean frameCallbackPosted = false;
+    private final Choreographer.FrameCallback frameCallback = this::onAnimationFrame;
+    private static final long ANIMATION_DURATION_NANOS = 300_000_000L;
 
     public BoundingBoxView(Context context) {
         this(context, null);
@@ -49,8 +53,9 @@ public class BoundingBoxView extends View {
     public BoundingBoxView(Context context, AttributeSet attrs) {
         super(context, attrs);
 
-        // Hardware acceleration improves drawing performance
-        setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        // No hardware layer: the boxes are redrawn every animation frame, so a layer would
+        // be re-rendered each time on top of the normal draw. A layer only pays off for views
+        // animated through properties such as alpha or translation.
 
         // Initialize the paint for drawing boxes
         boxPaint = new Paint();
@@ -70,8 +75,8 @@ public class BoundingBoxView extends View {
         textPaint.setTextSize(40f);
         textPaint.setAntiAlias(true);
 
-        // Initialize animation handler
-        animationHandler = new Handler();
+        renderer = new OverlayRenderer(textPaint);
+        countLabels = renderer.getLabels().numbers("", " texts");
     }
 
     /**
@@ -149,7 +154,7 @@ public class BoundingBoxView extends View {
         if (imageWidth > 0 && imageHeight > 0) {
             this.imageWidth = imageWidth;
             this.imageHeight = imageHeight;
-            recalculateScaleFactors();
+            invalidate();
         }
     }
 
@@ -158,7 +163,7 @@ public class BoundingBoxView extends View {
      */
     public void setDeviceRotation(int rotation) {
         this.deviceRotation = rotation;
-        recalculateScaleFactors();
+        invalidate();
     }
 
     /**
@@ -166,35 +171,13 @@ public class BoundingBoxView extends View {
      */
     public void setAnimateBoxes(boolean animate) {
         this.animateBoxes = animate;
-    }
-
-    /**
-     * Recalculate scale factors based on view and image dimensions
-     */
-    private void recalculateScaleFactors() {
-        int viewWidth = getWidth();
-        int viewHeight = getHeight();
-
-        if (viewWidth == 0 || viewHeight == 0 || imageWidth == 0 || imageHeight == 0) {
-            return;
-        }
-
-        // Handle rotation - swap dimensions if needed
-        if (deviceRotation == 90 || deviceRotation == 270) {
-            scaleX = (float) viewWidth / imageHeight;
-            scaleY = (float) viewHeight / imageWidth;
-        } else {
-            scaleX = (float) viewWidth / imageWidth;
-            scaleY = (float) viewHeight / imageHeight;
+        if (!animate && frameCallbackPosted) {
+            stopAnimation();
+            if (animatingOut) {
+                boxes.clear();
+            }
+            invalidate();
         }
-
-        invalidate();
-    }
-
-    @Override
-    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-        super.onSizeChanged(w, h, oldw, oldh);
-        recalculateScaleFactors();
     }
 
     @Override
@@ -203,133 +186,93 @@ public class BoundingBoxView extends View {
 
         if (boxes.isEmpty()) return;
 
-        // Use local variables for thread safety
-        float localScaleX = this.scaleX;
-        float localScaleY = this.scaleY;
-
+        OverlayBoxBuffer mapped = renderer.getBoxes();
+        mapped.setTransform(imageWidth, imageHeight, deviceRotation, false, getWidth(), getHeight());
+        mapped.clear();
+        // Grow each box from its centre; scaling about the centre commutes with the mapping
+        float progress = animateBoxes ? animationProgress : 1f;
         for (Rect box : boxes) {
             if (box != null) {
-                RectF scaledBox;
-
-                // Apply appropriate transformation based on device rotation
-                switch (deviceRotation) {
-                    case 90:
-                        scaledBox = new RectF(
-                                getHeight() - box.bottom * localScaleY,
-                                box.left * localScaleX,
-                                getHeight() - box.top * localScaleY,
-                                box.right * localScaleX);
-                        break;
-                    case 180:
-                        scaledBox = new RectF(
-                                getWidth() - box.right * localScaleX,
-                                getHeight() - box.bottom * localScaleY,
-                                getWidth() - box.left * localScaleX,
-                                getHeight() - box.top * localScaleY);
-                        break;
-                    case 270:
-                        scaledBox = new RectF(
-                                box.top * localScaleY,
-                                getWidth() - box.right * localScaleX,
-                                box.bottom * localScaleY,
-                                getWidth() - box.left * localScaleX);
-                        break;
-                    default: // 0 degrees
-                        scaledBox = new RectF(
-                                box.left * localScaleX,
-                                box.top * localScaleY,
-                                box.right * localScaleX,
-                                box.bottom * localScaleY);
-                }
-
-                if (animateBoxes) {
-                    // Apply animation scaling effect
-                    float centerX = scaledBox.centerX();
-                    float centerY = scaledBox.centerY();
-                    float halfWidth = scaledBox.width() / 2 * animationProgress;
-                    float halfHeight = scaledBox.height() / 2 * animationProgress;
-
-                    scaledBox.set(
-                            centerX - halfWidth,
-                            centerY - halfHeight,
-                            centerX + halfWidth,
-                            centerY + halfHeight
-                    );
-                }
-
-                // Draw the box with rounded corners
-                canvas.drawRoundRect(scaledBox, 8f, 8f, boxPaint);
+                float halfWidth = box.width() / 2f * progress;
+                float halfHeight = box.height() / 2f * progress;
+                mapped.addBox(box.exactCenterX() - halfWidth, box.exactCenterY() - halfHeight,
+                        box.exactCenterX() + halfWidth, box.exactCenterY() + halfHeight,
+                        boxPaint.getColor());
             }
         }
+        renderer.drawBoxes(canvas, boxPaint);
 
         // Draw the count indicator if there are multiple boxes
-        if (boxes.size() > 1) {
-            String countText = boxes.size() + " texts";
-            float textWidth = textPaint.measureText(countText);
+        int boxCount = boxes.size();
+        if (boxCount > 1) {
+            OverlayLabelCache.Entry countText = countLabels.get(boxCount);
             float textHeight = textPaint.getTextSize();
 
             // Draw background for text
             canvas.drawRect(
                     10,
                     10,
-                    20 + textWidth,
+                    20 + countText.width,
                     20 + textHeight,
                     textBackgroundPaint
             );
 
             // Draw text
-            canvas.drawText(countText, 15, 15 + textHeight * 0.75f, textPaint);
+            canvas.drawText(countText.text, 15, 15 + textHeight * 0.75f, textPaint);
         }
     }
 
     /**
-     * Animate boxes fading in
+     * Animate boxes growing in
      */
     private void animateIn() {
-        animationHandler.removeCallbacksAndMessages(null);
-        animationProgress = 0f;
-
-        final long startTime = System.currentTimeMillis();
+        startAnimation(false);
+    }
 
-        animationHandler.post(new Runnable() {
-            @Override
-            public void run() {
-                long elapsed = System.currentTimeMillis() - startTime;
-                animationProgress = Math.min(1f, (float) elapsed / ANIMATION_DURATION);
-                invalidate();
+    /**
+     * Animate boxes shrinking out, then clear them
+     */
+    private void animateOut() {
+        startAnimation(true);
+    }
 
-                if (animationProgress < 1f) {
-                    animationHandler.postDelayed(this, 16); // ~60fps
-                }
-            }
-        });
+    private void startAnimation(boolean out) {
+        animatingOut = out;
+        animationProgress = out ? 1f : 0f;
+        // The clock starts at the first vsync, so the first frame drawn is the first step
+        animationStartNanos = 0;
+        if (!frameCallbackPosted) {
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+            frameCallbackPosted = true;
+        }
+        invalidate();
     }
 
     /**
-     * Animate boxes fading out
+     * Advances the animation to a vsync's frame time and keeps it running until it ends.
      */
-    private void animateOut() {
-        animationHandler.removeCallbacksAndMessages(null);
-        animationProgress = 1f;
-
-        final long startTime = System.currentTimeMillis();
-        final List<Rect> currentBoxes = new ArrayList<>(boxes);
-
-        animationHandler.post(new Runnable() {
-            @Override
-            public void run() {
-                long elapsed = System.currentTimeMillis() - startTime;
-                animationProgress = Math.max(0f, 1f - (float) elapsed / ANIMATION_DURATION);
-                invalidate();
-
-                if (animationProgress > 0f) {
-                    animationHandler.postDelayed(this, 16); // ~60fps
-                } else {
-                    boxes.clear();
-                    invalidate();
-                }
-            }
-        });
+    private void onAnimationFrame(long frameTimeNanos) {
+        frameCallbackPosted = false;
+        if (animationStartNanos == 0) {
+            animationStartNanos = frameTimeNanos;
+        }
+        float fraction = Math.min(1f,
+                (float) (frameTimeNanos - animationStartNanos) / ANIMATION_DURATION_NANOS);
+        animationProgress = animatingOut ? 1f - fraction : fraction;
+        if (fraction < 1f) {
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+            frameCallbackPosted = true;
+        } else if (animatingOut) {
+            boxes.clear();
+        }
+        invalidate();
+    }
+
+    private void stopAnimation() {
+        if (frameCallbackPosted) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            frameCallbackPosted = false;
+        }
     }
 
     /**
@@ -338,7 +281,7 @@ public class BoundingBoxView extends View {
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
-        animationHandler.removeCallbacksAndMessages(null);
+        stopAnimation();
         boxes.clear();
     }
 }
\ No newline at end of file
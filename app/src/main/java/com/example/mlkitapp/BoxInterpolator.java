@@ -0,0 +1,191 @@
+package com.example.mlkitapp;
+
+/**
+ * Moves detection boxes between detector results so overlays can redraw at display rate.
+ * Each result is stamped with its camera capture time; a box with a known ID is drawn
+ * where its estimated velocity puts it at the draw time, which also hides the detector's
+ * own latency. When a new result disagrees with where the box was being drawn, the
+ * difference is blended out over {@code blendNanos} instead of jumping. Boxes without an
+ * ID ({@link BoxTracker#NO_ID}) are drawn where they were detected.
+ * Extrapolation stops {@code maxExtrapolationNanos} after capture, so a stalled detector
+ * leaves boxes parked rather than drifting off. All state is in primitive arrays and the
+ * per-draw path does not allocate. Not thread-safe; use it from the UI thread.
+ */
+public final class BoxInterpolator {
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final long maxExtrapolationNanos;
+    private final long blendNanos;
+    // Weight of the newest velocity sample in the running estimate
+    private final float velocitySmoothing;
+
+    /** One detector result: boxes, per-second velocities and pending corrections, 4 per entry. */
+    private static final class Snapshot {
+        int count = 0;
+        long captureNanos;
+        long updateNanos;
+        int[] ids = new int[8];
+        float[] boxes = new float[32];
+        float[] velocities = new float[32];
+        float[] corrections = new float[32];
+
+        void ensureCapacity(int newCount) {
+            if (ids.length < newCount) {
+                int capacity = Math.max(newCount, ids.length * 2);
+                ids = new int[capacity];
+                boxes = new float[capacity * 4];
+                velocities = new float[capacity * 4];
+                corrections = new float[capacity * 4];
+            }
+        }
+    }
+
+    private Snapshot current = new Snapshot();
+    // Previous result, kept to estimate velocity per ID; its arrays are reused next update
+    private Snapshot previous = new Snapshot();
+    private final float[] drawn = new float[4];
+    // Size of the image the boxes are in; 0 until known
+    private int imageWidth = 0;
+    private int imageHeight = 0;
+
+    public BoxInterpolator(long maxExtrapolationNanos, long blendNanos, float velocitySmoothing) {
+        if (velocitySmoothing <= 0f || velocitySmoothing > 1f) {
+            throw new IllegalArgumentException("velocitySmoothing must be in (0, 1]");
+        }
+        this.maxExtrapolationNanos = maxExtrapolationNanos;
+        this.blendNanos = blendNanos;
+        this.velocitySmoothing = velocitySmoothing;
+    }
+
+    /**
+     * Replaces the boxes with a new detector result. {@code newBoxes} holds left, top, right,
+     * bottom per entry and {@code newIds} one ID per entry. {@code captureNanos} and
+     * {@code nowNanos} must come from the same clock as later draw times.
+     */
+    public void update(int[] newIds, float[] newBoxes, int newCount, long captureNanos, long nowNanos) {
+        Snapshot last = current;
+        current = previous;
+        previous = last;
+        Snapshot next = current;
+        next.ensureCapacity(newCount);
+
+        float dt = (float) ((captureNanos - last.captureNanos) / NANOS_PER_SECOND);
+        float ahead = extrapolationSeconds(captureNanos, nowNanos);
+        for (int i = 0; i < newCount; i++) {
+            int id = newIds[i];
+            int o = i * 4;
+            next.ids[i] = id;
+            System.arraycopy(newBoxes, o, next.boxes, o, 4);
+            int match = id == BoxTracker.NO_ID || dt <= 0f ? -1 : indexOf(last, id);
+            if (match < 0) {
+                for (int k = 0; k < 4; k++) {
+                    next.velocities[o + k] = 0f;
+                    next.corrections[o + k] = 0f;
+                }
+                continue;
+            }
+            int p = match * 4;
+            // Where the box was being drawn just now, before this result replaced it
+            boxAt(last, match, nowNanos, drawn, 0);
+            for (int k = 0; k < 4; k++) {
+                float measured = (newBoxes[o + k] - last.boxes[p + k]) / dt;
+                float velocity = velocitySmoothing * measured
+                        + (1f - velocitySmoothing) * last.velocities[p + k];
+                next.velocities[o + k] = velocity;
+                next.corrections[o + k] = drawn[k] - (newBoxes[o + k] + velocity * ahead);
+            }
+        }
+        next.count = newCount;
+        next.captureNanos = captureNanos;
+        next.updateNanos = nowNanos;
+    }
+
+    /**
+     * Sets the size of the image later results are measured in. When it differs from the
+     * previous size, the boxes, velocities and pending corrections held so far are scaled
+     * to it, so a resolution change does not look like every box jumping.
+     */
+    public void setImageSize(int width, int height) {
+        if (imageWidth > 0 && imageHeight > 0 && width > 0 && height > 0
+                && (width != imageWidth || height != imageHeight)) {
+            float scaleX = (float) width / imageWidth;
+            float scaleY = (float) height / imageHeight;
+            scale(current, scaleX, scaleY);
+            scale(previous, scaleX, scaleY);
+        }
+        imageWidth = width;
+        imageHeight = height;
+    }
+
+    public int getCount() {
+        return current.count;
+    }
+
+    public int getId(int index) {
+        return current.ids[index];
+    }
+
+    /**
+     * Writes entry {@code index}'s box at {@code timeNanos} as left, top, right, bottom.
+     */
+    public void boxAt(int index, long timeNanos, float[] out, int offset) {
+        boxAt(current, index, timeNanos, out, offset);
+    }
+
+    /**
+     * Returns whether boxes drawn at {@code timeNanos} would differ from those drawn a
+     * moment later, i.e. whether the overlay should keep redrawing every vsync.
+     */
+    public boolean isMoving(long timeNanos) {
+        Snapshot snapshot = current;
+        boolean blending = timeNanos - snapshot.updateNanos < blendNanos;
+        boolean extrapolating = timeNanos - snapshot.captureNanos < maxExtrapolationNanos;
+        for (int i = 0; i < snapshot.count * 4; i++) {
+            if ((extrapolating && snapshot.velocities[i] != 0f)
+                    || (blending && snapshot.corrections[i] != 0f)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear() {
+        current.count = 0;
+        previous.count = 0;
+    }
+
+    private void boxAt(Snapshot snapshot, int index, long timeNanos, float[] out, int offset) {
+        float blend = blendNanos <= 0 ? 0f
+                : Math.max(0f, 1f - (float) (timeNanos - snapshot.updateNanos) / blendNanos);
+        float seconds = extrapolationSeconds(snapshot.captureNanos, timeNanos);
+        int o = index * 4;
+        for (int k = 0; k < 4; k++) {
+            out[offset + k] = snapshot.boxes[o + k] + snapshot.velocities[o + k] * seconds
+                    + snapshot.corrections[o + k] * blend;
+        }
+    }
+
+    private static void scale(Snapshot snapshot, float scaleX, float scaleY) {
+        for (int i = 0; i < snapshot.count * 4; i++) {
+            // Left and right are x coordinates, top and bottom y
+            float s = (i & 1) == 0 ? scaleX : scaleY;
+            snapshot.boxes[i] *= s;
+            snapshot.velocities[i] *= s;
+            snapshot.corrections[i] *= s;
+        }
+    }
+
+    private float extrapolationSeconds(long fromNanos, long toNanos) {
+        long elapsed = Math.max(0, Math.min(toNanos - fromNanos, maxExtrapolationNanos));
+        return (float) (elapsed / NANOS_PER_SECOND);
+    }
+
+    private static int indexOf(Snapshot snapshot, int id) {
+        for (int i = 0; i < snapshot.count; i++) {
+            if (snapshot.ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
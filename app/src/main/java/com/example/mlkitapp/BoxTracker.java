@@ -0,0 +1,332 @@
+package com.example.mlkitapp;
+
+import java.util.Arrays;
+
+/**
+ * SORT-style multi-object tracker that gives stable IDs to the boxes of any detector.
+ * Each track runs a constant-velocity Kalman filter on its box centre, width and height,
+ * one independent position/velocity filter per coordinate. On every detector result the
+ * tracks are predicted to the frame's timestamp and matched to the detections greedily by
+ * highest IoU; unmatched detections start new tracks and tracks missed for more than
+ * {@code maxMissedFrames} results are dropped.
+ * Boxes are passed as left, top, right, bottom quadruples in one float array. All state
+ * lives in preallocated primitive arrays, so updates do not allocate. Not thread-safe.
+ */
+public final class BoxTracker {
+    /** ID written for a detection that has no confirmed track yet. */
+    public static final int NO_ID = -1;
+
+    // Coordinates filtered per track: centre x, centre y, width, height
+    private static final int DIMS = 4;
+    private static final double NANOS_PER_SECOND = 1e9;
+    // Velocity uncertainty of a brand new track, in pixels per second
+    private static final float INITIAL_VELOCITY_VARIANCE = 1e6f;
+
+    private final int maxTracks;
+    private final float iouThreshold;
+    private final int maxMissedFrames;
+    private final int minHits;
+    // Process noise: acceleration variance, and measurement noise, both in pixel units
+    private final float accelerationVariance;
+    private final float measurementVariance;
+
+    private int trackCount = 0;
+    private int nextId = 0;
+    private long lastTimestampNanos = Long.MIN_VALUE;
+    // Size of the image the boxes are in; 0 until known
+    private int imageWidth = 0;
+    private int imageHeight = 0;
+    private final int[] ids;
+    private final int[] hits;
+    private final int[] missed;
+    // Per track and coordinate: state (position, velocity) and covariance [p00 p01; p01 p11]
+    private final float[] position;
+    private final float[] velocity;
+    private final float[] p00;
+    private final float[] p01;
+    private final float[] p11;
+
+    // Association scratch
+    private long[] candidates = new long[64];
+    private boolean[] trackMatched;
+    private int[] detectionTrack = new int[16];
+
+    public BoxTracker(int maxTracks, float iouThreshold, int maxMissedFrames, int minHits) {
+        this(maxTracks, iouThreshold, maxMissedFrames, minHits, 2000f, 16f);
+    }
+
+    public BoxTracker(int maxTracks, float iouThreshold, int maxMissedFrames, int minHits,
+                      float accelerationVariance, float measurementVariance) {
+        if (maxTracks < 1 || maxTracks > 0xFFFF) {
+            throw new IllegalArgumentException("maxTracks must be between 1 and 65535");
+        }
+        if (iouThreshold <= 0f || iouThreshold > 1f) {
+            throw new IllegalArgumentException("iouThreshold must be in (0, 1]");
+        }
+        this.maxTracks = maxTracks;
+        this.iouThreshold = iouThreshold;
+        this.maxMissedFrames = maxMissedFrames;
+        this.minHits = Math.max(1, minHits);
+        this.accelerationVariance = accelerationVariance;
+        this.measurementVariance = measurementVariance;
+        ids = new int[maxTracks];
+        hits = new int[maxTracks];
+        missed = new int[maxTracks];
+        position = new float[maxTracks * DIMS];
+        velocity = new float[maxTracks * DIMS];
+        p00 = new float[maxTracks * DIMS];
+        p01 = new float[maxTracks * DIMS];
+        p11 = new float[maxTracks * DIMS];
+        trackMatched = new boolean[maxTracks];
+    }
+
+    /**
+     * Advances every track to {@code timestampNanos} and folds in one detector result.
+     * Writes the track ID of each of the {@code count} boxes into {@code outIds}, or
+     * {@link #NO_ID} while its track is unconfirmed or when there is no room for it.
+     *
+     * @return the number of tracks alive after the update
+     */
+    public int update(float[] boxes, int count, long timestampNanos, int[] outIds) {
+        predict(timestampNanos);
+        ensureScratch(count);
+
+        // Candidate pairs packed as IoU bits | track | detection, so one sort ranks them.
+        // IoU is positive, so its float bits order the same way as the values.
+        int candidateCount = 0;
+        for (int t = 0; t < trackCount; t++) {
+            int o = t * DIMS;
+            float cx = position[o];
+            float cy = position[o + 1];
+            float halfW = Math.max(0f, position[o + 2]) / 2f;
+            float halfH = Math.max(0f, position[o + 3]) / 2f;
+            for (int d = 0; d < count; d++) {
+                int b = d * 4;
+                float iou = iou(cx - halfW, cy - halfH, cx + halfW, cy + halfH,
+                        boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3]);
+                if (iou >= iouThreshold) {
+                    if (candidateCount == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                    }
+                    candidates[candidateCount++] = ((long) Float.floatToIntBits(iou) << 32)
+                            | ((long) t << 16) | d;
+                }
+            }
+        }
+        Arrays.sort(candidates, 0, candidateCount);
+
+        Arrays.fill(trackMatched, 0, trackCount, false);
+        Arrays.fill(detectionTrack, 0, count, -1);
+        for (int i = candidateCount - 1; i >= 0; i--) {
+            long candidate = candidates[i];
+            int t = (int) (candidate >>> 16) & 0xFFFF;
+            int d = (int) candidate & 0xFFFF;
+            if (!trackMatched[t] && detectionTrack[d] < 0) {
+                trackMatched[t] = true;
+                detectionTrack[d] = t;
+            }
+        }
+
+        for (int d = 0; d < count; d++) {
+            int t = detectionTrack[d];
+            if (t >= 0) {
+                correct(t, boxes, d * 4);
+                hits[t]++;
+                missed[t] = 0;
+            }
+        }
+        // Age unmatched tracks before adding new ones, so new tracks are never aged
+        for (int t = trackCount - 1; t >= 0; t--) {
+            if (!trackMatched[t] && ++missed[t] > maxMissedFrames) {
+                removeTrack(t, count);
+            }
+        }
+        for (int d = 0; d < count; d++) {
+            if (detectionTrack[d] < 0 && trackCount < maxTracks) {
+                detectionTrack[d] = startTrack(boxes, d * 4);
+            }
+        }
+
+        for (int d = 0; d < count; d++) {
+            int t = detectionTrack[d];
+            outIds[d] = t >= 0 && hits[t] >= minHits ? ids[t] : NO_ID;
+        }
+        return trackCount;
+    }
+
+    /**
+     * Sets the size of the image later boxes are measured in. When it differs from the
+     * previous size, every track's state and covariance is scaled to it, so tracks keep
+     * matching their detections across a resolution change.
+     */
+    public void setImageSize(int width, int height) {
+        if (imageWidth > 0 && imageHeight > 0 && width > 0 && height > 0
+                && (width != imageWidth || height != imageHeight)) {
+            float scaleX = (float) width / imageWidth;
+            float scaleY = (float) height / imageHeight;
+            int end = trackCount * DIMS;
+            for (int i = 0; i < end; i++) {
+                // Centre x and width scale with the image width, centre y and height with
+                // its height; variances scale with the square
+                float s = (i & 1) == 0 ? scaleX : scaleY;
+                position[i] *= s;
+                velocity[i] *= s;
+                p00[i] *= s * s;
+                p01[i] *= s * s;
+                p11[i] *= s * s;
+            }
+        }
+        imageWidth = width;
+        imageHeight = height;
+    }
+
+    /**
+     * Moves every track forward to {@code timestampNanos} on its current velocity, without
+     * a detector result. Use it to keep boxes moving on frames the detector skips.
+     */
+    public void predict(long timestampNanos) {
+        if (lastTimestampNanos == Long.MIN_VALUE || timestampNanos <= lastTimestampNanos) {
+            lastTimestampNanos = Math.max(lastTimestampNanos, timestampNanos);
+            return;
+        }
+        float dt = (float) ((timestampNanos - lastTimestampNanos) / NANOS_PER_SECOND);
+        lastTimestampNanos = timestampNanos;
+        float dt2 = dt * dt;
+        float q00 = accelerationVariance * dt2 * dt2 / 4f;
+        float q01 = accelerationVariance * dt2 * dt / 2f;
+        float q11 = accelerationVariance * dt2;
+        int end = trackCount * DIMS;
+        for (int i = 0; i < end; i++) {
+            position[i] += velocity[i] * dt;
+            p00[i] += dt * (2f * p01[i] + dt * p11[i]) + q00;
+            p01[i] += dt * p11[i] + q01;
+            p11[i] += q11;
+        }
+    }
+
+    public int getTrackCount() {
+        return trackCount;
+    }
+
+    public int getTrackId(int track) {
+        return ids[track];
+    }
+
+    public boolean isConfirmed(int track) {
+        return hits[track] >= minHits;
+    }
+
+    /**
+     * Writes the track's current box estimate as left, top, right, bottom at {@code offset}.
+     */
+    public void getTrackBox(int track, float[] out, int offset) {
+        int o = track * DIMS;
+        float halfW = Math.max(0f, position[o + 2]) / 2f;
+        float halfH = Math.max(0f, position[o + 3]) / 2f;
+        out[offset] = position[o] - halfW;
+        out[offset + 1] = position[o + 1] - halfH;
+        out[offset + 2] = position[o] + halfW;
+        out[offset + 3] = position[o + 1] + halfH;
+    }
+
+    /**
+     * Writes the track's estimated velocity as centre x, centre y, width, height per second.
+     */
+    public void getTrackVelocity(int track, float[] out, int offset) {
+        System.arraycopy(velocity, track * DIMS, out, offset, DIMS);
+    }
+
+    public void clear() {
+        trackCount = 0;
+        lastTimestampNanos = Long.MIN_VALUE;
+    }
+
+    /**
+     * Intersection over union of two left, top, right, bottom boxes; 0 when either is empty.
+     */
+    public static float iou(float aLeft, float aTop, float aRight, float aBottom,
+                            float bLeft, float bTop, float bRight, float bBottom) {
+        float interW = Math.min(aRight, bRight) - Math.max(aLeft, bLeft);
+        float interH = Math.min(aBottom, bBottom) - Math.max(aTop, bTop);
+        if (interW <= 0f || interH <= 0f) {
+            return 0f;
+        }
+        float inter = interW * interH;
+        float union = (aRight - aLeft) * (aBottom - aTop) + (bRight - bLeft) * (bBottom - bTop) - inter;
+        return union <= 0f ? 0f : inter / union;
+    }
+
+    private void correct(int track, float[] boxes, int b) {
+        int o = track * DIMS;
+        measure(o, (boxes[b] + boxes[b + 2]) / 2f);
+        measure(o + 1, (boxes[b + 1] + boxes[b + 3]) / 2f);
+        measure(o + 2, boxes[b + 2] - boxes[b]);
+        measure(o + 3, boxes[b + 3] - boxes[b + 1]);
+    }
+
+    private void measure(int i, float z) {
+        float s = p00[i] + measurementVariance;
+        float k0 = p00[i] / s;
+        float k1 = p01[i] / s;
+        float residual = z - position[i];
+        position[i] += k0 * residual;
+        velocity[i] += k1 * residual;
+        float newP00 = (1f - k0) * p00[i];
+        float newP01 = (1f - k0) * p01[i];
+        p11[i] -= k1 * p01[i];
+        p00[i] = newP00;
+        p01[i] = newP01;
+    }
+
+    private int startTrack(float[] boxes, int b) {
+        int t = trackCount++;
+        int o = t * DIMS;
+        position[o] = (boxes[b] + boxes[b + 2]) / 2f;
+        position[o + 1] = (boxes[b + 1] + boxes[b + 3]) / 2f;
+        position[o + 2] = boxes[b + 2] - boxes[b];
+        position[o + 3] = boxes[b + 3] - boxes[b + 1];
+        for (int i = o; i < o + DIMS; i++) {
+            velocity[i] = 0f;
+            p00[i] = measurementVariance;
+            p01[i] = 0f;
+            p11[i] = INITIAL_VELOCITY_VARIANCE;
+        }
+        ids[t] = nextId++;
+        hits[t] = 1;
+        missed[t] = 0;
+        return t;
+    }
+
+    /**
+     * Removes a track by moving the last track into its slot, and repoints any detection
+     * matched to the moved track.
+     */
+    private void removeTrack(int t, int detectionCount) {
+        int last = --trackCount;
+        if (t != last) {
+            ids[t] = ids[last];
+            hits[t] = hits[last];
+            missed[t] = missed[last];
+            trackMatched[t] = trackMatched[last];
+            System.arraycopy(position, last * DIMS, position, t * DIMS, DIMS);
+            System.arraycopy(velocity, last * DIMS, velocity, t * DIMS, DIMS);
+            System.arraycopy(p00, last * DIMS, p00, t * DIMS, DIMS);
+            System.arraycopy(p01, last * DIMS, p01, t * DIMS, DIMS);
+            System.arraycopy(p11, last * DIMS, p11, t * DIMS, DIMS);
+            for (int d = 0; d < detectionCount; d++) {
+                if (detectionTrack[d] == last) {
+                    detectionTrack[d] = t;
+                }
+            }
+        }
+    }
+
+    private void ensureScratch(int count) {
+        if (count > 0xFFFF) {
+            throw new IllegalArgumentException("At most 65535 detections per update");
+        }
+        if (detectionTrack.length < count) {
+            detectionTrack = new int[Math.max(count, detectionTrack.length * 2)];
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.mlkitapp;
+
+/**
+ * Maps detection boxes from image coordinates to view coordinates for the four display
+ * rotations. Results are written into a caller-owned array so drawing does not allocate.
+ */
+public final class BoxTransform {
+
+    private BoxTransform() {
+    }
+
+    /**
+     * Writes the mapped box as left, top, right, bottom into {@code out[offset..offset + 3]}.
+     */
+    public static void map(int rotationDegrees, float left, float top, float right, float bottom,
+                           float scaleX, float scaleY, int viewWidth, int viewHeight,
+                           float[] out, int offset) {
+        switch (rotationDegrees) {
+            case 90:
+                out[offset] = viewHeight - bottom * scaleY;
+                out[offset + 1] = left * scaleX;
+                out[offset + 2] = viewHeight - top * scaleY;
+                out[offset + 3] = right * scaleX;
+                break;
+            case 180:
+                out[offset] = viewWidth - right * scaleX;
+                out[offset + 1] = viewHeight - bottom * scaleY;
+                out[offset + 2] = viewWidth - left * scaleX;
+                out[offset + 3] = viewHeight - top * scaleY;
+                break;
+            case 270:
+                out[offset] = top * scaleY;
+                out[offset + 1] = viewWidth - right * scaleX;
+                out[offset + 2] = bottom * scaleY;
+                out[offset + 3] = viewWidth - left * scaleX;
+                break;
+            default: // 0 degrees
+                out[offset] = left * scaleX;
+                out[offset + 1] = top * scaleY;
+                out[offset + 2] = right * scaleX;
+                out[offset + 3] = bottom * scaleY;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.mlkitapp;
+
+/**
+ * Monotonic time source, injectable so timing logic can be tested without real delays.
+ */
+public interface Clock {
+    Clock SYSTEM = System::nanoTime;
+
+    long nanoTime();
+}
@@ -0,0 +1,278 @@
+package com.example.mlkitapp;
+
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.util.Log;
+import android.util.Size;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.camera.core.Camera;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.Preview;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.view.PreviewView;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+
+import com.google.android.gms.tasks.Task;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.face.FaceDetector;
+import com.google.mlkit.vision.objects.ObjectDetector;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Kiosk-style scanner that runs face, object and barcode detection on the same camera
+ * frame. All three detectors share one ImageAnalysis use case, so there is no camera
+ * rebind when the flow needs badges and faces at once.
+ */
+public class CombinedScannerActivity extends AppCompatActivity {
+    private static final String TAG = "CombinedScannerAct";
+    private static final int REQUEST_CODE_PERMISSIONS = 10;
+    private static final String[] REQUIRED_PERMISSIONS = new String[]{Manifest.permission.CAMERA};
+    private static final float TARGET_ANALYSIS_FPS = 10f;
+    private static final float MAX_COUNT_UPDATES_PER_SECOND = 8f;
+
+    private PreviewView previewView;
+    private FaceDetectionOverlay faceOverlay;
+    private ObjectDetectionOverlay objectOverlay;
+    private TextView tvFaces;
+    private TextView tvObjects;
+    private TextView tvBarcode;
+    private Button btnPause;
+
+    private Camera camera;
+    private FrameAnalysisPipeline analysisPipeline;
+    private DetectorRegistry.Handle<FaceDetector> faceDetectorHandle;
+    private DetectorRegistry.Handle<ObjectDetector> objectDetectorHandle;
+    private DetectorRegistry.Handle<BarcodeScanner> barcodeScannerHandle;
+    private FaceDetector faceDetector;
+    private ObjectDetector objectDetector;
+    private BarcodeScanner barcodeScanner;
+    // Face and object results are copied into these frames off the main thread and recycled
+    private final DetectionFramePool facePool = DetectionFrames.newFacePool();
+    private final DetectionFramePool objectPool = DetectionFrames.newObjectPool();
+    private ThrottledFrameFeed faceCountFeed;
+    private ThrottledFrameFeed objectCountFeed;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_combined_scanner);
+
+        previewView = findViewById(R.id.preview_view);
+        faceOverlay = findViewById(R.id.face_overlay);
+        objectOverlay = findViewById(R.id.object_overlay);
+        tvFaces = findViewById(R.id.tv_combined_faces);
+        tvObjects = findViewById(R.id.tv_combined_objects);
+        tvBarcode = findViewById(R.id.tv_combined_barcode);
+        btnPause = findViewById(R.id.btn_combined_pause);
+        faceOverlay.setFrontFacing(false);
+        faceCountFeed = new ThrottledFrameFeed(tvFaces, MAX_COUNT_UPDATES_PER_SECOND,
+                faces -> tvFaces.setText("Faces detected: " + faces.getCount()));
+        objectCountFeed = new ThrottledFrameFeed(tvObjects, MAX_COUNT_UPDATES_PER_SECOND,
+                objects -> tvObjects.setText("Objects detected: " + objects.getCount()));
+
+        // Boxes only: the combined mode is about presence, not facial features
+        faceDetectorHandle = DetectorClients.face(this, 0);
+        faceDetector = faceDetectorHandle.get();
+        objectDetectorHandle = DetectorClients.objects(this, true, true);
+        objectDetector = objectDetectorHandle.get();
+        barcodeScannerHandle = DetectorClients.barcode(this, Barcode.FORMAT_ALL_FORMATS);
+        barcodeScanner = barcodeScannerHandle.get();
+
+        FaceStage faceStage = new FaceStage();
+        ObjectStage objectStage = new ObjectStage();
+        BarcodeStage barcodeStage = new BarcodeStage();
+        analysisPipeline = new FrameAnalysisPipeline(faceStage, objectStage, barcodeStage);
+        LatencyRegistry latency = analysisPipeline.getLatencyRegistry();
+        faceOverlay.setDrawLatencyHistogram(latency.histogram("FaceOverlay" + LatencyRegistry.DRAW));
+        objectOverlay.setDrawLatencyHistogram(latency.histogram("ObjectOverlay" + LatencyRegistry.DRAW));
+        // Each detector is paced by its own latency, so a slow one does not hold back the rest
+        analysisPipeline.setAdmissionController(faceStage,
+                new FrameAdmissionController(Clock.SYSTEM, TARGET_ANALYSIS_FPS));
+        analysisPipeline.setAdmissionController(objectStage,
+                new FrameAdmissionController(Clock.SYSTEM, TARGET_ANALYSIS_FPS));
+        analysisPipeline.setAdmissionController(barcodeStage,
+                new FrameAdmissionController(Clock.SYSTEM, TARGET_ANALYSIS_FPS));
+
+        btnPause.setOnClickListener(v -> {
+            boolean pause = !analysisPipeline.isPaused();
+            analysisPipeline.setPaused(pause);
+            if (pause) {
+                faceOverlay.pauseAnalysis();
+                objectOverlay.pauseAnalysis();
+            } else {
+                faceOverlay.resumeAnalysis();
+                objectOverlay.resumeAnalysis();
+            }
+            btnPause.setText(pause ? "Resume" : "Pause");
+        });
+
+        if (allPermissionsGranted()) {
+            startCamera();
+        } else {
+            ActivityCompat.requestPermissions(this, REQUIRED_PERMISSIONS, REQUEST_CODE_PERMISSIONS);
+        }
+    }
+
+    private void startCamera() {
+        ListenableFuture<ProcessCameraProvider> cameraProviderFuture =
+                ProcessCameraProvider.getInstance(this);
+
+        cameraProviderFuture.addListener(() -> {
+            try {
+                ProcessCameraProvider cameraProvider = cameraProviderFuture.get();
+
+                Preview preview = new Preview.Builder().build();
+                preview.setSurfaceProvider(previewView.getSurfaceProvider());
+
+                // One analysis use case feeds all three detectors
+                ImageAnalysis imageAnalysis =
+                        FrameAnalysisPipeline.buildImageAnalysis(new Size(720, 1280));
+                analysisPipeline.attachTo(imageAnalysis);
+
+                // Back camera, so object boxes need no mirroring
+                CameraSelector cameraSelector = new CameraSelector.Builder()
+                        .requireLensFacing(CameraSelector.LENS_FACING_BACK)
+                        .build();
+
+                cameraProvider.unbindAll();
+                camera = cameraProvider.bindToLifecycle(
+                        this, cameraSelector, preview, imageAnalysis);
+
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e(TAG, "Use case binding failed", e);
+            }
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    private class FaceStage implements FrameAnalysisPipeline.DetectorStage<DetectionFrame> {
+        @Override
+        public Task<DetectionFrame> process(InputImage image) {
+            return DetectionFrames.faces(faceDetector.process(image), facePool);
+        }
+
+        @Override
+        public void onResult(DetectionFrame faces, FrameMetadata frame) {
+            if (faces == null) {
+                return;
+            }
+            faces.setImage(frame.getWidth(), frame.getHeight(),
+                    FrameAnalysisPipeline.captureTimeToNanoTime(frame.getTimestampNanos()));
+            faceOverlay.publish(faces);
+            faceCountFeed.publish(faces);
+            faces.release();
+        }
+
+        @Override
+        public void onDiscarded(DetectionFrame faces) {
+            if (faces != null) {
+                faces.release();
+            }
+        }
+
+        @Override
+        public Executor getResultExecutor() {
+            return Runnable::run;
+        }
+    }
+
+    private class ObjectStage implements FrameAnalysisPipeline.DetectorStage<DetectionFrame> {
+        @Override
+        public Task<DetectionFrame> process(InputImage image) {
+            return DetectionFrames.objects(objectDetector.process(image), objectPool);
+        }
+
+        @Override
+        public void onResult(DetectionFrame objects, FrameMetadata frame) {
+            if (objects == null) {
+                return;
+            }
+            objects.setImage(frame.getWidth(), frame.getHeight(),
+                    FrameAnalysisPipeline.captureTimeToNanoTime(frame.getTimestampNanos()));
+            objectOverlay.publish(objects);
+            objectCountFeed.publish(objects);
+            objects.release();
+        }
+
+        @Override
+        public void onDiscarded(DetectionFrame objects) {
+            if (objects != null) {
+                objects.release();
+            }
+        }
+
+        @Override
+        public Executor getResultExecutor() {
+            return Runnable::run;
+        }
+    }
+
+    private class BarcodeStage implements FrameAnalysisPipeline.DetectorStage<List<Barcode>> {
+        @Override
+        public Task<List<Barcode>> process(InputImage image) {
+            return barcodeScanner.process(image);
+        }
+
+        @Override
+        public void onResult(List<Barcode> barcodes, FrameMetadata frame) {
+            if (!barcodes.isEmpty()) {
+                String value = barcodes.get(0).getDisplayValue();
+                tvBarcode.setText("Last barcode: " + (value != null ? value : "--"));
+            }
+        }
+    }
+
+    private boolean allPermissionsGranted() {
+        for (String permission : REQUIRED_PERMISSIONS) {
+            if (ContextCompat.checkSelfPermission(this, permission) !=
+                    PackageManager.PERMISSION_GRANTED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
+                                           @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == REQUEST_CODE_PERMISSIONS) {
+            if (allPermissionsGranted()) {
+                startCamera();
+            } else {
+                Toast.makeText(this,
+                        "Permissions not granted by the user.",
+                        Toast.LENGTH_SHORT).show();
+                finish();
+            }
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Drop late results; the analyzer thread itself is shared across screens
+        analysisPipeline.setPaused(true);
+        analysisPipeline.dumpLatency(new File(getExternalFilesDir(null),
+                "latency/combined-" + System.currentTimeMillis() + ".txt"));
+        faceDetectorHandle.close();
+        objectDetectorHandle.close();
+        barcodeScannerHandle.close();
+        faceCountFeed.close();
+        objectCountFeed.close();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.mlkitapp;
+
+/**
+ * Allocation-free selection helpers shared by the detection overlays and result lists.
+ * They work on primitive score arrays so the per-frame hot path can be benchmarked on a
+ * plain JVM.
+ */
+public final class DetectionFilters {
+
+    private DetectionFilters() {
+    }
+
+    /**
+     * Returns the index of the first highest score among the first {@code count} entries,
+     * or -1 when {@code count} is zero.
+     */
+    public static int argMax(float[] scores, int count) {
+        if (count <= 0) {
+            return -1;
+        }
+        int best = 0;
+        float bestScore = scores[0];
+        for (int i = 1; i < count; i++) {
+            if (scores[i] > bestScore) {
+                bestScore = scores[i];
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes the indices of scores at or above {@code threshold} into {@code out}, in order,
+     * and returns how many were written.
+     */
+    public static int filterAtLeast(float[] scores, int count, float threshold, int[] out) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (scores[i] >= threshold) {
+                out[kept++] = i;
+            }
+        }
+        return kept;
+    }
+}
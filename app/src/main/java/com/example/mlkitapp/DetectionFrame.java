@@ -0,0 +1,228 @@
+package com.example.mlkitapp;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One detector result in primitive arrays: a left, top, right, bottom box, a score, a label
+ * ID from the pool's {@link LabelTable} and a tracking ID per detection, plus optional
+ * per-detection attributes (such as smile probability) and points (such as landmarks).
+ * Missing attributes and points are NaN. Frames come from a {@link DetectionFramePool}
+ * and are reference counted: a consumer that keeps a frame past the call that handed it
+ * over must {@link #retain()} it, and every share ends with one {@link #release()}.
+ */
+public final class DetectionFrame {
+    private final DetectionFramePool pool;
+    private final AtomicInteger refCount = new AtomicInteger();
+    private final int capacity;
+    private final int attributesPerDetection;
+    private final int pointsPerDetection;
+
+    private int count = 0;
+    private int width;
+    private int height;
+    private long captureNanos;
+    private final float[] boxes;
+    private final float[] scores;
+    private final int[] labelIds;
+    private final int[] trackingIds;
+    private final float[] attributes;
+    private final float[] points;
+    // Per detection, whether its attributes were copied from an earlier result
+    private final boolean[] carriedOver;
+
+    DetectionFrame(DetectionFramePool pool, int capacity, int attributesPerDetection,
+                   int pointsPerDetection) {
+        this.pool = pool;
+        this.capacity = capacity;
+        this.attributesPerDetection = attributesPerDetection;
+        this.pointsPerDetection = pointsPerDetection;
+        boxes = new float[capacity * 4];
+        scores = new float[capacity];
+        labelIds = new int[capacity];
+        trackingIds = new int[capacity];
+        attributes = new float[capacity * attributesPerDetection];
+        points = new float[capacity * pointsPerDetection * 2];
+        carriedOver = new boolean[capacity];
+    }
+
+    /**
+     * Claims the frame for a new result if it is free. Called by the pool.
+     */
+    boolean tryClaim() {
+        return refCount.compareAndSet(0, 1);
+    }
+
+    /**
+     * Empties the frame for a new result.
+     */
+    public void reset() {
+        count = 0;
+        width = 0;
+        height = 0;
+        captureNanos = 0;
+    }
+
+    /**
+     * Sets the image the detections were found in. {@code captureNanos} is on the
+     * {@link System#nanoTime()} clock.
+     */
+    public void setImage(int width, int height, long captureNanos) {
+        this.width = width;
+        this.height = height;
+        this.captureNanos = captureNanos;
+    }
+
+    /**
+     * Appends a detection with no attributes or points yet.
+     *
+     * @return its index, or -1 when the frame is full
+     */
+    public int add(float left, float top, float right, float bottom, float score, int labelId,
+                   int trackingId) {
+        if (count == capacity) {
+            return -1;
+        }
+        int index = count++;
+        int b = index * 4;
+        boxes[b] = left;
+        boxes[b + 1] = top;
+        boxes[b + 2] = right;
+        boxes[b + 3] = bottom;
+        scores[index] = score;
+        labelIds[index] = labelId;
+        trackingIds[index] = trackingId;
+        carriedOver[index] = false;
+        Arrays.fill(attributes, index * attributesPerDetection,
+                (index + 1) * attributesPerDetection, Float.NaN);
+        Arrays.fill(points, index * pointsPerDetection * 2,
+                (index + 1) * pointsPerDetection * 2, Float.NaN);
+        return index;
+    }
+
+    public void setAttribute(int index, int attribute, float value) {
+        attributes[index * attributesPerDetection + attribute] = value;
+    }
+
+    public float getAttribute(int index, int attribute) {
+        return attributes[index * attributesPerDetection + attribute];
+    }
+
+    /**
+     * Marks a detection's attributes as copied from an earlier result rather than measured
+     * on this frame, so smoothing does not count them as new evidence.
+     */
+    public void setCarriedOver(int index) {
+        carriedOver[index] = true;
+    }
+
+    public boolean isCarriedOver(int index) {
+        return carriedOver[index];
+    }
+
+    public void setPoint(int index, int point, float x, float y) {
+        int p = (index * pointsPerDetection + point) * 2;
+        points[p] = x;
+        points[p + 1] = y;
+    }
+
+    public float getPointX(int index, int point) {
+        return points[(index * pointsPerDetection + point) * 2];
+    }
+
+    public float getPointY(int index, int point) {
+        return points[(index * pointsPerDetection + point) * 2 + 1];
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getPointsPerDetection() {
+        return pointsPerDetection;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getCaptureNanos() {
+        return captureNanos;
+    }
+
+    /** Boxes as left, top, right, bottom per detection; valid for the first count entries. */
+    public float[] getBoxes() {
+        return boxes;
+    }
+
+    public float[] getScores() {
+        return scores;
+    }
+
+    public int[] getLabelIds() {
+        return labelIds;
+    }
+
+    /** Tracking IDs per detection, or {@link BoxTracker#NO_ID}. Consumers may overwrite them. */
+    public int[] getTrackingIds() {
+        return trackingIds;
+    }
+
+    /**
+     * Shorter side of the smallest box, or NaN when there are no detections.
+     */
+    public float getSmallestExtent() {
+        float smallest = Float.NaN;
+        for (int i = 0; i < count; i++) {
+            int b = i * 4;
+            float extent = Math.min(boxes[b + 2] - boxes[b], boxes[b + 3] - boxes[b + 1]);
+            if (Float.isNaN(smallest) || extent < smallest) {
+                smallest = extent;
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * A key that follows a detection across frames, such as a list row's stable ID: its
+     * tracking ID, or a negative key by position when it has none.
+     */
+    public long getStableKey(int index) {
+        int trackingId = trackingIds[index];
+        return trackingId != BoxTracker.NO_ID ? trackingId : -1L - index;
+    }
+
+    public String getLabel(int index, String fallback) {
+        return pool.getLabels().nameOf(labelIds[index], fallback);
+    }
+
+    /**
+     * Adds a share. Must be called while the caller still holds one.
+     */
+    public void retain() {
+        if (refCount.getAndIncrement() <= 0) {
+            throw new IllegalStateException("Frame already released");
+        }
+    }
+
+    /**
+     * Drops a share; the last one returns the frame to its pool.
+     */
+    public void release() {
+        if (refCount.decrementAndGet() < 0) {
+            throw new IllegalStateException("Frame released more times than retained");
+        }
+    }
+
+    int getRefCount() {
+        return refCount.get();
+    }
+}
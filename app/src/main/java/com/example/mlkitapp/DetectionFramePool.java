@@ -0,0 +1,67 @@
+package com.example.mlkitapp;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed ring of preallocated {@link DetectionFrame}s. {@link #acquire()} hands out the
+ * next free frame in ring order and a frame becomes free again when its last share is
+ * released, so steady-state detection allocates nothing. When every frame is still held,
+ * acquire returns null and the caller drops the result instead of growing the pool.
+ * Lock-free; frames may be acquired and released on any thread.
+ */
+public final class DetectionFramePool {
+    private final DetectionFrame[] frames;
+    private final LabelTable labels;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public DetectionFramePool(int frameCount, int maxDetections, int attributesPerDetection,
+                              int pointsPerDetection, LabelTable labels) {
+        if (frameCount < 1 || maxDetections < 1) {
+            throw new IllegalArgumentException("frameCount and maxDetections must be positive");
+        }
+        this.labels = labels;
+        frames = new DetectionFrame[frameCount];
+        for (int i = 0; i < frameCount; i++) {
+            frames[i] = new DetectionFrame(this, maxDetections, attributesPerDetection,
+                    pointsPerDetection);
+        }
+    }
+
+    /**
+     * Returns a free frame holding one share, or null when all frames are in use.
+     */
+    public DetectionFrame acquire() {
+        int start = cursor.get();
+        for (int i = 0; i < frames.length; i++) {
+            int slot = Math.floorMod(start + i, frames.length);
+            if (frames[slot].tryClaim()) {
+                cursor.lazySet(slot + 1);
+                return frames[slot];
+            }
+        }
+        dropped.incrementAndGet();
+        return null;
+    }
+
+    public LabelTable getLabels() {
+        return labels;
+    }
+
+    /** Frames not held by anyone right now. */
+    public int getFreeCount() {
+        int free = 0;
+        for (DetectionFrame frame : frames) {
+            if (frame.getRefCount() == 0) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    /** Results dropped because every frame was in use. */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.mlkitapp;
+
+import android.graphics.PointF;
+import android.graphics.Rect;
+
+import com.google.android.gms.tasks.Task;
+import com.google.mlkit.vision.face.Face;
+import com.google.mlkit.vision.face.FaceLandmark;
+import com.google.mlkit.vision.objects.DetectedObject;
+
+import java.util.List;
+
+/**
+ * Copies ML Kit results into pooled {@link DetectionFrame}s. The copy runs inline on the
+ * thread that completes the detector's Task, so the main thread receives a ready frame
+ * instead of ML Kit objects it would have to walk again. A Task completes with null when
+ * the pool has no free frame; that result is dropped.
+ */
+public final class DetectionFrames {
+    // Face attributes, in DetectionFrame attribute order
+    public static final int FACE_SMILING = 0;
+    public static final int FACE_LEFT_EYE_OPEN = 1;
+    public static final int FACE_RIGHT_EYE_OPEN = 2;
+    public static final int FACE_ATTRIBUTE_COUNT = 3;
+    /** Landmarks stored per face, in DetectionFrame point order. */
+    public static final int[] FACE_LANDMARKS = {
+            FaceLandmark.LEFT_EYE, FaceLandmark.RIGHT_EYE, FaceLandmark.NOSE_BASE,
+            FaceLandmark.MOUTH_LEFT, FaceLandmark.MOUTH_RIGHT, FaceLandmark.LEFT_EAR,
+            FaceLandmark.RIGHT_EAR, FaceLandmark.LEFT_CHEEK, FaceLandmark.RIGHT_CHEEK
+    };
+    /** Score of an object with no labels, below any labelled object, even one at 0%. */
+    public static final float NO_LABEL_SCORE = -1f;
+    /** Faces kept per frame; any beyond this are dropped. */
+    public static final int MAX_FACES = 16;
+
+    // Results in flight, the ones waiting in UI channels and the one on screen
+    private static final int FRAMES_PER_POOL = 6;
+    private static final int MAX_OBJECTS = 16;
+
+    private DetectionFrames() {
+    }
+
+    public static DetectionFramePool newObjectPool() {
+        return new DetectionFramePool(FRAMES_PER_POOL, MAX_OBJECTS, 0, 0, new LabelTable());
+    }
+
+    public static DetectionFramePool newFacePool() {
+        return new DetectionFramePool(FRAMES_PER_POOL, MAX_FACES, FACE_ATTRIBUTE_COUNT,
+                FACE_LANDMARKS.length, new LabelTable());
+    }
+
+    /**
+     * Passes a share of {@code frame} to the consumer behind {@code channel}, from any
+     * thread. {@code wake} runs only when the consumer has no pull pending, so a burst of
+     * results costs one wake-up; a result replaced before it was pulled is released.
+     * The caller keeps its own share.
+     */
+    public static void handOff(DetectionFrame frame, LatestValueChannel<DetectionFrame> channel,
+                               Runnable wake) {
+        frame.retain();
+        DetectionFrame replaced = channel.publish(frame);
+        if (replaced != null) {
+            replaced.release();
+        } else {
+            wake.run();
+        }
+    }
+
+    /**
+     * Releases a frame left in {@code channel}, for consumers that are going away.
+     */
+    public static void drain(LatestValueChannel<DetectionFrame> channel) {
+        DetectionFrame pending = channel.take();
+        if (pending != null) {
+            pending.release();
+        }
+    }
+
+    /**
+     * Converts an object detector's result. Each object keeps its most confident label, or
+     * {@link #NO_LABEL_SCORE} when it has none, and ML Kit's tracking ID when there is one.
+     */
+    public static Task<DetectionFrame> objects(Task<List<DetectedObject>> task,
+                                               DetectionFramePool pool) {
+        return task.continueWith(Runnable::run, done -> {
+            DetectionFrame frame = pool.acquire();
+            if (frame == null) {
+                return null;
+            }
+            frame.reset();
+            LabelTable labels = pool.getLabels();
+            for (DetectedObject object : done.getResult()) {
+                float score = NO_LABEL_SCORE;
+                int labelId = LabelTable.NO_LABEL;
+                List<DetectedObject.Label> objectLabels = object.getLabels();
+                for (int i = 0; i < objectLabels.size(); i++) {
+                    DetectedObject.Label label = objectLabels.get(i);
+                    if (label.getConfidence() > score) {
+                        score = label.getConfidence();
+                        String text = label.getText();
+                        labelId = text == null || text.isEmpty()
+                                ? LabelTable.NO_LABEL : labels.idOf(text);
+                    }
+                }
+                Integer trackingId = object.getTrackingId();
+                Rect bounds = object.getBoundingBox();
+                if (frame.add(bounds.left, bounds.top, bounds.right, bounds.bottom, score, labelId,
+                        trackingId != null ? trackingId : BoxTracker.NO_ID) < 0) {
+                    break;
+                }
+            }
+            return frame;
+        });
+    }
+
+    /**
+     * Converts a face detector's result, with classification probabilities as attributes
+     * and {@link #FACE_LANDMARKS} as points when the detector provides them.
+     */
+    public static Task<DetectionFrame> faces(Task<List<Face>> task, DetectionFramePool pool) {
+        return task.continueWith(Runnable::run, done -> {
+            DetectionFrame frame = pool.acquire();
+            if (frame == null) {
+                return null;
+            }
+            frame.reset();
+            for (Face face : done.getResult()) {
+                Integer trackingId = face.getTrackingId();
+                Rect bounds = face.getBoundingBox();
+                int index = frame.add(bounds.left, bounds.top, bounds.right, bounds.bottom, 1f,
+                        LabelTable.NO_LABEL, trackingId != null ? trackingId : BoxTracker.NO_ID);
+                if (index < 0) {
+                    break;
+                }
+                setAttribute(frame, index, FACE_SMILING, face.getSmilingProbability());
+                setAttribute(frame, index, FACE_LEFT_EYE_OPEN, face.getLeftEyeOpenProbability());
+                setAttribute(frame, index, FACE_RIGHT_EYE_OPEN, face.getRightEyeOpenProbability());
+                for (int p = 0; p < FACE_LANDMARKS.length; p++) {
+                    FaceLandmark landmark = face.getLandmark(FACE_LANDMARKS[p]);
+                    if (landmark != null) {
+                        PointF position = landmark.getPosition();
+                        frame.setPoint(index, p, position.x, position.y);
+                    }
+                }
+            }
+            return frame;
+        });
+    }
+
+    private static void setAttribute(DetectionFrame frame, int index, int attribute, Float value) {
+        if (value != null) {
+            frame.setAttribute(index, attribute, value);
+        }
+    }
+}
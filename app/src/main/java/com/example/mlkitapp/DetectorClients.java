@@ -0,0 +1,144 @@
+package com.example.mlkitapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
+import com.google.mlkit.vision.barcode.BarcodeScanning;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.face.FaceDetection;
+import com.google.mlkit.vision.face.FaceDetector;
+import com.google.mlkit.vision.face.FaceDetectorOptions;
+import com.google.mlkit.vision.objects.ObjectDetection;
+import com.google.mlkit.vision.objects.ObjectDetector;
+import com.google.mlkit.vision.objects.defaults.ObjectDetectorOptions;
+import com.google.mlkit.vision.text.TextRecognition;
+import com.google.mlkit.vision.text.TextRecognizer;
+import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The ML Kit clients the screens use, served from the application's {@link DetectorRegistry}.
+ * Each method builds its registry key from the options it applies, so screens asking for the
+ * same configuration share one warm client. Close the returned handle in onDestroy.
+ */
+public final class DetectorClients {
+    private static final String TAG = "DetectorClients";
+    // Size of the blank frame used to load a new client's model before it goes live
+    private static final int WARMUP_WIDTH = 320;
+    private static final int WARMUP_HEIGHT = 240;
+    private static final long WARMUP_TIMEOUT_MS = 2000;
+
+    private DetectorClients() {
+    }
+
+    /**
+     * Tracking face detector that computes only the {@link FeatureDemand} flags asked for.
+     * Landmarks and classification each add noticeably to detection time, so screens pass
+     * what they currently show rather than everything they might.
+     */
+    public static DetectorRegistry.Handle<FaceDetector> face(Context context, int features) {
+        boolean landmarks = (features & FeatureDemand.LANDMARKS) != 0;
+        boolean classification = (features & FeatureDemand.CLASSIFICATION) != 0;
+        String key = "face/boxes" + (landmarks ? "+landmarks" : "")
+                + (classification ? "+classification" : "");
+        return registry(context).acquire(key, () -> FaceDetection.getClient(
+                new FaceDetectorOptions.Builder()
+                        .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_FAST)
+                        .setLandmarkMode(landmarks
+                                ? FaceDetectorOptions.LANDMARK_MODE_ALL
+                                : FaceDetectorOptions.LANDMARK_MODE_NONE)
+                        .setClassificationMode(classification
+                                ? FaceDetectorOptions.CLASSIFICATION_MODE_ALL
+                                : FaceDetectorOptions.CLASSIFICATION_MODE_NONE)
+                        .setMinFaceSize(0.15f)
+                        .enableTracking()
+                        .build()),
+                detector -> awaitWarmUp(detector.process(blankFrame())));
+    }
+
+    /**
+     * Object detector with classification.
+     */
+    public static DetectorRegistry.Handle<ObjectDetector> objects(Context context,
+                                                                 boolean streamMode,
+                                                                 boolean multipleObjects) {
+        String key = "objects/" + (streamMode ? "stream" : "single")
+                + (multipleObjects ? "/multiple" : "/one");
+        return registry(context).acquire(key, () -> {
+            ObjectDetectorOptions.Builder builder = new ObjectDetectorOptions.Builder()
+                    .setDetectorMode(streamMode
+                            ? ObjectDetectorOptions.STREAM_MODE
+                            : ObjectDetectorOptions.SINGLE_IMAGE_MODE)
+                    .enableClassification();
+            if (multipleObjects) {
+                builder.enableMultipleObjects();
+            }
+            return ObjectDetection.getClient(builder.build());
+        }, detector -> awaitWarmUp(detector.process(blankFrame())));
+    }
+
+    /**
+     * Barcode scanner for the given mask of ML Kit format constants.
+     */
+    public static DetectorRegistry.Handle<BarcodeScanner> barcode(Context context, int formats) {
+        // Format constants are single bits, so a mask passes straight through as one format
+        return registry(context).acquire("barcode/0x" + Integer.toHexString(formats),
+                () -> BarcodeScanning.getClient(new BarcodeScannerOptions.Builder()
+                        .setBarcodeFormats(formats)
+                        .build()),
+                scanner -> awaitWarmUp(scanner.process(blankFrame())));
+    }
+
+    /**
+     * Latin text recognizer.
+     */
+    public static DetectorRegistry.Handle<TextRecognizer> text(Context context) {
+        return registry(context).acquire("text/latin",
+                () -> TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS),
+                recognizer -> awaitWarmUp(recognizer.process(blankFrame())));
+    }
+
+    /**
+     * Blocks until the registry has warmed {@code handle}'s client, so a background swap
+     * never installs a cold one. Must not be called on the main thread.
+     */
+    public static void awaitWarmUp(DetectorRegistry.Handle<?> handle) {
+        try {
+            if (!handle.awaitWarmUp(WARMUP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Warm-up of " + handle.getKey() + " timed out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Blocks until a warm-up Task finishes. Must not be called on the main thread.
+     */
+    private static void awaitWarmUp(Task<?> task) {
+        try {
+            Tasks.await(task, WARMUP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // A cold client still works, the first live frame just pays for the load
+            Log.w(TAG, "Detector warm-up failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static InputImage blankFrame() {
+        return InputImage.fromByteArray(new byte[WARMUP_WIDTH * WARMUP_HEIGHT * 3 / 2],
+                WARMUP_WIDTH, WARMUP_HEIGHT, 0, InputImage.IMAGE_FORMAT_NV21);
+    }
+
+    private static DetectorRegistry registry(Context context) {
+        return ((MlKitApplication) context.getApplicationContext()).getDetectorRegistry();
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.mlkitapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide cache of detector clients, keyed by a string that names the client type and
+ * every option it was built with. The first {@link #acquire} for a key creates the client
+ * and queues its warm-up; later acquires share it, and any of them can
+ * {@linkplain Handle#awaitWarmUp wait} for that warm-up to finish. When the last handle is
+ * released the client stays open, so re-entering a screen finds its model already loaded.
+ * Idle clients are closed once they have been unused for {@code idleTimeoutNanos} (checked
+ * on each acquire) or when {@link #evictAllIdle()} is called under memory pressure.
+ * A key must always be used with the same client type.
+ */
+public final class DetectorRegistry {
+
+    public interface Factory<C extends Closeable> {
+        C create();
+    }
+
+    /**
+     * Loads a fresh client's model, typically by running one blank frame through it.
+     * Runs on the registry's warm-up executor and may block.
+     */
+    public interface Warmer<C extends Closeable> {
+        void warmUp(C client) throws Exception;
+    }
+
+    public interface WarmUpFailureListener {
+        /** Called on the warm-up executor when a {@link Warmer} throws. */
+        void onWarmUpFailed(String key, Exception e);
+    }
+
+    /**
+     * One reference to a shared client. Closing the handle releases the reference; the
+     * client itself is left to the registry. Closing twice has no effect.
+     */
+    public final class Handle<C extends Closeable> implements Closeable {
+        private final String key;
+        private final Entry entry;
+        private final C client;
+        private boolean released = false;
+
+        private Handle(String key, Entry entry, C client) {
+            this.key = key;
+            this.entry = entry;
+            this.client = client;
+        }
+
+        public C get() {
+            return client;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Blocks until the client's warm-up has finished, whichever acquire started it; a
+         * failed warm-up counts as finished. Must not be called on the main thread.
+         *
+         * @return false when the timeout passed first
+         */
+        public boolean awaitWarmUp(long timeout, TimeUnit unit) throws InterruptedException {
+            return entry.warmedUp.await(timeout, unit);
+        }
+
+        @Override
+        public void close() {
+            synchronized (DetectorRegistry.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                if (--entry.refs == 0) {
+                    entry.idleSinceNanos = clock.nanoTime();
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        final Closeable client;
+        final CountDownLatch warmedUp = new CountDownLatch(1);
+        int refs = 0;
+        long idleSinceNanos;
+
+        Entry(Closeable client) {
+            this.client = client;
+        }
+    }
+
+    private final Clock clock;
+    private final long idleTimeoutNanos;
+    private final Executor warmUpExecutor;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private volatile WarmUpFailureListener warmUpFailureListener;
+    private long hits = 0;
+    private long misses = 0;
+
+    public DetectorRegistry(Clock clock, long idleTimeoutNanos, Executor warmUpExecutor) {
+        if (idleTimeoutNanos <= 0) {
+            throw new IllegalArgumentException("idleTimeoutNanos must be positive");
+        }
+        this.clock = clock;
+        this.idleTimeoutNanos = idleTimeoutNanos;
+        this.warmUpExecutor = warmUpExecutor;
+    }
+
+    public void setWarmUpFailureListener(WarmUpFailureListener listener) {
+        warmUpFailureListener = listener;
+    }
+
+    /**
+     * Returns a handle on the client for {@code key}, creating and warming it if needed.
+     * {@code warmer} may be null for clients that need no warm-up.
+     */
+    public <C extends Closeable> Handle<C> acquire(String key, Factory<C> factory, Warmer<C> warmer) {
+        List<Closeable> evicted;
+        Entry entry;
+        boolean created = false;
+        synchronized (this) {
+            evicted = removeIdle(idleTimeoutNanos);
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(factory.create());
+                entries.put(key, entry);
+                created = true;
+                misses++;
+            } else {
+                hits++;
+            }
+            entry.refs++;
+        }
+        closeAll(evicted);
+        @SuppressWarnings("unchecked")
+        C client = (C) entry.client;
+        if (created) {
+            if (warmer == null) {
+                entry.warmedUp.countDown();
+            } else {
+                CountDownLatch warmedUp = entry.warmedUp;
+                warmUpExecutor.execute(() -> {
+                    try {
+                        warmer.warmUp(client);
+                    } catch (Exception e) {
+                        // A cold client still works; its first frame pays for the model load
+                        WarmUpFailureListener listener = warmUpFailureListener;
+                        if (listener != null) {
+                            listener.onWarmUpFailed(key, e);
+                        }
+                    } finally {
+                        warmedUp.countDown();
+                    }
+                });
+            }
+        }
+        return new Handle<>(key, entry, client);
+    }
+
+    /**
+     * Closes clients that have been idle for longer than the idle timeout.
+     *
+     * @return the number of clients closed
+     */
+    public int evictIdle() {
+        List<Closeable> evicted;
+        synchronized (this) {
+            evicted = removeIdle(idleTimeoutNanos);
+        }
+        closeAll(evicted);
+        return evicted.size();
+    }
+
+    /**
+     * Closes every client no screen is using, however recently it was released.
+     *
+     * @return the number of clients closed
+     */
+    public int evictAllIdle() {
+        List<Closeable> evicted;
+        synchronized (this) {
+            evicted = removeIdle(0);
+        }
+        closeAll(evicted);
+        return evicted.size();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private List<Closeable> removeIdle(long minIdleNanos) {
+        List<Closeable> evicted = new ArrayList<>();
+        long now = clock.nanoTime();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.refs == 0 && now - entry.idleSinceNanos >= minIdleNanos) {
+                evicted.add(entry.client);
+                iterator.remove();
+            }
+        }
+        return evicted;
+    }
+
+    private static void closeAll(List<Closeable> clients) {
+        for (Closeable client : clients) {
+            try {
+                client.close();
+            } catch (IOException ignored) {
+                // Detector clients do not throw from close(); nothing useful to do if one does
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "clients=" + entries.size() + " hits=" + hits + " misses=" + misses;
+    }
+}
@@ -6,22 +6,83 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.mlkit.vision.face.Face;
-
 import java.util.ArrayList;
 import java.util.List;
 
-public class FaceAdapter extends RecyclerView.Adapter<FaceAdapter.FaceViewHolder> {
-    
-    private List<Face> faceList = new ArrayList<>();
-    
-    public void updateFaces(List<Face> faces) {
-        this.faceList = new ArrayList<>(faces);
-        notifyDataSetChanged();
+/**
+ * Result list for the face screen, keyed by tracking ID. Rows hold probabilities at the
+ * one decimal they are shown with, and the diff against the previous list runs on a
+ * background thread, so a face whose numbers did not visibly change is not rebound.
+ */
+public class FaceAdapter extends ListAdapter<FaceAdapter.FaceRow, FaceAdapter.FaceViewHolder> {
+
+    private static final int MISSING = -1;
+
+    private static final DiffUtil.ItemCallback<FaceRow> DIFF =
+            new DiffUtil.ItemCallback<FaceRow>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull FaceRow a, @NonNull FaceRow b) {
+                    return a.key == b.key;
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull FaceRow a, @NonNull FaceRow b) {
+                    return a.number == b.number && a.smilingPermille == b.smilingPermille
+                            && a.rightEyeOpenPermille == b.rightEyeOpenPermille
+                            && a.leftEyeOpenPermille == b.leftEyeOpenPermille;
+                }
+            };
+
+    private boolean showClassification = true;
+
+    public FaceAdapter() {
+        super(DIFF);
+        setHasStableIds(true);
     }
-    
+
+    /**
+     * Shows or hides the probability lines, so the screen can run a detector without
+     * classification while nobody looks at them.
+     */
+    public void setShowClassification(boolean showClassification) {
+        if (this.showClassification != showClassification) {
+            this.showClassification = showClassification;
+            notifyItemRangeChanged(0, getItemCount());
+        }
+    }
+
+    /**
+     * Copies the frame into rows and submits them for diffing; the frame can be released
+     * as soon as this returns. Main thread only.
+     */
+    public void updateFaces(DetectionFrame frame) {
+        int count = frame.getCount();
+        int[] trackingIds = frame.getTrackingIds();
+        List<FaceRow> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Tracking ID if available, otherwise position-based
+            int number = trackingIds[i] != BoxTracker.NO_ID ? trackingIds[i] : i + 1;
+            rows.add(new FaceRow(frame.getStableKey(i), number,
+                    permille(frame.getAttribute(i, DetectionFrames.FACE_SMILING)),
+                    permille(frame.getAttribute(i, DetectionFrames.FACE_RIGHT_EYE_OPEN)),
+                    permille(frame.getAttribute(i, DetectionFrames.FACE_LEFT_EYE_OPEN))));
+        }
+        submitList(rows);
+    }
+
+    private static int permille(float probability) {
+        return Float.isNaN(probability) ? MISSING : Math.round(probability * 1000);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).key;
+    }
+
     @NonNull
     @Override
     public FaceViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -32,13 +93,24 @@ public class FaceAdapter extends RecyclerView.Adapter<FaceAdapter.FaceViewHolder
     
     @Override
     public void onBindViewHolder(@NonNull FaceViewHolder holder, int position) {
-        Face face = faceList.get(position);
-        holder.bind(face, position);
+        holder.bind(getItem(position), showClassification);
     }
-    
-    @Override
-    public int getItemCount() {
-        return faceList.size();
+
+    static final class FaceRow {
+        final long key;
+        final int number;
+        final int smilingPermille;
+        final int rightEyeOpenPermille;
+        final int leftEyeOpenPermille;
+
+        FaceRow(long key, int number, int smilingPermille, int rightEyeOpenPermille,
+                int leftEyeOpenPermille) {
+            this.key = key;
+            this.number = number;
+            this.smilingPermille = smilingPermille;
+            this.rightEyeOpenPermille = rightEyeOpenPermille;
+            this.leftEyeOpenPermille = leftEyeOpenPermille;
+        }
     }
     
     static class FaceViewHolder extends RecyclerView.ViewHolder {
@@ -55,38 +127,22 @@ public class FaceAdapter extends RecyclerView.Adapter<FaceAdapter.FaceViewHolder
             tvLeftEyeOpen = itemView.findViewById(R.id.tv_left_eye_open);
         }
         
-        public void bind(Face face, int position) {
-            // Set face ID (position-based) or tracking ID if available
-            Integer trackingId = face.getTrackingId();
-            if (trackingId != null) {
-                tvFaceId.setText("Face #" + trackingId);
-            } else {
-                tvFaceId.setText("Face #" + (position + 1));
-            }
-            
-            // Smile probability
-            if (face.getSmilingProbability() != null) {
-                float smileProb = face.getSmilingProbability() * 100;
-                tvSmileProbability.setText(String.format("Smile probability: %.1f%%", smileProb));
-            } else {
-                tvSmileProbability.setText("Smile probability: --");
-            }
-            
-            // Right eye open probability
-            if (face.getRightEyeOpenProbability() != null) {
-                float rightEyeProb = face.getRightEyeOpenProbability() * 100;
-                tvRightEyeOpen.setText(String.format("Right eye open: %.1f%%", rightEyeProb));
-            } else {
-                tvRightEyeOpen.setText("Right eye open: --");
-            }
-            
-            // Left eye open probability
-            if (face.getLeftEyeOpenProbability() != null) {
-                float leftEyeProb = face.getLeftEyeOpenProbability() * 100;
-                tvLeftEyeOpen.setText(String.format("Left eye open: %.1f%%", leftEyeProb));
-            } else {
-                tvLeftEyeOpen.setText("Left eye open: --");
+        public void bind(FaceRow row, boolean showClassification) {
+            tvFaceId.setText("Face #" + row.number);
+            int visibility = showClassification ? View.VISIBLE : View.GONE;
+            tvSmileProbability.setVisibility(visibility);
+            tvRightEyeOpen.setVisibility(visibility);
+            tvLeftEyeOpen.setVisibility(visibility);
+            if (!showClassification) {
+                return;
             }
+            tvSmileProbability.setText("Smile probability: " + percent(row.smilingPermille));
+            tvRightEyeOpen.setText("Right eye open: " + percent(row.rightEyeOpenPermille));
+            tvLeftEyeOpen.setText("Left eye open: " + percent(row.leftEyeOpenPermille));
+        }
+
+        private static String percent(int permille) {
+            return permille == MISSING ? "--" : String.format("%.1f%%", permille / 10f);
         }
     }
 }
\ No newline at end of file
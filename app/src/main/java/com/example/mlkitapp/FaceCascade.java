@@ -0,0 +1,278 @@
+package com.example.mlkitapp;
+
+import java.util.Arrays;
+
+/**
+ * Schedules and merges a two-detector face cascade: a fast boxes-only detector runs on every
+ * frame and a full-feature detector (landmarks, classification) only every
+ * {@code interval} frames, or on the next frame after a tracking ID it has not covered yet
+ * appears. Only one full pass is in flight at a time.
+ * <p>
+ * The two detectors number their faces independently, so a full pass is matched to the fast
+ * faces of the same frame by box overlap. Its attributes, and its landmarks as fractions of
+ * the face box, are then cached under the fast detector's tracking IDs and copied into every
+ * later fast frame, where the landmarks follow the fast box; copies are marked
+ * {@linkplain DetectionFrame#isCarriedOver carried over}. Faces that leave the fast frame
+ * leave the cache. Thread-safe: frames are begun on the analyzer thread and merged on
+ * whichever thread completes the detectors' Tasks.
+ */
+public final class FaceCascade {
+    private final int interval;
+    private final float iouThreshold;
+    private final int attributeCount;
+    private final int pointCount;
+
+    private long frameNumber = 0;
+    // Frame whose full pass is in flight, or -1
+    private long fullPassFrame = -1;
+    private long lastAppliedFrame = 0;
+    private int framesSinceFull;
+    private boolean uncoveredFaceSeen = false;
+
+    private int cacheCount = 0;
+    private final int[] cacheIds;
+    private final float[] cacheAttributes;
+    // x, y per landmark as fractions of the face box; NaN when missing
+    private final float[] cachePoints;
+    // Per fast face, whether the current full pass matched it
+    private final boolean[] matched;
+    // Per full face, whether a fast face already took it
+    private final boolean[] claimed;
+
+    public FaceCascade(int interval, float iouThreshold, int maxFaces, int attributeCount,
+                       int pointCount) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval must be at least 1");
+        }
+        this.interval = interval;
+        this.iouThreshold = iouThreshold;
+        this.attributeCount = attributeCount;
+        this.pointCount = pointCount;
+        // The first frame gets a full pass
+        framesSinceFull = interval;
+        cacheIds = new int[maxFaces];
+        cacheAttributes = new float[maxFaces * attributeCount];
+        cachePoints = new float[maxFaces * pointCount * 2];
+        matched = new boolean[maxFaces];
+        claimed = new boolean[maxFaces];
+    }
+
+    /**
+     * Numbers a new frame and decides whether it gets a full pass; see {@link #isFullPass}.
+     */
+    public synchronized long beginFrame() {
+        frameNumber++;
+        framesSinceFull++;
+        if (fullPassFrame < 0 && (uncoveredFaceSeen || framesSinceFull >= interval)) {
+            fullPassFrame = frameNumber;
+            framesSinceFull = 0;
+            uncoveredFaceSeen = false;
+        }
+        return frameNumber;
+    }
+
+    /**
+     * Whether {@code frame} should also run the full detector. Every frame for which this
+     * is true must end with {@link #merge} or {@link #endFullPass}.
+     */
+    public synchronized boolean isFullPass(long frame) {
+        return frame == fullPassFrame;
+    }
+
+    /**
+     * Gives up on a full pass without results, for example when the fast detector failed.
+     */
+    public synchronized void endFullPass(long frame) {
+        if (frame == fullPassFrame) {
+            fullPassFrame = -1;
+        }
+    }
+
+    /**
+     * Completes a full pass: copies the features of each {@code full} face onto the fast
+     * face it overlaps most, caches them, and fills the remaining fast faces from the cache.
+     * {@code full} is null when the full detector failed or was skipped.
+     *
+     * @return false when a later frame was already applied, so this one should be dropped;
+     *         its features are cached all the same
+     */
+    public synchronized boolean merge(DetectionFrame fast, DetectionFrame full, long frame) {
+        endFullPass(frame);
+        int count = Math.min(fast.getCount(), matched.length);
+        Arrays.fill(matched, false);
+        if (full != null) {
+            int fullCount = Math.min(full.getCount(), claimed.length);
+            Arrays.fill(claimed, false);
+            float[] fastBoxes = fast.getBoxes();
+            float[] fullBoxes = full.getBoxes();
+            for (int i = 0; i < count; i++) {
+                int best = -1;
+                float bestIou = iouThreshold;
+                for (int j = 0; j < fullCount; j++) {
+                    if (claimed[j]) {
+                        continue;
+                    }
+                    float iou = BoxTracker.iou(fastBoxes[i * 4], fastBoxes[i * 4 + 1],
+                            fastBoxes[i * 4 + 2], fastBoxes[i * 4 + 3], fullBoxes[j * 4],
+                            fullBoxes[j * 4 + 1], fullBoxes[j * 4 + 2], fullBoxes[j * 4 + 3]);
+                    if (iou >= bestIou) {
+                        best = j;
+                        bestIou = iou;
+                    }
+                }
+                if (best >= 0) {
+                    claimed[best] = true;
+                    matched[i] = true;
+                    copyFeatures(full, best, fast, i);
+                }
+            }
+        }
+        // Tracked faces this pass covered are cached, even without a match, so a face the
+        // full detector misses does not trigger a full pass on every frame
+        int[] ids = fast.getTrackingIds();
+        for (int i = 0; i < count; i++) {
+            int id = ids[i];
+            if (id != BoxTracker.NO_ID && (matched[i] || find(id) < 0)) {
+                store(id, fast, i);
+                matched[i] = true;
+            }
+        }
+        return fill(fast, frame);
+    }
+
+    /**
+     * Fills a frame that had no full pass with cached features.
+     *
+     * @return false when a later frame was already applied, so this one should be dropped
+     */
+    public synchronized boolean apply(DetectionFrame fast, long frame) {
+        Arrays.fill(matched, false);
+        return fill(fast, frame);
+    }
+
+    /**
+     * Forgets every cached face, so each gets a fresh full pass; for when the full detector
+     * starts providing different features.
+     */
+    public synchronized void clear() {
+        cacheCount = 0;
+    }
+
+    private boolean fill(DetectionFrame fast, long frame) {
+        boolean stale = frame < lastAppliedFrame;
+        int count = Math.min(fast.getCount(), matched.length);
+        int[] ids = fast.getTrackingIds();
+        for (int i = 0; i < count; i++) {
+            if (matched[i] || ids[i] == BoxTracker.NO_ID) {
+                continue;
+            }
+            int slot = find(ids[i]);
+            if (slot >= 0) {
+                load(slot, fast, i);
+            } else if (!stale) {
+                uncoveredFaceSeen = true;
+            }
+        }
+        if (stale) {
+            return false;
+        }
+        lastAppliedFrame = frame;
+        evictAbsent(ids, count);
+        return true;
+    }
+
+    private void copyFeatures(DetectionFrame from, int fromIndex, DetectionFrame to,
+                              int toIndex) {
+        for (int a = 0; a < attributeCount; a++) {
+            to.setAttribute(toIndex, a, from.getAttribute(fromIndex, a));
+        }
+        float[] fromBoxes = from.getBoxes();
+        float[] toBoxes = to.getBoxes();
+        int f = fromIndex * 4;
+        int t = toIndex * 4;
+        for (int p = 0; p < pointCount; p++) {
+            float u = fraction(from.getPointX(fromIndex, p), fromBoxes[f], fromBoxes[f + 2]);
+            float v = fraction(from.getPointY(fromIndex, p), fromBoxes[f + 1], fromBoxes[f + 3]);
+            to.setPoint(toIndex, p, toBoxes[t] + u * (toBoxes[t + 2] - toBoxes[t]),
+                    toBoxes[t + 1] + v * (toBoxes[t + 3] - toBoxes[t + 1]));
+        }
+    }
+
+    private void store(int id, DetectionFrame frame, int index) {
+        int slot = find(id);
+        if (slot < 0) {
+            if (cacheCount == cacheIds.length) {
+                return;
+            }
+            slot = cacheCount++;
+            cacheIds[slot] = id;
+        }
+        for (int a = 0; a < attributeCount; a++) {
+            cacheAttributes[slot * attributeCount + a] = frame.getAttribute(index, a);
+        }
+        float[] boxes = frame.getBoxes();
+        int b = index * 4;
+        int c = slot * pointCount * 2;
+        for (int p = 0; p < pointCount; p++) {
+            cachePoints[c + p * 2] = fraction(frame.getPointX(index, p), boxes[b], boxes[b + 2]);
+            cachePoints[c + p * 2 + 1] =
+                    fraction(frame.getPointY(index, p), boxes[b + 1], boxes[b + 3]);
+        }
+    }
+
+    private void load(int slot, DetectionFrame frame, int index) {
+        frame.setCarriedOver(index);
+        for (int a = 0; a < attributeCount; a++) {
+            frame.setAttribute(index, a, cacheAttributes[slot * attributeCount + a]);
+        }
+        float[] boxes = frame.getBoxes();
+        int b = index * 4;
+        int c = slot * pointCount * 2;
+        for (int p = 0; p < pointCount; p++) {
+            // NaN fractions stay NaN, so missing landmarks stay missing
+            frame.setPoint(index, p,
+                    boxes[b] + cachePoints[c + p * 2] * (boxes[b + 2] - boxes[b]),
+                    boxes[b + 1] + cachePoints[c + p * 2 + 1] * (boxes[b + 3] - boxes[b + 1]));
+        }
+    }
+
+    private int find(int id) {
+        for (int slot = 0; slot < cacheCount; slot++) {
+            if (cacheIds[slot] == id) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void evictAbsent(int[] ids, int count) {
+        int kept = 0;
+        for (int slot = 0; slot < cacheCount; slot++) {
+            if (contains(ids, count, cacheIds[slot])) {
+                if (kept != slot) {
+                    cacheIds[kept] = cacheIds[slot];
+                    System.arraycopy(cacheAttributes, slot * attributeCount, cacheAttributes,
+                            kept * attributeCount, attributeCount);
+                    System.arraycopy(cachePoints, slot * pointCount * 2, cachePoints,
+                            kept * pointCount * 2, pointCount * 2);
+                }
+                kept++;
+            }
+        }
+        cacheCount = kept;
+    }
+
+    private static boolean contains(int[] ids, int count, int id) {
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static float fraction(float value, float low, float high) {
+        float extent = high - low;
+        return extent > 0f ? (value - low) / extent : Float.NaN;
+    }
+}
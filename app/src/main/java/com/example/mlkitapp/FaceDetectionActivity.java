@@ -4,18 +4,16 @@ import android.Manifest;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.util.Log;
-import android.util.Size;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.Camera;
 import androidx.camera.core.CameraSelector;
-import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.core.ImageAnalysis;
-import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
@@ -24,31 +22,62 @@ import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.mlkit.vision.common.InputImage;
 import com.google.mlkit.vision.face.Face;
-import com.google.mlkit.vision.face.FaceDetection;
 import com.google.mlkit.vision.face.FaceDetector;
-import com.google.mlkit.vision.face.FaceDetectorOptions;
 
+import java.io.File;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-@androidx.annotation.OptIn(markerClass = ExperimentalGetImage.class)
 public class FaceDetectionActivity extends AppCompatActivity {
     private static final String TAG = "FaceDetectionActivity";
     private static final int REQUEST_CODE_PERMISSIONS = 10;
     private static final String[] REQUIRED_PERMISSIONS = new String[]{Manifest.permission.CAMERA};
+    private static final float TARGET_ANALYSIS_FPS = 15f;
+    // The list is for reading, so it refreshes slower than the overlay
+    private static final float MAX_LIST_UPDATES_PER_SECOND = 8f;
+    // Probabilities flicker frame to frame; average them per tracked face
+    private static final int EXPECTED_FACES = 8;
+    private static final float FACE_SMOOTHING = 0.3f;
+    private static final long FACE_STATE_TTL_NANOS = 1_000_000_000L;
+    // Parts of the screen that ask the detector for optional outputs
+    private static final int DEMAND_OVERLAY = 0;
+    private static final int DEMAND_LIST = 1;
+    // Cascade: boxes every frame, landmarks and classification every few frames or for new faces
+    private static final int FULL_PASS_INTERVAL = 5;
+    private static final float CASCADE_IOU_THRESHOLD = 0.4f;
+    // Analysis sizes to choose from at runtime; faces below the minimum lose landmarks first
+    private static final int[][] ANALYSIS_RESOLUTIONS = {{240, 320}, {480, 640}, {720, 960}};
+    private static final int INITIAL_RESOLUTION = 1;
+    private static final float MIN_FACE_PIXELS = 80f;
 
     private PreviewView previewView;
     private FaceDetectionOverlay faceOverlay;
     private Camera camera;
-    private ExecutorService cameraExecutor;
-    private FaceDetector faceDetector;
-    private boolean showLandmarks = false;
-    private boolean isPaused = false;
+    private FrameAnalysisPipeline analysisPipeline;
+    private FrameAdmissionController admissionController;
+    // Boxes-only detector that runs on every frame
+    private DetectorRegistry.Handle<FaceDetector> boxDetectorHandle;
+    private FaceDetector boxDetector;
+    // Full-feature detector for the cascade's occasional passes, rebuilt when demand changes
+    private SwappableClient<DetectorRegistry.Handle<FaceDetector>> featureDetector;
+    // Features the installed feature detector provides; no full passes while 0
+    private volatile int featureDetectorFeatures;
+    // Builds and warms replacement detectors off the main thread
+    private final ExecutorService detectorSetupExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "DetectorSetup");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final FeatureDemand featureDemand = new FeatureDemand(2);
+    private boolean showFeatures = false;
     
     // UI elements
     private TextView tvFaceCount;
@@ -56,6 +85,16 @@ public class FaceDetectionActivity extends AppCompatActivity {
     private RecyclerView rvFaces;
     private FaceAdapter faceAdapter;
     private boolean isFrontFacing = true;
+    // Results are copied into these frames off the main thread and recycled
+    private final DetectionFramePool framePool = DetectionFrames.newFacePool();
+    private final DetectionFramePool fullPassPool = DetectionFrames.newFacePool();
+    private final FaceCascade cascade = new FaceCascade(FULL_PASS_INTERVAL,
+            CASCADE_IOU_THRESHOLD, DetectionFrames.MAX_FACES, DetectionFrames.FACE_ATTRIBUTE_COUNT,
+            DetectionFrames.FACE_LANDMARKS.length);
+    // Guarded by itself: updated on the detector's completion threads
+    private final FaceStateStore faceStates = new FaceStateStore(EXPECTED_FACES,
+            DetectionFrames.FACE_ATTRIBUTE_COUNT, FACE_SMOOTHING, FACE_STATE_TTL_NANOS);
+    private ThrottledFrameFeed listFeed;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -74,34 +113,43 @@ public class FaceDetectionActivity extends AppCompatActivity {
         faceAdapter = new FaceAdapter();
         rvFaces.setLayoutManager(new LinearLayoutManager(this));
         rvFaces.setAdapter(faceAdapter);
+        listFeed = new ThrottledFrameFeed(rvFaces, MAX_LIST_UPDATES_PER_SECOND, this::updateList);
+        faceOverlay.setFrontFacing(isFrontFacing);
 
-        // Set up ML Kit Face Detector with appropriate options
-        FaceDetectorOptions options = new FaceDetectorOptions.Builder()
-                .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_FAST)
-                .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_ALL)
-                .setClassificationMode(FaceDetectorOptions.CLASSIFICATION_MODE_ALL)
-                .setMinFaceSize(0.15f)
-                .enableTracking()
-                .build();
-
-        faceDetector = FaceDetection.getClient(options);
+        // Set up ML Kit Face Detectors with tracking, and features only once they are shown
+        applyShowFeatures();
+        boxDetectorHandle = DetectorClients.face(this, 0);
+        boxDetector = boxDetectorHandle.get();
+        featureDetectorFeatures = featureDemand.get();
+        featureDetector = new SwappableClient<>(
+                DetectorClients.face(this, featureDetectorFeatures));
+        FaceStage faceStage = new FaceStage();
+        analysisPipeline = new FrameAnalysisPipeline(faceStage);
+        admissionController = new FrameAdmissionController(Clock.SYSTEM, TARGET_ANALYSIS_FPS);
+        analysisPipeline.setResolutionController(new ResolutionController(
+                ANALYSIS_RESOLUTIONS, INITIAL_RESOLUTION, TARGET_ANALYSIS_FPS, MIN_FACE_PIXELS),
+                admissionController);
+        analysisPipeline.setAdmissionController(faceStage, admissionController);
+        faceOverlay.setDrawLatencyHistogram(analysisPipeline.getLatencyRegistry()
+                .histogram("FaceOverlay" + LatencyRegistry.DRAW));
 
         // Set up button listeners
         btnToggleFeatures.setOnClickListener(v -> {
-            showLandmarks = !showLandmarks;
-            faceOverlay.setShowLandmarks(showLandmarks);
-            btnToggleFeatures.setText(showLandmarks ? "Hide Features" : "Show Features");
+            showFeatures = !showFeatures;
+            if (applyShowFeatures()) {
+                setupFaceDetector();
+            }
         });
 
         btnCaptureFrame.setOnClickListener(v -> {
-            if (isPaused) {
+            if (analysisPipeline.isPaused()) {
                 // Resume analysis
-                isPaused = false;
+                analysisPipeline.setPaused(false);
                 faceOverlay.resumeAnalysis();
                 btnCaptureFrame.setText("Capture Frame");
             } else {
                 // Pause analysis
-                isPaused = true;
+                analysisPipeline.setPaused(true);
                 faceOverlay.pauseAnalysis();
                 btnCaptureFrame.setText("Resume");
             }
@@ -113,8 +161,44 @@ public class FaceDetectionActivity extends AppCompatActivity {
         } else {
             ActivityCompat.requestPermissions(this, REQUIRED_PERMISSIONS, REQUEST_CODE_PERMISSIONS);
         }
+    }
+
+    /**
+     * Shows or hides landmarks and probabilities and records what the detector must provide.
+     *
+     * @return true when the detector needs rebuilding
+     */
+    private boolean applyShowFeatures() {
+        faceOverlay.setShowLandmarks(showFeatures);
+        faceAdapter.setShowClassification(showFeatures);
+        btnToggleFeatures.setText(showFeatures ? "Hide Features" : "Show Features");
+        boolean overlayChanged = featureDemand.set(DEMAND_OVERLAY,
+                showFeatures ? FeatureDemand.LANDMARKS : 0);
+        boolean listChanged = featureDemand.set(DEMAND_LIST,
+                showFeatures ? FeatureDemand.CLASSIFICATION : 0);
+        return overlayChanged || listChanged;
+    }
 
-        cameraExecutor = Executors.newSingleThreadExecutor();
+    /**
+     * Replaces the feature detector with one that computes what the screen now shows. The
+     * new detector is built and warmed on a background thread while the old one keeps
+     * serving frames, so toggling features never stalls the preview; until the swap, faces
+     * simply arrive without the new outputs.
+     */
+    private void setupFaceDetector() {
+        int features = featureDemand.get();
+        long generation = featureDetector.beginSwap();
+        detectorSetupExecutor.execute(() -> {
+            DetectorRegistry.Handle<FaceDetector> detector = DetectorClients.face(this, features);
+            // Waits for the registry's warm-up, whether this acquire or an earlier one started it
+            DetectorClients.awaitWarmUp(detector);
+            if (featureDetector.completeSwap(generation, detector)) {
+                featureDetectorFeatures = features;
+                // Cached faces were covered with the old features; give them a new pass
+                cascade.clear();
+                Log.d(TAG, "Face detector replaced with " + detector.getKey());
+            }
+        });
     }
 
     private void startCamera() {
@@ -130,19 +214,15 @@ public class FaceDetectionActivity extends AppCompatActivity {
                 Preview preview = new Preview.Builder().build();
                 preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
-                // Image analysis use case
-                ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                        .setTargetResolution(new Size(480, 640))
-                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                        .build();
-
-                imageAnalysis.setAnalyzer(cameraExecutor, this::processImageForFaceDetection);
-
                 // Select front camera as a default
                 CameraSelector cameraSelector = new CameraSelector.Builder()
                         .requireLensFacing(CameraSelector.LENS_FACING_FRONT)
                         .build();
 
+                // Image analysis use case
+                ImageAnalysis imageAnalysis =
+                        analysisPipeline.createImageAnalysis(cameraProvider, this, cameraSelector);
+
                 // Unbind use cases before rebinding
                 cameraProvider.unbindAll();
 
@@ -156,50 +236,121 @@ public class FaceDetectionActivity extends AppCompatActivity {
         }, ContextCompat.getMainExecutor(this));
     }
 
-    @ExperimentalGetImage
-    private void processImageForFaceDetection(ImageProxy imageProxy) {
-        try {
-            if (isPaused || imageProxy.getImage() == null) {
-                imageProxy.close();
+    private void updateList(DetectionFrame frame) {
+        tvFaceCount.setText("Faces detected: " + frame.getCount());
+        faceAdapter.updateFaces(frame);
+    }
+
+    private class FaceStage implements FrameAnalysisPipeline.DetectorStage<DetectionFrame> {
+        @Override
+        public Task<DetectionFrame> process(InputImage image) {
+            long number = cascade.beginFrame();
+            boolean fullPass = cascade.isFullPass(number);
+            Task<DetectionFrame> boxes;
+            try {
+                boxes = DetectionFrames.faces(boxDetector.process(image), framePool);
+            } catch (RuntimeException e) {
+                // Otherwise the cascade would wait on this full pass forever
+                cascade.endFullPass(number);
+                throw e;
+            }
+            if (!fullPass || featureDetectorFeatures == 0) {
+                return boxes.continueWith(Runnable::run,
+                        done -> finishFrame(boxes, null, number, fullPass));
+            }
+            Task<DetectionFrame> features;
+            try {
+                features = DetectionFrames.faces(processWithFeatures(image), fullPassPool);
+            } catch (RuntimeException e) {
+                // Deliver the boxes without features; the boxes Task already owns a frame
+                Log.w(TAG, "Full face pass failed to start", e);
+                return boxes.continueWith(Runnable::run,
+                        done -> finishFrame(boxes, null, number, true));
+            }
+            // Both read the same image, which stays open until the merged Task completes
+            return Tasks.whenAllComplete(boxes, features).continueWith(Runnable::run,
+                    done -> finishFrame(boxes, features, number, true));
+        }
+
+        private Task<List<Face>> processWithFeatures(InputImage image) {
+            SwappableClient.Lease<DetectorRegistry.Handle<FaceDetector>> lease =
+                    featureDetector.acquire();
+            if (lease == null) {
+                throw new IllegalStateException("Face detector is closed");
+            }
+            Task<List<Face>> task;
+            try {
+                task = lease.get().get().process(image);
+            } catch (RuntimeException e) {
+                lease.release();
+                throw e;
+            }
+            // Released inline on whichever thread completes the Task
+            task.addOnCompleteListener(Runnable::run, done -> lease.release());
+            return task;
+        }
+
+        /**
+         * Fills the boxes-only result with cascade features, on the completing thread.
+         * Returns null, dropping the result, when the pool was empty or a later frame was
+         * already delivered, as a full pass can finish after the frames that followed it.
+         */
+        private DetectionFrame finishFrame(Task<DetectionFrame> boxes,
+                                           @Nullable Task<DetectionFrame> features,
+                                           long number, boolean fullPass) {
+            DetectionFrame full = features != null && features.isSuccessful()
+                    ? features.getResult() : null;
+            try {
+                if (!boxes.isSuccessful() || boxes.getResult() == null) {
+                    cascade.endFullPass(number);
+                    // Rethrows the box detector's failure, if it failed
+                    return boxes.getResult();
+                }
+                DetectionFrame result = boxes.getResult();
+                boolean current = fullPass
+                        ? cascade.merge(result, full, number)
+                        : cascade.apply(result, number);
+                if (!current) {
+                    result.release();
+                    return null;
+                }
+                return result;
+            } finally {
+                if (full != null) {
+                    full.release();
+                }
+            }
+        }
+
+        @Override
+        public void onResult(DetectionFrame result, FrameMetadata frame) {
+            if (result == null) {
                 return;
             }
+            result.setImage(frame.getWidth(), frame.getHeight(),
+                    FrameAnalysisPipeline.captureTimeToNanoTime(frame.getTimestampNanos()));
+            // Smoothed before anyone else sees the frame, so the list and overlay agree
+            synchronized (faceStates) {
+                faceStates.update(result);
+            }
+            faceOverlay.publish(result);
+            listFeed.publish(result);
+            analysisPipeline.reportSubjectSize(result.getSmallestExtent());
+            result.release();
+        }
 
-            InputImage image = InputImage.fromMediaImage(
-                    imageProxy.getImage(),
-                    imageProxy.getImageInfo().getRotationDegrees()
-            );
-
-            faceDetector.process(image)
-                    .addOnSuccessListener(faces -> {
-                        if (!isPaused) {
-                            updateFaceUI(faces);
-                            faceOverlay.updateFaces(
-                                    faces,
-                                    imageProxy.getWidth(),
-                                    imageProxy.getHeight(),
-                                    isFrontFacing
-                            );
-                        }
-                        imageProxy.close();
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Face detection failed", e);
-                        imageProxy.close();
-                    });
-        } catch (Exception e) {
-            Log.e(TAG, "Error processing image for face detection", e);
-            imageProxy.close();
+        @Override
+        public void onDiscarded(DetectionFrame result) {
+            if (result != null) {
+                result.release();
+            }
         }
-    }
 
-    private void updateFaceUI(List<Face> faces) {
-        runOnUiThread(() -> {
-            // Update face count text
-            tvFaceCount.setText("Faces detected: " + faces.size());
-            
-            // Update the RecyclerView with all faces
-            faceAdapter.updateFaces(faces);
-        });
+        @Override
+        public Executor getResultExecutor() {
+            // The overlay and list pull the newest frame themselves
+            return Runnable::run;
+        }
     }
 
     private boolean allPermissionsGranted() {
@@ -231,8 +382,15 @@ public class FaceDetectionActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (cameraExecutor != null) {
-            cameraExecutor.shutdown();
-        }
+        // Drop late results; the analyzer thread itself is shared across screens
+        analysisPipeline.setPaused(true);
+        Log.d(TAG, "Frame admission: " + admissionController.getStats());
+        analysisPipeline.dumpLatency(new File(getExternalFilesDir(null),
+                "latency/face-" + System.currentTimeMillis() + ".txt"));
+        // Releases the current detector once in-flight frames finish, and drops pending swaps
+        featureDetector.close();
+        detectorSetupExecutor.shutdown();
+        boxDetectorHandle.close();
+        listFeed.close();
     }
 }
\ No newline at end of file
@@ -4,27 +4,48 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Rect;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.View;
 
 import androidx.annotation.Nullable;
 
-import com.google.mlkit.vision.face.Face;
-import com.google.mlkit.vision.face.FaceLandmark;
-
-import java.util.ArrayList;
-import java.util.List;
-
 public class FaceDetectionOverlay extends View {
-    private List<Face> faces = new ArrayList<>();
+    // Boxes keep moving this long past their capture time, enough to span a slow detector
+    private static final long MAX_EXTRAPOLATION_NANOS = 300_000_000L;
+    // A new result's correction is eased in over this long instead of jumping
+    private static final long BLEND_NANOS = 100_000_000L;
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+
+    // The result on screen; the overlay holds a share of it until the next one arrives
+    @Nullable
+    private DetectionFrame frame;
     private boolean showLandmarks = false;
     private final Paint boundsPaint;
     private final Paint landmarkPaint;
-    private int previewWidth;
-    private int previewHeight;
     private boolean isFrontFacing = true;
     private boolean isAnalyzing = true;
+    private LatencyHistogram drawLatency;
+    // Newest result not drawn yet, handed over from detector threads
+    private final LatestValueChannel<DetectionFrame> pendingFrame = new LatestValueChannel<>();
+    // When the newest result was published, for the draw latency histogram
+    private volatile long publishedAtNanos = 0;
+    private final Runnable invalidateOnAnimation = this::postInvalidateOnAnimation;
+
+    // Moves boxes between results so they redraw smoothly at display rate
+    private final BoxInterpolator interpolator =
+            new BoxInterpolator(MAX_EXTRAPOLATION_NANOS, BLEND_NANOS, VELOCITY_SMOOTHING);
+    private final float[] drawnBox = new float[4];
+    // Maps the front camera mirror and batches boxes and landmarks per draw
+    private final OverlayRenderer renderer;
+    // Vsync time of the frame being drawn, or 0 when the draw was not from the callback
+    private long vsyncNanos = 0;
+    private boolean frameCallbackPosted = false;
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> {
+        frameCallbackPosted = false;
+        vsyncNanos = frameTimeNanos;
+        invalidate();
+    };
 
     public FaceDetectionOverlay(Context context) {
         this(context, null);
@@ -44,16 +65,49 @@ public class FaceDetectionOverlay extends View {
 
         landmarkPaint = new Paint();
         landmarkPaint.setColor(Color.RED);
-        landmarkPaint.setStyle(Paint.Style.FILL);
-        landmarkPaint.setStrokeWidth(8.0f);
+        // Landmarks are drawn as round points, so the stroke width is the dot's diameter
+        landmarkPaint.setStrokeCap(Paint.Cap.ROUND);
+        landmarkPaint.setStrokeWidth(16.0f);
+
+        renderer = new OverlayRenderer(landmarkPaint);
+    }
+
+    /**
+     * Hands the overlay a new result; may be called from any thread. The overlay takes its
+     * own share of the frame and picks up the newest one at its next draw, so results that
+     * arrive faster than the display refreshes are released unseen rather than queued.
+     * The caller keeps and releases its own share.
+     */
+    public void publish(DetectionFrame frame) {
+        publishedAtNanos = System.nanoTime();
+        DetectionFrames.handOff(frame, pendingFrame, invalidateOnAnimation);
+    }
+
+    /**
+     * Makes a frame taken from the channel the one on screen; the overlay already owns
+     * its share. Main thread only.
+     */
+    private void showFrame(DetectionFrame frame) {
+        interpolator.setImageSize(frame.getWidth(), frame.getHeight());
+        interpolator.update(frame.getTrackingIds(), frame.getBoxes(), frame.getCount(),
+                frame.getCaptureNanos(), System.nanoTime());
+
+        releaseFrame();
+        this.frame = frame;
     }
 
-    public void updateFaces(List<Face> faces, int previewWidth, int previewHeight, boolean isFrontFacing) {
-        this.faces = faces;
-        this.previewWidth = previewWidth;
-        this.previewHeight = previewHeight;
+    private void releaseFrame() {
+        if (frame != null) {
+            frame.release();
+            frame = null;
+        }
+    }
+
+    /**
+     * Mirrors boxes horizontally, as the front camera preview is mirrored.
+     */
+    public void setFrontFacing(boolean isFrontFacing) {
         this.isFrontFacing = isFrontFacing;
-        this.isAnalyzing = true;
         invalidate();
     }
 
@@ -62,8 +116,16 @@ public class FaceDetectionOverlay extends View {
         invalidate();
     }
 
+    /**
+     * Records the delay between a new result's publish and the draw that shows it.
+     */
+    public void setDrawLatencyHistogram(@Nullable LatencyHistogram histogram) {
+        this.drawLatency = histogram;
+    }
+
     public void pauseAnalysis() {
         isAnalyzing = false;
+        stopAnimating();
     }
 
     public void resumeAnalysis() {
@@ -71,57 +133,64 @@ public class FaceDetectionOverlay extends View {
     }
 
     @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-
-        if (!isAnalyzing || faces == null || faces.isEmpty()) return;
-
-        float scaleX = (float) getWidth() / previewWidth;
-        float scaleY = (float) getHeight() / previewHeight;
-
-        for (Face face : faces) {
-            // Draw face bounding box
-            Rect bounds = face.getBoundingBox();
-            float left = translateX(bounds.left, scaleX);
-            float top = translateY(bounds.top, scaleY);
-            float right = translateX(bounds.right, scaleX);
-            float bottom = translateY(bounds.bottom, scaleY);
-            
-            canvas.drawRect(left, top, right, bottom, boundsPaint);
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        stopAnimating();
+        releaseFrame();
+        DetectionFrames.drain(pendingFrame);
+    }
 
-            // Draw facial landmarks if enabled
-            if (showLandmarks) {
-                // Using correct int constants for FaceLandmark
-                drawLandmark(canvas, face.getLandmark(FaceLandmark.LEFT_EYE), scaleX, scaleY);
-                drawLandmark(canvas, face.getLandmark(FaceLandmark.RIGHT_EYE), scaleX, scaleY);
-                drawLandmark(canvas, face.getLandmark(FaceLandmark.NOSE_BASE), scaleX, scaleY);
-                drawLandmark(canvas, face.getLandmark(FaceLandmark.MOUTH_LEFT), scaleX, scaleY);
-                drawLandmark(canvas, face.getLandmark(FaceLandmark.MOUTH_RIGHT), scaleX, scaleY);
-                drawLandmark(canvas, face.getLandmark(FaceLandmark.LEFT_EAR), scaleX, scaleY);
-                drawLandmark(canvas, face.getLandmark(FaceLandmark.RIGHT_EAR), scaleX, scaleY);
-                drawLandmark(canvas, face.getLandmark(FaceLandmark.LEFT_CHEEK), scaleX, scaleY);
-                drawLandmark(canvas, face.getLandmark(FaceLandmark.RIGHT_CHEEK), scaleX, scaleY);
-            }
+    private void stopAnimating() {
+        if (frameCallbackPosted) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            frameCallbackPosted = false;
         }
     }
 
-    private void drawLandmark(Canvas canvas, @Nullable FaceLandmark landmark, float scaleX, float scaleY) {
-        if (landmark != null) {
-            float x = translateX(landmark.getPosition().x, scaleX);
-            float y = translateY(landmark.getPosition().y, scaleY);
-            canvas.drawCircle(x, y, 8f, landmarkPaint);
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        DetectionFrame next = pendingFrame.take();
+        if (next != null) {
+            if (drawLatency != null) {
+                drawLatency.record(System.nanoTime() - publishedAtNanos);
+            }
+            showFrame(next);
         }
-    }
+        long drawNanos = vsyncNanos != 0 ? vsyncNanos : System.nanoTime();
+        vsyncNanos = 0;
 
-    private float translateX(float x, float scaleX) {
-        if (isFrontFacing) {
-            return getWidth() - (x * scaleX);
-        } else {
-            return x * scaleX;
+        if (!isAnalyzing || frame == null || frame.getCount() == 0) return;
+
+        // Keep redrawing every vsync while any face is still moving
+        if (!frameCallbackPosted && interpolator.isMoving(drawNanos)) {
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+            frameCallbackPosted = true;
         }
-    }
 
-    private float translateY(float y, float scaleY) {
-        return y * scaleY;
+        OverlayBoxBuffer boxes = renderer.getBoxes();
+        boxes.setTransform(frame.getWidth(), frame.getHeight(), 0, isFrontFacing,
+                getWidth(), getHeight());
+        boxes.clear();
+        float[] detectedBoxes = frame.getBoxes();
+        for (int i = 0; i < frame.getCount(); i++) {
+            // Face bounding box where the face is estimated to be now
+            interpolator.boxAt(i, drawNanos, drawnBox, 0);
+            boxes.addBox(drawnBox[0], drawnBox[1], drawnBox[2], drawnBox[3], boundsPaint.getColor());
+
+            // Facial landmarks if enabled, moved along with the box
+            if (showLandmarks) {
+                float dx = drawnBox[0] - detectedBoxes[i * 4];
+                float dy = drawnBox[1] - detectedBoxes[i * 4 + 1];
+                for (int p = 0; p < frame.getPointsPerDetection(); p++) {
+                    float x = frame.getPointX(i, p);
+                    if (!Float.isNaN(x)) {
+                        boxes.addPoint(x + dx, frame.getPointY(i, p) + dy);
+                    }
+                }
+            }
+        }
+        renderer.drawBoxes(canvas, boundsPaint);
+        renderer.drawPoints(canvas, landmarkPaint);
     }
 }
\ No newline at end of file
@@ -0,0 +1,298 @@
+package com.example.mlkitapp;
+
+import java.util.Arrays;
+
+/**
+ * Per-face state across detector results, keyed by tracking ID: EWMA-smoothed attributes
+ * (such as smile probability), first- and last-seen capture times, and the box centre's
+ * velocity. {@link #update} smooths a face frame and writes the smoothed attributes back
+ * into it, so every consumer the frame is handed to afterwards sees the same stable
+ * values without touching the store. Faces not seen for {@code ttlNanos} are evicted, and
+ * positions and velocities are rescaled when the frames' image size changes.
+ * <p>
+ * Entries live in an open-addressing table of parallel primitive arrays, like
+ * {@link LongIntHashMap}, with backward-shift deletion so eviction leaves no tombstones.
+ * Nothing is allocated per result until the table has to grow. Not thread-safe.
+ */
+public final class FaceStateStore {
+    private static final int MIN_CAPACITY = 16;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final int attributeCount;
+    // Weight of the newest sample in the running averages
+    private final float smoothing;
+    private final long ttlNanos;
+
+    private int[] keys;
+    private boolean[] used;
+    private long[] firstSeenNanos;
+    private long[] lastSeenNanos;
+    // attributeCount per entry; NaN until the detector first reports the attribute
+    private float[] attributes;
+    // Centre x, y per entry, then its velocity in pixels per second
+    private float[] centers;
+    private float[] velocities;
+    private int size;
+    private int resizeThreshold;
+    // Size of the image centres are measured in; 0 until known
+    private int imageWidth = 0;
+    private int imageHeight = 0;
+
+    public FaceStateStore(int expectedFaces, int attributeCount, float smoothing, long ttlNanos) {
+        if (smoothing <= 0f || smoothing > 1f) {
+            throw new IllegalArgumentException("smoothing must be in (0, 1]");
+        }
+        this.attributeCount = attributeCount;
+        this.smoothing = smoothing;
+        this.ttlNanos = ttlNanos;
+        int capacity = MIN_CAPACITY;
+        while (capacity / 2 < expectedFaces) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Folds a detector result into the store, then replaces each tracked detection's
+     * attributes in {@code frame} with their smoothed values. Attributes
+     * {@linkplain DetectionFrame#isCarriedOver carried over} from an earlier result only
+     * seed a face the store has no value for yet; otherwise they are not new evidence.
+     * Detections without a tracking ID are left as they are. Faces last seen more than the
+     * TTL before the frame's capture time are evicted afterwards.
+     */
+    public void update(DetectionFrame frame) {
+        rescale(frame.getWidth(), frame.getHeight());
+        long nowNanos = frame.getCaptureNanos();
+        int[] trackingIds = frame.getTrackingIds();
+        float[] boxes = frame.getBoxes();
+        for (int i = 0; i < frame.getCount(); i++) {
+            int id = trackingIds[i];
+            if (id == BoxTracker.NO_ID) {
+                continue;
+            }
+            float centerX = (boxes[i * 4] + boxes[i * 4 + 2]) * 0.5f;
+            float centerY = (boxes[i * 4 + 1] + boxes[i * 4 + 3]) * 0.5f;
+            int slot = slotOf(id);
+            if (!used[slot]) {
+                slot = insert(slot, id, nowNanos, centerX, centerY);
+            } else {
+                updateVelocity(slot, nowNanos, centerX, centerY);
+            }
+            lastSeenNanos[slot] = Math.max(lastSeenNanos[slot], nowNanos);
+
+            int a = slot * attributeCount;
+            boolean carriedOver = frame.isCarriedOver(i);
+            for (int k = 0; k < attributeCount; k++) {
+                float sample = frame.getAttribute(i, k);
+                float smoothed = attributes[a + k];
+                if (Float.isNaN(smoothed)) {
+                    attributes[a + k] = sample;
+                } else if (!Float.isNaN(sample) && !carriedOver) {
+                    attributes[a + k] = smoothed + smoothing * (sample - smoothed);
+                }
+                frame.setAttribute(i, k, attributes[a + k]);
+            }
+        }
+        evictExpired(nowNanos);
+    }
+
+    /**
+     * Removes faces last seen more than the TTL before {@code nowNanos}.
+     */
+    public void evictExpired(long nowNanos) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            // A removal shifts a later entry into this slot, so look at it again
+            while (used[slot] && nowNanos - lastSeenNanos[slot] > ttlNanos) {
+                remove(slot);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int id) {
+        return used[slotOf(id)];
+    }
+
+    /** Capture time the face was first seen, or -1 when it is not in the store. */
+    public long getFirstSeenNanos(int id) {
+        int slot = slotOf(id);
+        return used[slot] ? firstSeenNanos[slot] : -1;
+    }
+
+    /** Capture time the face was last seen, or -1 when it is not in the store. */
+    public long getLastSeenNanos(int id) {
+        int slot = slotOf(id);
+        return used[slot] ? lastSeenNanos[slot] : -1;
+    }
+
+    /** Smoothed value of an attribute, or NaN when unknown. */
+    public float getAttribute(int id, int attribute) {
+        int slot = slotOf(id);
+        return used[slot] ? attributes[slot * attributeCount + attribute] : Float.NaN;
+    }
+
+    /** Smoothed horizontal velocity of the box centre in pixels per second, or 0. */
+    public float getVelocityX(int id) {
+        int slot = slotOf(id);
+        return used[slot] ? velocities[slot * 2] : 0f;
+    }
+
+    /** Smoothed vertical velocity of the box centre in pixels per second, or 0. */
+    public float getVelocityY(int id) {
+        int slot = slotOf(id);
+        return used[slot] ? velocities[slot * 2 + 1] : 0f;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void rescale(int width, int height) {
+        if (imageWidth > 0 && imageHeight > 0 && width > 0 && height > 0
+                && (width != imageWidth || height != imageHeight)) {
+            float scaleX = (float) width / imageWidth;
+            float scaleY = (float) height / imageHeight;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (used[slot]) {
+                    centers[slot * 2] *= scaleX;
+                    centers[slot * 2 + 1] *= scaleY;
+                    velocities[slot * 2] *= scaleX;
+                    velocities[slot * 2 + 1] *= scaleY;
+                }
+            }
+        }
+        imageWidth = width;
+        imageHeight = height;
+    }
+
+    private void updateVelocity(int slot, long nowNanos, float centerX, float centerY) {
+        long elapsedNanos = nowNanos - lastSeenNanos[slot];
+        if (elapsedNanos > 0) {
+            float seconds = (float) (elapsedNanos / NANOS_PER_SECOND);
+            int c = slot * 2;
+            float vx = (centerX - centers[c]) / seconds;
+            float vy = (centerY - centers[c + 1]) / seconds;
+            velocities[c] += smoothing * (vx - velocities[c]);
+            velocities[c + 1] += smoothing * (vy - velocities[c + 1]);
+            centers[c] = centerX;
+            centers[c + 1] = centerY;
+        }
+    }
+
+    /**
+     * Adds a face at {@code slot}, growing the table if needed.
+     *
+     * @return the slot the face ended up in
+     */
+    private int insert(int slot, int id, long nowNanos, float centerX, float centerY) {
+        keys[slot] = id;
+        used[slot] = true;
+        firstSeenNanos[slot] = nowNanos;
+        lastSeenNanos[slot] = nowNanos;
+        Arrays.fill(attributes, slot * attributeCount, (slot + 1) * attributeCount, Float.NaN);
+        centers[slot * 2] = centerX;
+        centers[slot * 2 + 1] = centerY;
+        velocities[slot * 2] = 0f;
+        velocities[slot * 2 + 1] = 0f;
+        if (++size > resizeThreshold) {
+            rehash(keys.length * 2);
+            return slotOf(id);
+        }
+        return slot;
+    }
+
+    /**
+     * Empties {@code slot} and shifts later entries of its probe run back, so lookups never
+     * stop early at the hole.
+     */
+    private void remove(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (used[next]) {
+            int home = mix(keys[next]) & mask;
+            // The entry may fill the hole if the hole lies between its home slot and it
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                move(next, hole);
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[hole] = false;
+        size--;
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        used[to] = true;
+        firstSeenNanos[to] = firstSeenNanos[from];
+        lastSeenNanos[to] = lastSeenNanos[from];
+        System.arraycopy(attributes, from * attributeCount, attributes, to * attributeCount,
+                attributeCount);
+        System.arraycopy(centers, from * 2, centers, to * 2, 2);
+        System.arraycopy(velocities, from * 2, velocities, to * 2, 2);
+    }
+
+    /**
+     * Returns the slot holding {@code id}, or the empty slot where it would go.
+     */
+    private int slotOf(int id) {
+        int mask = keys.length - 1;
+        int slot = mix(id) & mask;
+        while (used[slot] && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        long[] oldFirstSeen = firstSeenNanos;
+        long[] oldLastSeen = lastSeenNanos;
+        float[] oldAttributes = attributes;
+        float[] oldCenters = centers;
+        float[] oldVelocities = velocities;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                used[slot] = true;
+                firstSeenNanos[slot] = oldFirstSeen[i];
+                lastSeenNanos[slot] = oldLastSeen[i];
+                System.arraycopy(oldAttributes, i * attributeCount, attributes,
+                        slot * attributeCount, attributeCount);
+                System.arraycopy(oldCenters, i * 2, centers, slot * 2, 2);
+                System.arraycopy(oldVelocities, i * 2, velocities, slot * 2, 2);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        used = new boolean[capacity];
+        firstSeenNanos = new long[capacity];
+        lastSeenNanos = new long[capacity];
+        attributes = new float[capacity * attributeCount];
+        centers = new float[capacity * 2];
+        velocities = new float[capacity * 2];
+        // Linear probing stays short below half full
+        resizeThreshold = capacity / 2;
+    }
+
+    private static int mix(int key) {
+        // Murmur3 finalizer, as tracking IDs are small sequential numbers
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
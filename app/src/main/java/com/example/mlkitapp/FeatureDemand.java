@@ -0,0 +1,50 @@
+package com.example.mlkitapp;
+
+/**
+ * Which optional detector outputs a screen currently shows. Each part of the screen that
+ * displays something, such as an overlay or a list, sets its own flags; the detector is
+ * built for the union, so outputs nobody looks at are never computed. {@link #set} reports
+ * when the union changes, which is when the screen should swap in a differently built
+ * detector. Not thread-safe; meant for the main thread.
+ */
+public final class FeatureDemand {
+    /** Per-face landmark positions. */
+    public static final int LANDMARKS = 1;
+    /** Per-detection classification, such as smile probability or object labels. */
+    public static final int CLASSIFICATION = 1 << 1;
+
+    private final int[] consumerFeatures;
+    private int features = 0;
+
+    /**
+     * @param consumers number of parts of the screen, each identified by an index below it
+     */
+    public FeatureDemand(int consumers) {
+        consumerFeatures = new int[consumers];
+    }
+
+    /**
+     * Replaces what one consumer needs.
+     *
+     * @return true when the union changed and the detector should be rebuilt
+     */
+    public boolean set(int consumer, int features) {
+        consumerFeatures[consumer] = features;
+        int union = 0;
+        for (int consumerFeature : consumerFeatures) {
+            union |= consumerFeature;
+        }
+        boolean changed = union != this.features;
+        this.features = union;
+        return changed;
+    }
+
+    /** The union of every consumer's flags. */
+    public int get() {
+        return features;
+    }
+
+    public boolean has(int feature) {
+        return (features & feature) != 0;
+    }
+}
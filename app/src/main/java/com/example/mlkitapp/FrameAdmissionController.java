@@ -0,0 +1,243 @@
+package com.example.mlkitapp;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Decides whether a detector should see the next camera frame.
+ * Frames are admitted at most at the target rate, never while the detector already has
+ * the maximum number of frames in flight, and no faster than its recent latency allows.
+ * Latency is tracked per controller, so each detector stage should own one.
+ */
+public class FrameAdmissionController {
+
+    public enum Decision {
+        /** The frame should be processed. */
+        ADMIT,
+        /** Too soon after the previous admission for the target rate. */
+        SKIP_RATE,
+        /** The detector already has the maximum number of frames in flight. */
+        SKIP_BUSY,
+        /** The detector's recent latency is longer than the target interval. */
+        SKIP_BEHIND
+    }
+
+    public interface Listener {
+        void onDecision(Decision decision, Stats stats);
+    }
+
+    private static final int SAMPLE_WINDOW = 64;
+    private static final double DEFAULT_EWMA_ALPHA = 0.2;
+
+    private final Clock clock;
+    private final long targetIntervalNanos;
+    private final int maxInFlight;
+    private final double ewmaAlpha;
+
+    private final long[] samples = new long[SAMPLE_WINDOW];
+    private final long[] sortScratch = new long[SAMPLE_WINDOW];
+    private int sampleCount = 0;
+    private int sampleIndex = 0;
+
+    private final long[] decisionCounts = new long[Decision.values().length];
+    private double ewmaLatencyNanos = 0;
+    private long lastAdmitNanos;
+    private boolean hasAdmitted = false;
+    private int inFlight = 0;
+    private Listener listener;
+
+    public FrameAdmissionController(Clock clock, float targetFps) {
+        this(clock, targetFps, 1, DEFAULT_EWMA_ALPHA);
+    }
+
+    public FrameAdmissionController(Clock clock, float targetFps, int maxInFlight, double ewmaAlpha) {
+        if (targetFps <= 0) {
+            throw new IllegalArgumentException("targetFps must be positive");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        if (ewmaAlpha <= 0 || ewmaAlpha > 1) {
+            throw new IllegalArgumentException("ewmaAlpha must be in (0, 1]");
+        }
+        this.clock = clock;
+        this.targetIntervalNanos = (long) (1_000_000_000L / targetFps);
+        this.maxInFlight = maxInFlight;
+        this.ewmaAlpha = ewmaAlpha;
+    }
+
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the current time on this controller's clock, for stamping admitted frames.
+     */
+    public long now() {
+        return clock.nanoTime();
+    }
+
+    /**
+     * Decides whether the frame arriving now should be processed. Every {@link Decision#ADMIT}
+     * must be balanced by exactly one {@link #onComplete(long)} or {@link #cancel()} call.
+     */
+    public Decision tryAdmit() {
+        Decision decision;
+        Listener currentListener;
+        Stats stats = null;
+        synchronized (this) {
+            long now = clock.nanoTime();
+            long sinceLast = now - lastAdmitNanos;
+
+            if (inFlight >= maxInFlight) {
+                decision = Decision.SKIP_BUSY;
+            } else if (hasAdmitted && sinceLast < targetIntervalNanos) {
+                decision = Decision.SKIP_RATE;
+            } else if (hasAdmitted && sinceLast < ewmaLatencyNanos) {
+                decision = Decision.SKIP_BEHIND;
+            } else {
+                decision = Decision.ADMIT;
+                inFlight++;
+                lastAdmitNanos = now;
+                hasAdmitted = true;
+            }
+
+            decisionCounts[decision.ordinal()]++;
+            currentListener = listener;
+            if (currentListener != null) {
+                stats = snapshotLocked();
+            }
+        }
+        if (currentListener != null) {
+            currentListener.onDecision(decision, stats);
+        }
+        return decision;
+    }
+
+    /**
+     * The detector's smoothed latency, or 0 before the first frame completes.
+     */
+    public synchronized long getEwmaLatencyNanos() {
+        return (long) ewmaLatencyNanos;
+    }
+
+    /**
+     * Records the end of an admitted frame that started at {@code startNanos}
+     * (as returned by {@link #now()}).
+     */
+    public synchronized void onComplete(long startNanos) {
+        if (inFlight == 0) {
+            throw new IllegalStateException("onComplete without a matching admission");
+        }
+        inFlight--;
+
+        long latency = Math.max(0, clock.nanoTime() - startNanos);
+        if (sampleCount == 0) {
+            ewmaLatencyNanos = latency;
+        } else {
+            ewmaLatencyNanos += ewmaAlpha * (latency - ewmaLatencyNanos);
+        }
+        samples[sampleIndex] = latency;
+        sampleIndex = (sampleIndex + 1) % SAMPLE_WINDOW;
+        if (sampleCount < SAMPLE_WINDOW) {
+            sampleCount++;
+        }
+    }
+
+    /**
+     * Ends an admitted frame that never reached the detector, such as one dropped before
+     * detection, without recording a latency sample.
+     */
+    public synchronized void cancel() {
+        if (inFlight == 0) {
+            throw new IllegalStateException("cancel without a matching admission");
+        }
+        inFlight--;
+    }
+
+    public synchronized Stats getStats() {
+        return snapshotLocked();
+    }
+
+    private Stats snapshotLocked() {
+        return new Stats(
+                decisionCounts.clone(),
+                (long) ewmaLatencyNanos,
+                percentileLocked(0.5),
+                percentileLocked(0.9),
+                percentileLocked(0.99),
+                inFlight);
+    }
+
+    private long percentileLocked(double percentile) {
+        if (sampleCount == 0) {
+            return 0;
+        }
+        System.arraycopy(samples, 0, sortScratch, 0, sampleCount);
+        Arrays.sort(sortScratch, 0, sampleCount);
+        int index = (int) Math.ceil(percentile * sampleCount) - 1;
+        return sortScratch[Math.max(0, Math.min(sampleCount - 1, index))];
+    }
+
+    /**
+     * Point-in-time view of the controller's decisions and the detector's latency
+     * over the most recent samples.
+     */
+    public static final class Stats {
+        private final long[] decisionCounts;
+        private final long ewmaLatencyNanos;
+        private final long p50LatencyNanos;
+        private final long p90LatencyNanos;
+        private final long p99LatencyNanos;
+        private final int inFlight;
+
+        Stats(long[] decisionCounts, long ewmaLatencyNanos, long p50LatencyNanos,
+              long p90LatencyNanos, long p99LatencyNanos, int inFlight) {
+            this.decisionCounts = decisionCounts;
+            this.ewmaLatencyNanos = ewmaLatencyNanos;
+            this.p50LatencyNanos = p50LatencyNanos;
+            this.p90LatencyNanos = p90LatencyNanos;
+            this.p99LatencyNanos = p99LatencyNanos;
+            this.inFlight = inFlight;
+        }
+
+        public long getCount(Decision decision) {
+            return decisionCounts[decision.ordinal()];
+        }
+
+        public long getEwmaLatencyNanos() {
+            return ewmaLatencyNanos;
+        }
+
+        public long getP50LatencyNanos() {
+            return p50LatencyNanos;
+        }
+
+        public long getP90LatencyNanos() {
+            return p90LatencyNanos;
+        }
+
+        public long getP99LatencyNanos() {
+            return p99LatencyNanos;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "admitted=%d skippedRate=%d skippedBusy=%d skippedBehind=%d "
+                            + "ewma=%.1fms p50=%.1fms p90=%.1fms p99=%.1fms",
+                    getCount(Decision.ADMIT),
+                    getCount(Decision.SKIP_RATE),
+                    getCount(Decision.SKIP_BUSY),
+                    getCount(Decision.SKIP_BEHIND),
+                    ewmaLatencyNanos / 1e6,
+                    p50LatencyNanos / 1e6,
+                    p90LatencyNanos / 1e6,
+                    p99LatencyNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,605 @@
+package com.example.mlkitapp;
+
+import android.media.Image;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ExperimentalGetImage;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskExecutors;
+import com.google.mlkit.vision.common.InputImage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Shared CameraX analyzer used by the live detection screens.
+ * Each frame is converted to an InputImage once and handed to every configured detector
+ * stage in parallel. The frame is closed when the last stage's Task completes, whatever
+ * the outcome. Recorded frames can be fed back through {@link #onFrame(YuvFrame)}.
+ * Every stage of a frame's trip is timed into the pipeline's {@link LatencyRegistry}.
+ * With a {@link RegionOfInterest} set, only that part of each frame is copied out and
+ * analyzed, and the camera buffer is returned as soon as the copy is made.
+ */
+@androidx.annotation.OptIn(markerClass = ExperimentalGetImage.class)
+public class FrameAnalysisPipeline implements ImageAnalysis.Analyzer, FrameReplaySource.FrameSink {
+    private static final String TAG = "FrameAnalysisPipeline";
+
+    private static ExecutorService sharedExecutor;
+
+    /**
+     * A detector plugged into the pipeline. {@link #process} is called on the analyzer
+     * thread; the result callbacks arrive on the main thread like any other ML Kit Task,
+     * unless the stage picks another executor through {@link #getResultExecutor()}.
+     */
+    public interface DetectorStage<T> {
+        Task<T> process(InputImage image);
+
+        void onResult(T result, FrameMetadata frame);
+
+        default void onFailure(Exception e) {
+        }
+
+        /**
+         * Called instead of {@link #onResult}, on the same executor, for a result that
+         * arrives while the pipeline is paused, so stages handing out pooled results can
+         * release it.
+         */
+        default void onDiscarded(T result) {
+        }
+
+        /**
+         * Executor for {@link #onResult} and {@link #onDiscarded}. Stages that hand results
+         * to the UI through a {@link LatestValueChannel} return {@code Runnable::run}, so no
+         * main-thread Runnable is queued per result; failures still arrive on the main thread.
+         */
+        default Executor getResultExecutor() {
+            return TaskExecutors.MAIN_THREAD;
+        }
+
+        /**
+         * Prefix for this stage's latency histograms.
+         */
+        default String getName() {
+            return getClass().getSimpleName();
+        }
+    }
+
+    /**
+     * Chooses the part of each frame to analyze. Called on the thread delivering the frame.
+     */
+    public interface RegionOfInterest {
+        /**
+         * Writes the region as left, top, right, bottom in buffer coordinates into
+         * {@code out}. Left and top must be even. Returns false to analyze the whole frame.
+         */
+        boolean computeCrop(int width, int height, int rotationDegrees, int[] out);
+    }
+
+    /**
+     * Told when a recorder fails and the pipeline detaches it. Called on the analyzer
+     * thread; the writer is left open for the owner to close.
+     */
+    public interface RecorderFailureListener {
+        void onRecorderFailed(FrameRecordingWriter writer, IOException e);
+    }
+
+    // Cropped frames in flight at once rarely exceed the number of stages
+    private static final int MAX_POOLED_CROP_BUFFERS = 4;
+    // Older frames, such as replayed recordings, are treated as captured just now
+    private static final long MAX_FRAME_AGE_NANOS = 1_000_000_000L;
+    private static final AtomicReferenceFieldUpdater<FrameAnalysisPipeline, FrameRecordingWriter>
+            RECORDER = AtomicReferenceFieldUpdater.newUpdater(
+                    FrameAnalysisPipeline.class, FrameRecordingWriter.class, "recorder");
+
+    private final DetectorStage<?>[] stages;
+    private final FrameAdmissionController[] admissionControllers;
+    private volatile boolean paused = false;
+    private volatile FrameRecordingWriter recorder;
+    private volatile RecorderFailureListener recorderFailureListener;
+    private volatile RegionOfInterest regionOfInterest;
+    private ResolutionController resolutionController;
+    private FrameAdmissionController resolutionLatencySource;
+    // Where the analysis use case is bound, for rebinding at a new resolution; main thread
+    private ProcessCameraProvider cameraProvider;
+    private LifecycleOwner lifecycleOwner;
+    private CameraSelector cameraSelector;
+    private ImageAnalysis imageAnalysis;
+    // Guarded by itself; crop buffers go back here when every stage is done with them
+    private final ArrayDeque<byte[]> cropBuffers = new ArrayDeque<>();
+
+    private final LatencyRegistry latency = new LatencyRegistry();
+    private final LatencyHistogram queueLatency = latency.histogram(LatencyRegistry.QUEUE);
+    private final LatencyHistogram inputImageLatency = latency.histogram(LatencyRegistry.INPUT_IMAGE);
+    private final LatencyHistogram[] detectLatency;
+    private final LatencyHistogram[] postProcessLatency;
+
+    public FrameAnalysisPipeline(DetectorStage<?>... stages) {
+        if (stages.length == 0) {
+            throw new IllegalArgumentException("At least one detector stage is required");
+        }
+        if (stages.length > Integer.SIZE) {
+            throw new IllegalArgumentException("At most " + Integer.SIZE + " detector stages are supported");
+        }
+        this.stages = stages.clone();
+        this.admissionControllers = new FrameAdmissionController[stages.length];
+        this.detectLatency = new LatencyHistogram[stages.length];
+        this.postProcessLatency = new LatencyHistogram[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            detectLatency[i] = latency.histogram(stages[i].getName() + LatencyRegistry.DETECT);
+            postProcessLatency[i] = latency.histogram(stages[i].getName() + LatencyRegistry.POST_PROCESS);
+        }
+    }
+
+    /**
+     * Returns the single analyzer thread shared by every screen. It lives for the whole
+     * process, so activities must not shut it down.
+     */
+    public static synchronized ExecutorService getSharedExecutor() {
+        if (sharedExecutor == null) {
+            sharedExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "FrameAnalysis");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sharedExecutor;
+    }
+
+    /**
+     * Builds an ImageAnalysis use case with the backpressure rules every screen shares.
+     */
+    public static ImageAnalysis buildImageAnalysis(Size targetResolution) {
+        return new ImageAnalysis.Builder()
+                .setTargetResolution(targetResolution)
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .build();
+    }
+
+    /**
+     * Attaches this pipeline to the given use case on the shared analyzer thread.
+     */
+    public void attachTo(ImageAnalysis imageAnalysis) {
+        imageAnalysis.setAnalyzer(getSharedExecutor(), this);
+    }
+
+    /**
+     * Lets {@code controller} pick the analysis resolution from the smoothed latency of
+     * {@code latencySource} and the subject sizes reported through
+     * {@link #reportSubjectSize}. Use {@link #createImageAnalysis} to build the use case.
+     */
+    public void setResolutionController(ResolutionController controller,
+                                        FrameAdmissionController latencySource) {
+        this.resolutionController = controller;
+        this.resolutionLatencySource = latencySource;
+    }
+
+    /**
+     * Builds an analysis use case at the resolution controller's current size, attached to
+     * this pipeline, and remembers where it is bound so later resolution changes can rebind
+     * it. Bind the returned use case together with the others. Main thread only.
+     */
+    public ImageAnalysis createImageAnalysis(ProcessCameraProvider cameraProvider,
+                                             LifecycleOwner owner, CameraSelector cameraSelector) {
+        this.cameraProvider = cameraProvider;
+        this.lifecycleOwner = owner;
+        this.cameraSelector = cameraSelector;
+        imageAnalysis = buildImageAnalysis(controllerResolution());
+        attachTo(imageAnalysis);
+        return imageAnalysis;
+    }
+
+    /**
+     * Reports the smallest subject in a result, in pixels of the analyzed frame, or NaN when
+     * nothing was detected. May be called from any thread; when the resolution controller
+     * decides on a new size, the analysis use case is rebound on the main thread.
+     */
+    public void reportSubjectSize(float smallestSubjectPixels) {
+        if (resolutionController.onResult(resolutionLatencySource.getEwmaLatencyNanos(),
+                smallestSubjectPixels)) {
+            TaskExecutors.MAIN_THREAD.execute(() -> applyResolution(controllerResolution()));
+        }
+    }
+
+    private Size controllerResolution() {
+        return new Size(resolutionController.getWidth(), resolutionController.getHeight());
+    }
+
+    /**
+     * Replaces the analysis use case with one at {@code targetResolution}, leaving the other
+     * bound use cases alone. Does nothing before {@link #createImageAnalysis} or once the
+     * owner is destroyed. Main thread only. The camera reconfigures its
+     * streams, so analysis pauses briefly; frames already in the pipeline finish as usual.
+     */
+    public void applyResolution(Size targetResolution) {
+        if (imageAnalysis == null
+                || lifecycleOwner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            return;
+        }
+        Log.d(TAG, "Analysis resolution now " + targetResolution);
+        imageAnalysis.clearAnalyzer();
+        cameraProvider.unbind(imageAnalysis);
+        imageAnalysis = buildImageAnalysis(targetResolution);
+        attachTo(imageAnalysis);
+        cameraProvider.bindToLifecycle(lifecycleOwner, cameraSelector, imageAnalysis);
+    }
+
+    /**
+     * Gates the given stage behind an admission controller. Frames the controller skips
+     * are not sent to that stage; a frame no stage admits is closed straight away.
+     * Configure admission before the pipeline is attached to a use case.
+     */
+    public void setAdmissionController(DetectorStage<?> stage, FrameAdmissionController controller) {
+        admissionControllers[indexOf(stage)] = controller;
+    }
+
+    public FrameAdmissionController getAdmissionController(DetectorStage<?> stage) {
+        return admissionControllers[indexOf(stage)];
+    }
+
+    private int indexOf(DetectorStage<?> stage) {
+        for (int i = 0; i < stages.length; i++) {
+            if (stages[i] == stage) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Stage is not part of this pipeline");
+    }
+
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Returns the latency histograms for this pipeline. Screens register their overlay
+     * draw histograms here too, so one dump covers capture to draw.
+     */
+    public LatencyRegistry getLatencyRegistry() {
+        return latency;
+    }
+
+    /**
+     * Writes the current latency histograms to {@code file} on the analyzer thread.
+     */
+    public void dumpLatency(File file) {
+        getSharedExecutor().execute(() -> {
+            try {
+                latency.writeTo(file);
+                Log.d(TAG, "Latency histograms written to " + file);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write latency histograms", e);
+            }
+        });
+    }
+
+    /**
+     * Starts copying every camera frame that reaches the analyzer into {@code recorder},
+     * or stops when null. The caller owns the writer and closes it after detaching it.
+     */
+    public void setRecorder(@Nullable FrameRecordingWriter recorder) {
+        this.recorder = recorder;
+    }
+
+    public void setRecorderFailureListener(@Nullable RecorderFailureListener listener) {
+        recorderFailureListener = listener;
+    }
+
+    /**
+     * Restricts analysis to a region of each frame, or analyzes whole frames when null.
+     * Result coordinates are then relative to the region; see {@link FrameMetadata#getCropLeft()}.
+     */
+    public void setRegionOfInterest(@Nullable RegionOfInterest regionOfInterest) {
+        this.regionOfInterest = regionOfInterest;
+    }
+
+    @Override
+    public void analyze(@NonNull ImageProxy imageProxy) {
+        long entryNanos = System.nanoTime();
+        Image mediaImage = imageProxy.getImage();
+        if (paused || mediaImage == null) {
+            imageProxy.close();
+            return;
+        }
+        queueLatency.record(queueNanos(imageProxy.getImageInfo().getTimestamp(), entryNanos));
+
+        FrameRecordingWriter currentRecorder = recorder;
+        if (currentRecorder != null) {
+            record(currentRecorder, imageProxy);
+        }
+
+        int admittedMask = admit();
+        if (admittedMask == 0) {
+            imageProxy.close();
+            return;
+        }
+
+        FrameMetadata frame;
+        InputImage image;
+        AutoCloseable source = imageProxy;
+        try {
+            int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
+            long timestampNanos = imageProxy.getImageInfo().getTimestamp();
+            long inputStart = System.nanoTime();
+            int[] crop = cropFor(imageProxy.getWidth(), imageProxy.getHeight(), rotationDegrees);
+            if (crop != null) {
+                byte[] nv21 = copyCrop(toYuvFrame(imageProxy), crop);
+                // The region has been copied out, so the camera buffer can go back right away
+                imageProxy.close();
+                source = () -> recycleCropBuffer(nv21);
+                frame = croppedMetadata(crop, rotationDegrees, timestampNanos);
+                image = InputImage.fromByteArray(nv21, frame.getWidth(), frame.getHeight(),
+                        rotationDegrees, InputImage.IMAGE_FORMAT_NV21);
+            } else {
+                frame = new FrameMetadata(imageProxy.getWidth(), imageProxy.getHeight(),
+                        rotationDegrees, timestampNanos);
+                image = InputImage.fromMediaImage(mediaImage, rotationDegrees);
+            }
+            inputImageLatency.record(System.nanoTime() - inputStart);
+        } catch (Exception e) {
+            Log.e(TAG, "Error processing frame", e);
+            releaseAdmissions(admittedMask);
+            closeSource(source);
+            return;
+        }
+
+        dispatchAll(admittedMask, image, frame, source);
+    }
+
+    /**
+     * Analyzes a replayed frame. The planes are packed into NV21 first because InputImage
+     * only accepts strided YUV through a media Image.
+     */
+    @Override
+    public void onFrame(YuvFrame yuvFrame) {
+        if (paused) {
+            yuvFrame.close();
+            return;
+        }
+
+        int admittedMask = admit();
+        if (admittedMask == 0) {
+            yuvFrame.close();
+            return;
+        }
+
+        FrameMetadata frame;
+        InputImage image;
+        AutoCloseable source = yuvFrame;
+        try {
+            long inputStart = System.nanoTime();
+            byte[] nv21;
+            int[] crop = cropFor(yuvFrame.getWidth(), yuvFrame.getHeight(),
+                    yuvFrame.getRotationDegrees());
+            if (crop != null) {
+                nv21 = copyCrop(yuvFrame, crop);
+                yuvFrame.close();
+                byte[] cropBuffer = nv21;
+                source = () -> recycleCropBuffer(cropBuffer);
+                frame = croppedMetadata(crop, yuvFrame.getRotationDegrees(),
+                        yuvFrame.getTimestampNanos());
+            } else {
+                nv21 = new byte[yuvFrame.nv21Size()];
+                yuvFrame.copyToNv21(nv21);
+                frame = new FrameMetadata(yuvFrame.getWidth(), yuvFrame.getHeight(),
+                        yuvFrame.getRotationDegrees(), yuvFrame.getTimestampNanos());
+            }
+            image = InputImage.fromByteArray(nv21, frame.getWidth(), frame.getHeight(),
+                    frame.getRotationDegrees(), InputImage.IMAGE_FORMAT_NV21);
+            inputImageLatency.record(System.nanoTime() - inputStart);
+        } catch (Exception e) {
+            Log.e(TAG, "Error processing replayed frame", e);
+            releaseAdmissions(admittedMask);
+            closeSource(source);
+            return;
+        }
+
+        dispatchAll(admittedMask, image, frame, source);
+    }
+
+    @Nullable
+    private int[] cropFor(int width, int height, int rotationDegrees) {
+        RegionOfInterest roi = regionOfInterest;
+        if (roi == null) {
+            return null;
+        }
+        int[] crop = new int[4];
+        return roi.computeCrop(width, height, rotationDegrees, crop) ? crop : null;
+    }
+
+    private byte[] copyCrop(YuvFrame yuvFrame, int[] crop) {
+        int cropWidth = crop[2] - crop[0];
+        int cropHeight = crop[3] - crop[1];
+        byte[] nv21 = obtainCropBuffer(YuvFrame.nv21Size(cropWidth, cropHeight));
+        try {
+            yuvFrame.copyToNv21(crop[0], crop[1], cropWidth, cropHeight, nv21);
+        } catch (RuntimeException e) {
+            recycleCropBuffer(nv21);
+            throw e;
+        }
+        return nv21;
+    }
+
+    private static FrameMetadata croppedMetadata(int[] crop, int rotationDegrees, long timestampNanos) {
+        return new FrameMetadata(crop[2] - crop[0], crop[3] - crop[1], rotationDegrees,
+                timestampNanos, crop[0], crop[1]);
+    }
+
+    private byte[] obtainCropBuffer(int size) {
+        synchronized (cropBuffers) {
+            byte[] buffer = cropBuffers.poll();
+            // InputImage sizes NV21 data from the array, so only an exact fit can be reused
+            if (buffer != null && buffer.length == size) {
+                return buffer;
+            }
+        }
+        return new byte[size];
+    }
+
+    private void recycleCropBuffer(byte[] buffer) {
+        synchronized (cropBuffers) {
+            if (cropBuffers.size() < MAX_POOLED_CROP_BUFFERS) {
+                cropBuffers.push(buffer);
+            }
+        }
+    }
+
+    private static void closeSource(AutoCloseable source) {
+        try {
+            source.close();
+        } catch (Exception e) {
+            Log.e(TAG, "Error closing frame", e);
+        }
+    }
+
+    /**
+     * Converts a frame's camera timestamp to the {@link System#nanoTime()} clock the UI
+     * draws on. Camera timestamps use the uptime or the elapsed-realtime base depending on
+     * the device, the same ambiguity the queue histogram resolves.
+     */
+    public static long captureTimeToNanoTime(long timestampNanos) {
+        long now = System.nanoTime();
+        long age = queueNanos(timestampNanos, now);
+        return age < 0 || age > MAX_FRAME_AGE_NANOS ? now : now - age;
+    }
+
+    /**
+     * Time from capture to analyzer entry. Sensor timestamps are on the monotonic clock on
+     * most devices and on the boot-time clock on the rest; a monotonic reading that comes
+     * out negative means the latter.
+     */
+    private static long queueNanos(long captureNanos, long entryNanos) {
+        long queued = entryNanos - captureNanos;
+        if (queued < 0) {
+            queued = SystemClock.elapsedRealtimeNanos() - captureNanos;
+        }
+        return queued;
+    }
+
+    private void record(FrameRecordingWriter writer, ImageProxy imageProxy) {
+        try {
+            writer.write(toYuvFrame(imageProxy));
+        } catch (IOException e) {
+            // Only detach the writer that failed; a newer recording may already have replaced it
+            if (RECORDER.compareAndSet(this, writer, null)) {
+                Log.e(TAG, "Frame recording stopped", e);
+                RecorderFailureListener listener = recorderFailureListener;
+                if (listener != null) {
+                    listener.onRecorderFailed(writer, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wraps the proxy's planes without copying. The result does not own the proxy.
+     */
+    private static YuvFrame toYuvFrame(ImageProxy imageProxy) {
+        ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
+        ByteBuffer[] buffers = new ByteBuffer[YuvFrame.PLANE_COUNT];
+        int[] rowStrides = new int[YuvFrame.PLANE_COUNT];
+        int[] pixelStrides = new int[YuvFrame.PLANE_COUNT];
+        for (int i = 0; i < YuvFrame.PLANE_COUNT; i++) {
+            buffers[i] = planes[i].getBuffer().duplicate();
+            rowStrides[i] = planes[i].getRowStride();
+            pixelStrides[i] = planes[i].getPixelStride();
+        }
+        return new YuvFrame(imageProxy.getWidth(), imageProxy.getHeight(),
+                imageProxy.getImageInfo().getRotationDegrees(),
+                imageProxy.getImageInfo().getTimestamp(),
+                buffers, rowStrides, pixelStrides, null);
+    }
+
+    private int admit() {
+        int admittedMask = 0;
+        for (int i = 0; i < stages.length; i++) {
+            FrameAdmissionController controller = admissionControllers[i];
+            if (controller == null
+                    || controller.tryAdmit() == FrameAdmissionController.Decision.ADMIT) {
+                admittedMask |= 1 << i;
+            }
+        }
+        return admittedMask;
+    }
+
+    private void dispatchAll(int admittedMask, InputImage image, FrameMetadata frame,
+                             AutoCloseable source) {
+        RefCountedFrame sharedFrame = new RefCountedFrame(source, Integer.bitCount(admittedMask));
+        for (int i = 0; i < stages.length; i++) {
+            if ((admittedMask & (1 << i)) == 0) {
+                continue;
+            }
+            FrameAdmissionController controller = admissionControllers[i];
+            long startNanos = controller != null ? controller.now() : 0;
+            try {
+                dispatch(stages[i], image, frame, sharedFrame, controller, startNanos,
+                        detectLatency[i], postProcessLatency[i]);
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting detection", e);
+                if (controller != null) {
+                    controller.cancel();
+                }
+                sharedFrame.release();
+            }
+        }
+    }
+
+    private void releaseAdmissions(int admittedMask) {
+        for (int i = 0; i < stages.length; i++) {
+            FrameAdmissionController controller = admissionControllers[i];
+            if ((admittedMask & (1 << i)) != 0 && controller != null) {
+                controller.cancel();
+            }
+        }
+    }
+
+    private <T> void dispatch(DetectorStage<T> stage, InputImage image,
+                              FrameMetadata frame, RefCountedFrame sharedFrame,
+                              FrameAdmissionController controller, long startNanos,
+                              LatencyHistogram detectHistogram,
+                              LatencyHistogram postProcessHistogram) {
+        long detectStart = System.nanoTime();
+        stage.process(image)
+                .addOnSuccessListener(stage.getResultExecutor(), result -> {
+                    long resultNanos = System.nanoTime();
+                    detectHistogram.record(resultNanos - detectStart);
+                    if (!paused) {
+                        stage.onResult(result, frame);
+                        postProcessHistogram.record(System.nanoTime() - resultNanos);
+                    } else {
+                        stage.onDiscarded(result);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    detectHistogram.record(System.nanoTime() - detectStart);
+                    Log.e(TAG, "Detection failed", e);
+                    stage.onFailure(e);
+                })
+                // Bookkeeping only, so it runs inline on whichever thread completes the Task
+                .addOnCompleteListener(Runnable::run, task -> {
+                    if (controller != null) {
+                        controller.onComplete(startNanos);
+                    }
+                    sharedFrame.release();
+                });
+    }
+}
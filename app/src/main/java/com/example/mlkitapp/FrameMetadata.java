@@ -0,0 +1,54 @@
+package com.example.mlkitapp;
+
+/**
+ * Immutable description of the camera frame a detection result was computed from.
+ * Dimensions are in the un-rotated buffer orientation, as reported by ImageProxy. When only
+ * a region of the frame was analyzed, the dimensions are the region's and the crop offset
+ * locates it in the full frame.
+ */
+public final class FrameMetadata {
+    private final int width;
+    private final int height;
+    private final int rotationDegrees;
+    private final long timestampNanos;
+    private final int cropLeft;
+    private final int cropTop;
+
+    public FrameMetadata(int width, int height, int rotationDegrees, long timestampNanos) {
+        this(width, height, rotationDegrees, timestampNanos, 0, 0);
+    }
+
+    public FrameMetadata(int width, int height, int rotationDegrees, long timestampNanos,
+                         int cropLeft, int cropTop) {
+        this.width = width;
+        this.height = height;
+        this.rotationDegrees = rotationDegrees;
+        this.timestampNanos = timestampNanos;
+        this.cropLeft = cropLeft;
+        this.cropTop = cropTop;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getRotationDegrees() {
+        return rotationDegrees;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public int getCropLeft() {
+        return cropLeft;
+    }
+
+    public int getCropTop() {
+        return cropTop;
+    }
+}
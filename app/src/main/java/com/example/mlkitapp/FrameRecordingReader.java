@@ -0,0 +1,143 @@
+package com.example.mlkitapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a recording produced by {@link FrameRecordingWriter}. The whole file is mapped
+ * read-only and frames are returned as slices of that mapping, so replay never copies
+ * pixel data.
+ */
+public class FrameRecordingReader implements Closeable {
+    private final RandomAccessFile file;
+    private final MappedByteBuffer mapped;
+    private final int[] frameOffsets;
+
+    public FrameRecordingReader(File source) throws IOException {
+        file = new RandomAccessFile(source, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            if (size < FrameRecordingWriter.HEADER_SIZE) {
+                throw new IOException("Not a frame recording: file too short");
+            }
+            if (size > FrameRecordingWriter.MAX_FILE_SIZE) {
+                throw new IOException("Recording too large: " + size);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (mapped.getLong(0) != FrameRecordingWriter.MAGIC) {
+                throw new IOException("Not a frame recording: bad magic");
+            }
+            int version = mapped.getInt(8);
+            if (version != FrameRecordingWriter.VERSION) {
+                throw new IOException("Unsupported recording version: " + version);
+            }
+            frameOffsets = indexFrames(mapped, mapped.getInt(12));
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private static int[] indexFrames(ByteBuffer buffer, int declaredCount) throws IOException {
+        int[] offsets = new int[Math.max(declaredCount, 0)];
+        int count = 0;
+        int offset = FrameRecordingWriter.HEADER_SIZE;
+        int limit = buffer.limit();
+        // A recording that was never closed declares zero frames; walk whatever was written
+        while (offset + FrameRecordingWriter.FRAME_HEADER_SIZE <= limit) {
+            int recordLength = buffer.getInt(offset);
+            if (recordLength <= 0 || offset + 4L + recordLength > limit) {
+                break;
+            }
+            if (!planesFit(buffer, offset, recordLength)) {
+                throw new IOException("Corrupt frame record at offset " + offset);
+            }
+            if (count == offsets.length) {
+                int[] grown = new int[Math.max(16, offsets.length * 2)];
+                System.arraycopy(offsets, 0, grown, 0, count);
+                offsets = grown;
+            }
+            offsets[count++] = offset;
+            offset += 4 + recordLength;
+        }
+        if (declaredCount > 0 && count != declaredCount) {
+            throw new IOException("Recording truncated: expected " + declaredCount
+                    + " frames, found " + count);
+        }
+        if (count == offsets.length) {
+            return offsets;
+        }
+        int[] trimmed = new int[count];
+        System.arraycopy(offsets, 0, trimmed, 0, count);
+        return trimmed;
+    }
+
+    /**
+     * Checks that a record is long enough for its header and that the plane lengths it
+     * declares fit inside it, so {@link #getFrame} never reads past the record.
+     */
+    private static boolean planesFit(ByteBuffer buffer, int offset, int recordLength) {
+        int headerLength = FrameRecordingWriter.FRAME_HEADER_SIZE - 4;
+        if (recordLength < headerLength) {
+            return false;
+        }
+        long total = 0;
+        for (int i = 0; i < YuvFrame.PLANE_COUNT; i++) {
+            int length = buffer.getInt(offset + 4 + 20 + i * 12 + 8);
+            if (length < 0) {
+                return false;
+            }
+            total += length;
+        }
+        return total <= recordLength - headerLength;
+    }
+
+    public int getFrameCount() {
+        return frameOffsets.length;
+    }
+
+    /**
+     * Returns frame {@code index} backed by the mapped file. Closing the returned frame
+     * runs {@code onClose}, which may be null.
+     */
+    public YuvFrame getFrame(int index, Runnable onClose) {
+        int offset = frameOffsets[index] + 4;
+        long timestamp = mapped.getLong(offset);
+        int width = mapped.getInt(offset + 8);
+        int height = mapped.getInt(offset + 12);
+        int rotation = mapped.getInt(offset + 16);
+
+        int headerOffset = offset + 20;
+        int dataOffset = headerOffset + YuvFrame.PLANE_COUNT * 12;
+        ByteBuffer[] planes = new ByteBuffer[YuvFrame.PLANE_COUNT];
+        int[] rowStrides = new int[YuvFrame.PLANE_COUNT];
+        int[] pixelStrides = new int[YuvFrame.PLANE_COUNT];
+        for (int i = 0; i < YuvFrame.PLANE_COUNT; i++) {
+            rowStrides[i] = mapped.getInt(headerOffset + i * 12);
+            pixelStrides[i] = mapped.getInt(headerOffset + i * 12 + 4);
+            int length = mapped.getInt(headerOffset + i * 12 + 8);
+
+            ByteBuffer plane = mapped.duplicate();
+            plane.position(dataOffset);
+            plane.limit(dataOffset + length);
+            planes[i] = plane.slice().asReadOnlyBuffer();
+            dataOffset += length;
+        }
+        return new YuvFrame(width, height, rotation, timestamp,
+                planes, rowStrides, pixelStrides, onClose);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
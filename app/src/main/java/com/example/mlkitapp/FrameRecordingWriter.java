@@ -0,0 +1,115 @@
+package com.example.mlkitapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Appends raw YUV_420_888 frames to a memory-mapped recording file.
+ *
+ * <p>Layout (little endian): a 16-byte header holding the magic {@code SNAPYUV1}, the
+ * format version and the frame count, followed by one record per frame. A record starts
+ * with its length, then timestamp, width, height and rotation, then the row stride, pixel
+ * stride and byte length of each plane, then the plane bytes exactly as the camera laid
+ * them out.
+ */
+public class FrameRecordingWriter implements Closeable {
+    static final long MAGIC = 0x3156555950414E53L; // "SNAPYUV1" read little endian
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int FRAME_HEADER_SIZE = 4 + 8 + 4 * 3 + YuvFrame.PLANE_COUNT * 4 * 3;
+    static final long MAX_FILE_SIZE = Integer.MAX_VALUE;
+
+    private static final int MAP_CHUNK_SIZE = 32 * 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position = HEADER_SIZE;
+    private int frameCount = 0;
+    private boolean closed = false;
+
+    public FrameRecordingWriter(File target) throws IOException {
+        file = new RandomAccessFile(target, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        remap(0, HEADER_SIZE);
+        window.putLong(MAGIC);
+        window.putInt(VERSION);
+        window.putInt(0);
+    }
+
+    /**
+     * Appends one frame. The frame's planes are read but not consumed or closed.
+     */
+    public synchronized void write(YuvFrame frame) throws IOException {
+        if (closed) {
+            throw new IOException("Recording already closed");
+        }
+
+        int payload = 0;
+        for (int i = 0; i < YuvFrame.PLANE_COUNT; i++) {
+            payload += frame.getPlane(i).remaining();
+        }
+        int recordSize = FRAME_HEADER_SIZE + payload;
+        if (position + recordSize > MAX_FILE_SIZE) {
+            throw new IOException("Recording is full");
+        }
+        if (position + recordSize > windowStart + window.capacity()) {
+            remap(position, recordSize);
+        }
+
+        window.position((int) (position - windowStart));
+        window.putInt(recordSize - 4);
+        window.putLong(frame.getTimestampNanos());
+        window.putInt(frame.getWidth());
+        window.putInt(frame.getHeight());
+        window.putInt(frame.getRotationDegrees());
+        for (int i = 0; i < YuvFrame.PLANE_COUNT; i++) {
+            window.putInt(frame.getRowStride(i));
+            window.putInt(frame.getPixelStride(i));
+            window.putInt(frame.getPlane(i).remaining());
+        }
+        for (int i = 0; i < YuvFrame.PLANE_COUNT; i++) {
+            window.put(frame.getPlane(i));
+        }
+
+        position += recordSize;
+        frameCount++;
+    }
+
+    public synchronized int getFrameCount() {
+        return frameCount;
+    }
+
+    private void remap(long start, int minSize) throws IOException {
+        long size = Math.min(Math.max(MAP_CHUNK_SIZE, minSize), MAX_FILE_SIZE - start);
+        window = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = start;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            window.force();
+            window = null;
+            ByteBuffer count = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            count.putInt(0, frameCount);
+            channel.write(count, 12);
+            channel.truncate(position);
+        } finally {
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.mlkitapp;
+
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds a recording back to a {@link FrameSink} the way the camera would.
+ *
+ * <p>At {@link Pacing#RECORDED} speed frames are released on their original timeline and,
+ * like {@code STRATEGY_KEEP_ONLY_LATEST}, a frame that comes due while the sink still holds
+ * the previous one is dropped. At {@link Pacing#MAXIMUM} speed the next frame is delivered
+ * as soon as the sink closes the previous one, which measures raw pipeline throughput.
+ */
+public class FrameReplaySource {
+
+    public enum Pacing {
+        RECORDED,
+        MAXIMUM
+    }
+
+    public interface FrameSink {
+        /**
+         * Receives a frame; the sink must close it once it no longer reads the planes.
+         */
+        void onFrame(YuvFrame frame);
+    }
+
+    private final FrameRecordingReader reader;
+    private final Clock clock;
+    private volatile boolean cancelled = false;
+
+    public FrameReplaySource(FrameRecordingReader reader, Clock clock) {
+        this.reader = reader;
+        this.clock = clock;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Replays every frame on the calling thread and returns once the sink has closed the
+     * last delivered frame.
+     */
+    public Result replay(FrameSink sink, Pacing pacing) throws InterruptedException {
+        Semaphore available = new Semaphore(1);
+        Runnable release = available::release;
+        int delivered = 0;
+        int dropped = 0;
+
+        long startNanos = clock.nanoTime();
+        long firstTimestamp = 0;
+        for (int i = 0; i < reader.getFrameCount() && !cancelled; i++) {
+            YuvFrame frame = reader.getFrame(i, release);
+            if (pacing == Pacing.RECORDED) {
+                if (i == 0) {
+                    firstTimestamp = frame.getTimestampNanos();
+                }
+                long dueNanos = startNanos + (frame.getTimestampNanos() - firstTimestamp);
+                long waitNanos;
+                while ((waitNanos = dueNanos - clock.nanoTime()) > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                if (!available.tryAcquire()) {
+                    dropped++;
+                    continue;
+                }
+            } else {
+                available.acquire();
+            }
+            delivered++;
+            sink.onFrame(frame);
+        }
+
+        // Wait for the sink to finish with the last frame
+        while (!available.tryAcquire(10, TimeUnit.MILLISECONDS)) {
+            if (cancelled) {
+                break;
+            }
+        }
+        return new Result(delivered, dropped, clock.nanoTime() - startNanos);
+    }
+
+    public static final class Result {
+        private final int deliveredFrames;
+        private final int droppedFrames;
+        private final long elapsedNanos;
+
+        Result(int deliveredFrames, int droppedFrames, long elapsedNanos) {
+            this.deliveredFrames = deliveredFrames;
+            this.droppedFrames = droppedFrames;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getDeliveredFrames() {
+            return deliveredFrames;
+        }
+
+        public int getDroppedFrames() {
+            return droppedFrames;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getFramesPerSecond() {
+            return elapsedNanos > 0 ? deliveredFrames * 1e9 / elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "delivered=" + deliveredFrames + " dropped=" + droppedFrames
+                    + " elapsedMs=" + elapsedNanos / 1_000_000
+                    + " fps=" + String.format(Locale.US, "%.1f", getFramesPerSecond());
+        }
+    }
+}
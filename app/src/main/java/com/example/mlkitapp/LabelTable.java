@@ -0,0 +1,46 @@
+package com.example.mlkitapp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns detection label strings as small int IDs, so detection frames carry labels in a
+ * primitive array. A label seen before costs one map lookup; only new labels allocate.
+ * Thread-safe: labels are added on detector threads and looked up on the UI thread.
+ */
+public final class LabelTable {
+    /** ID of a missing label. */
+    public static final int NO_LABEL = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * Returns the ID of {@code label}, adding it if it is new, or {@link #NO_LABEL} for null.
+     */
+    public synchronized int idOf(String label) {
+        if (label == null) {
+            return NO_LABEL;
+        }
+        Integer id = ids.get(label);
+        if (id == null) {
+            id = names.size();
+            ids.put(label, id);
+            names.add(label);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the label with the given ID, or {@code fallback} for {@link #NO_LABEL}.
+     */
+    public synchronized String nameOf(int id, String fallback) {
+        return id >= 0 && id < names.size() ? names.get(id) : fallback;
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+}
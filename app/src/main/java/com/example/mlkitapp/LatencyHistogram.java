@@ -0,0 +1,141 @@
+package com.example.mlkitapp;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, lock-free histogram of latencies in nanoseconds.
+ * Buckets follow the HdrHistogram layout: each power of two is split into 64 linear
+ * sub-buckets, so any recorded value is reported within about 1.6% of its true value.
+ * Values from 1 ns up to about 68 s are tracked; longer values are clamped to the top bucket.
+ * {@link #record(long)} may be called from any thread without blocking. Readers see a
+ * slightly fuzzy view while writers are active, which is fine for monitoring.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = 6;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+    private static final int SUB_BUCKET_COUNT = SUB_BUCKET_HALF_COUNT * 2;
+    private static final long SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+    private static final int LEADING_ZERO_COUNT_BASE = 64 - SUB_BUCKET_HALF_COUNT_MAGNITUDE - 1;
+
+    /** Largest value tracked exactly; 2^36 ns is a little over 68 seconds. */
+    static final long HIGHEST_TRACKABLE_NANOS = (1L << 36) - 1;
+
+    private static final int BUCKET_COUNT = bucketsNeeded(HIGHEST_TRACKABLE_NANOS);
+    static final int COUNTS_LENGTH = (BUCKET_COUNT + 1) * SUB_BUCKET_HALF_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(COUNTS_LENGTH);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private static int bucketsNeeded(long highestTrackable) {
+        long smallestUntrackable = SUB_BUCKET_COUNT;
+        int buckets = 1;
+        while (smallestUntrackable <= highestTrackable) {
+            smallestUntrackable <<= 1;
+            buckets++;
+        }
+        return buckets;
+    }
+
+    /**
+     * Records one latency sample. Negative values count as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, HIGHEST_TRACKABLE_NANOS));
+        counts.incrementAndGet(countsIndex(value));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos} on the given clock.
+     */
+    public void recordSince(Clock clock, long startNanos) {
+        record(clock.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : totalNanos.get() / count;
+    }
+
+    /**
+     * Returns the value at the given percentile (0-100), or 0 when nothing was recorded.
+     * The result is the highest value that shares a bucket with the exact percentile, so
+     * it never under-reports.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        double clamped = Math.max(0, Math.min(100, percentile));
+        long target = Math.max(1, (long) Math.ceil(clamped / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Clears all samples. Samples recorded while the reset runs may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    static int countsIndex(long value) {
+        int bucketIndex = LEADING_ZERO_COUNT_BASE - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE)
+                + (subBucketIndex - SUB_BUCKET_HALF_COUNT);
+    }
+
+    static long highestEquivalentValue(int index) {
+        int bucketIndex = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+        int subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+        if (bucketIndex < 0) {
+            subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+            bucketIndex = 0;
+        }
+        long lowest = (long) subBucketIndex << bucketIndex;
+        return lowest + (1L << bucketIndex) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "n=%d mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms",
+                getCount(),
+                getMeanNanos() / 1e6,
+                getValueAtPercentile(50) / 1e6,
+                getValueAtPercentile(90) / 1e6,
+                getValueAtPercentile(99) / 1e6,
+                getValueAtPercentile(99.9) / 1e6,
+                getMaxNanos() / 1e6);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.mlkitapp;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named set of {@link LatencyHistogram}s, one per pipeline stage.
+ * Look a histogram up once and keep the reference; recording into it never locks.
+ */
+public final class LatencyRegistry {
+    /** Camera timestamp to analyzer entry. */
+    public static final String QUEUE = "queue";
+    /** Building the InputImage from the camera frame. */
+    public static final String INPUT_IMAGE = "inputImage";
+    /** Suffix for a detector's process() Task, from submission to its result listener. */
+    public static final String DETECT = ".detect";
+    /** Suffix for a stage's result handling on the main thread. */
+    public static final String POST_PROCESS = ".postProcess";
+    /** Suffix for an overlay's invalidate() to onDraw(). */
+    public static final String DRAW = ".draw";
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the histogram with the given name, creating it on first use.
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Returns the histogram with the given name, or null if nothing registered it.
+     */
+    public LatencyHistogram get(String name) {
+        return histograms.get(name);
+    }
+
+    public List<String> getNames() {
+        List<String> names = new ArrayList<>(histograms.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    public void resetAll() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Writes one line per histogram, sorted by name.
+     */
+    public void writeTo(Writer writer) throws IOException {
+        for (String name : getNames()) {
+            writer.write(name);
+            writer.write(": ");
+            writer.write(histograms.get(name).toString());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    public void writeTo(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        try (Writer writer = new FileWriter(file)) {
+            writeTo(writer);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.mlkitapp;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Single-slot handoff of the newest value from producer threads to a consumer thread.
+ * Publishing swaps the value in atomically and hands back the unconsumed value it replaced,
+ * so a slow consumer only ever sees the latest result instead of a queue of stale ones.
+ * <p>
+ * The return value of {@link #publish} also tells the producer whether to wake the
+ * consumer: null means the slot was empty, so no pull is pending and one must be scheduled;
+ * a replaced value means a pull was already scheduled and will pick up the new one. That
+ * keeps at most one wake-up in flight however fast results arrive. Lock-free.
+ */
+public final class LatestValueChannel<T> {
+    private final AtomicReference<T> slot = new AtomicReference<>();
+
+    /**
+     * Makes {@code value} the newest value.
+     *
+     * @return the value it replaced, which the consumer will never see and the caller now
+     *         owns, or null when the slot was empty and the consumer needs waking
+     */
+    public T publish(T value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value must not be null");
+        }
+        return slot.getAndSet(value);
+    }
+
+    /**
+     * Takes the newest value, or null when nothing was published since the last take.
+     */
+    public T take() {
+        return slot.getAndSet(null);
+    }
+}
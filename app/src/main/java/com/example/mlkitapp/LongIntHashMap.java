@@ -0,0 +1,131 @@
+package com.example.mlkitapp;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to int values, with no boxing and no per-entry
+ * objects. Lookups and updates allocate nothing until the table has to grow.
+ * Not thread-safe.
+ */
+public final class LongIntHashMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int resizeThreshold;
+
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(long key) {
+        return used[slotOf(key)];
+    }
+
+    public int get(long key, int defaultValue) {
+        int slot = slotOf(key);
+        return used[slot] ? values[slot] : defaultValue;
+    }
+
+    public void put(long key, int value) {
+        int slot = slotOf(key);
+        if (!used[slot]) {
+            insert(slot, key, value);
+        } else {
+            values[slot] = value;
+        }
+    }
+
+    /**
+     * Adds {@code delta} to the value for {@code key}, treating a missing key as 0.
+     *
+     * @return the new value
+     */
+    public int addTo(long key, int delta) {
+        int slot = slotOf(key);
+        if (!used[slot]) {
+            insert(slot, key, delta);
+            return delta;
+        }
+        values[slot] += delta;
+        return values[slot];
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void insert(int slot, long key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        if (++size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Returns the slot holding {@code key}, or the empty slot where it would go.
+     */
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        // Linear probing stays short below half full
+        resizeThreshold = capacity / 2;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity / 2 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int mix(long key) {
+        // Murmur3 finalizer, so sequential or low-entropy keys still spread across the table
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
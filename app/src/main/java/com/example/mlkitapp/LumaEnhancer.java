@@ -0,0 +1,338 @@
+package com.example.mlkitapp;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Contrast enhancement for OCR that rewrites a luma plane in place.
+ * Two modes are available: a global 256-entry lookup table, and tiled CLAHE (contrast
+ * limited adaptive histogram equalization) for unevenly or dimly lit text. Rows are split
+ * into stripes processed in parallel, and all work buffers are kept between calls, so a
+ * steady stream of same-sized captures allocates nothing but the stripe bookkeeping.
+ * Calls are serialized; one enhancer serves one capture at a time.
+ */
+public final class LumaEnhancer implements AutoCloseable {
+    public static final int LUT_SIZE = 256;
+
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    // One row buffer per stripe
+    private byte[][] rowScratch;
+    // CLAHE state, sized for the last plane and tile grid seen
+    private int[] tileHistograms = new int[0];
+    private byte[] tileLuts = new byte[0];
+    private int[] columnTile = new int[0];
+    private int[] columnTileNext = new int[0];
+    private int[] columnWeight = new int[0];
+
+    /**
+     * @param parallelism number of stripes processed at once, including the calling thread
+     */
+    public LumaEnhancer(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        this.rowScratch = new byte[parallelism][0];
+        if (parallelism == 1) {
+            executor = null;
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(parallelism - 1, r -> {
+                Thread thread = new Thread(r, "LumaEnhancer-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Builds the lookup table for {@code out = contrast * in + brightness}, clamped to 0-255.
+     * This is the curve the old ColorMatrix enhancement applied to each RGB channel.
+     */
+    public static byte[] contrastLut(float contrast, int brightness) {
+        byte[] lut = new byte[LUT_SIZE];
+        for (int v = 0; v < LUT_SIZE; v++) {
+            lut[v] = (byte) clamp(Math.round(contrast * v + brightness));
+        }
+        return lut;
+    }
+
+    /**
+     * Applies {@code lut} to the red, green and blue channels of ARGB pixels in place.
+     */
+    public static void applyLutArgb(int[] pixels, int offset, int count, byte[] lut) {
+        for (int i = offset, end = offset + count; i < end; i++) {
+            int p = pixels[i];
+            int r = lut[(p >> 16) & 0xFF] & 0xFF;
+            int g = lut[(p >> 8) & 0xFF] & 0xFF;
+            int b = lut[p & 0xFF] & 0xFF;
+            pixels[i] = (p & 0xFF000000) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    /**
+     * Maps every pixel of a luma plane through {@code lut}. The plane starts at the buffer's
+     * position; bytes between {@code width} and {@code rowStride} are left alone.
+     *
+     * @throws java.nio.ReadOnlyBufferException if the plane cannot be written
+     */
+    public synchronized void applyLut(ByteBuffer plane, int width, int height, int rowStride,
+                                      byte[] lut) {
+        checkPlane(plane, width, height, rowStride);
+        if (lut.length != LUT_SIZE) {
+            throw new IllegalArgumentException("lut must have " + LUT_SIZE + " entries");
+        }
+        ensureRowScratch(width);
+        int base = plane.position();
+        runStripes(height, (stripe, startRow, endRow) -> {
+            byte[] row = rowScratch[stripe];
+            ByteBuffer view = plane.duplicate();
+            for (int y = startRow; y < endRow; y++) {
+                int rowStart = base + y * rowStride;
+                view.position(rowStart);
+                view.get(row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    row[x] = lut[row[x] & 0xFF];
+                }
+                view.position(rowStart);
+                view.put(row, 0, width);
+            }
+        });
+    }
+
+    /**
+     * Equalizes a luma plane per tile, limiting each tile's histogram to {@code clipLimit}
+     * times its mean bin height so noise in flat areas is not blown up. Tile results are
+     * blended bilinearly to avoid seams.
+     *
+     * @throws java.nio.ReadOnlyBufferException if the plane cannot be written
+     */
+    public synchronized void applyClahe(ByteBuffer plane, int width, int height, int rowStride,
+                                        int tilesX, int tilesY, float clipLimit) {
+        checkPlane(plane, width, height, rowStride);
+        if (tilesX < 1 || tilesY < 1 || tilesX > width || tilesY > height) {
+            throw new IllegalArgumentException("Invalid tile grid " + tilesX + "x" + tilesY);
+        }
+        if (clipLimit < 1) {
+            throw new IllegalArgumentException("clipLimit must be at least 1");
+        }
+        ensureRowScratch(width);
+        ensureTileBuffers(width, tilesX * tilesY);
+
+        int tileWidth = (width + tilesX - 1) / tilesX;
+        int tileHeight = (height + tilesY - 1) / tilesY;
+        int base = plane.position();
+
+        for (int x = 0; x < width; x++) {
+            columnTile[x] = Math.min(x / tileWidth, tilesX - 1);
+        }
+        buildHistograms(plane, base, width, height, rowStride, tilesX, tilesY, tileHeight);
+        buildTileLuts(tilesX * tilesY, clipLimit);
+
+        // Interpolation weights between neighbouring tile centres, in 1/256ths
+        for (int x = 0; x < width; x++) {
+            float position = (x + 0.5f) / tileWidth - 0.5f;
+            int tile = Math.max(0, Math.min(tilesX - 1, (int) Math.floor(position)));
+            columnTile[x] = tile;
+            columnTileNext[x] = Math.min(tile + 1, tilesX - 1);
+            columnWeight[x] = weight(position - tile);
+        }
+
+        runStripes(height, (stripe, startRow, endRow) -> {
+            byte[] row = rowScratch[stripe];
+            ByteBuffer view = plane.duplicate();
+            for (int y = startRow; y < endRow; y++) {
+                float position = (y + 0.5f) / tileHeight - 0.5f;
+                int tileRow = Math.max(0, Math.min(tilesY - 1, (int) Math.floor(position)));
+                int tileRowNext = Math.min(tileRow + 1, tilesY - 1);
+                int wy = weight(position - tileRow);
+                int topBase = tileRow * tilesX;
+                int bottomBase = tileRowNext * tilesX;
+
+                int rowStart = base + y * rowStride;
+                view.position(rowStart);
+                view.get(row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    int v = row[x] & 0xFF;
+                    int left = columnTile[x];
+                    int right = columnTileNext[x];
+                    int wx = columnWeight[x];
+                    int top = (tileLuts[((topBase + left) << 8) + v] & 0xFF) * (256 - wx)
+                            + (tileLuts[((topBase + right) << 8) + v] & 0xFF) * wx;
+                    int bottom = (tileLuts[((bottomBase + left) << 8) + v] & 0xFF) * (256 - wx)
+                            + (tileLuts[((bottomBase + right) << 8) + v] & 0xFF) * wx;
+                    row[x] = (byte) ((top * (256 - wy) + bottom * wy + (1 << 15)) >> 16);
+                }
+                view.position(rowStart);
+                view.put(row, 0, width);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void buildHistograms(ByteBuffer plane, int base, int width, int height,
+                                 int rowStride, int tilesX, int tilesY, int tileHeight) {
+        int histogramCount = tilesX * tilesY * LUT_SIZE;
+        for (int i = 0; i < histogramCount; i++) {
+            tileHistograms[i] = 0;
+        }
+        // Stripes own whole tile rows so no two threads touch the same histogram
+        runStripes(tilesY, (stripe, startTileRow, endTileRow) -> {
+            byte[] row = rowScratch[stripe];
+            ByteBuffer view = plane.duplicate();
+            int endRow = Math.min(height, endTileRow * tileHeight);
+            for (int y = startTileRow * tileHeight; y < endRow; y++) {
+                int tileBase = Math.min(y / tileHeight, tilesY - 1) * tilesX;
+                view.position(base + y * rowStride);
+                view.get(row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    tileHistograms[((tileBase + columnTile[x]) << 8) + (row[x] & 0xFF)]++;
+                }
+            }
+        });
+    }
+
+    private void buildTileLuts(int tileCount, float clipLimit) {
+        for (int tile = 0; tile < tileCount; tile++) {
+            int offset = tile << 8;
+            int total = 0;
+            for (int v = 0; v < LUT_SIZE; v++) {
+                total += tileHistograms[offset + v];
+            }
+            if (total == 0) {
+                for (int v = 0; v < LUT_SIZE; v++) {
+                    tileLuts[offset + v] = (byte) v;
+                }
+                continue;
+            }
+
+            int limit = Math.max(1, (int) (clipLimit * total / LUT_SIZE));
+            int excess = 0;
+            for (int v = 0; v < LUT_SIZE; v++) {
+                int count = tileHistograms[offset + v];
+                if (count > limit) {
+                    excess += count - limit;
+                    tileHistograms[offset + v] = limit;
+                }
+            }
+            // Spread the clipped counts evenly; the remainder goes to the lowest bins
+            int share = excess / LUT_SIZE;
+            int remainder = excess % LUT_SIZE;
+            int cumulative = 0;
+            for (int v = 0; v < LUT_SIZE; v++) {
+                cumulative += tileHistograms[offset + v] + share + (v < remainder ? 1 : 0);
+                tileLuts[offset + v] = (byte) clamp((int) ((long) cumulative * 255 / total));
+            }
+        }
+    }
+
+    private interface StripeTask {
+        void run(int stripe, int startRow, int endRow);
+    }
+
+    /**
+     * Splits {@code rows} into stripes and runs them on the pool, keeping the first stripe
+     * on the calling thread. Returns once every stripe is done.
+     */
+    private void runStripes(int rows, StripeTask task) {
+        int stripes = Math.min(parallelism, rows);
+        if (stripes <= 1) {
+            task.run(0, 0, rows);
+            return;
+        }
+
+        CountDownLatch done = new CountDownLatch(stripes - 1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int s = 1; s < stripes; s++) {
+            int stripe = s;
+            int startRow = (int) ((long) rows * s / stripes);
+            int endRow = (int) ((long) rows * (s + 1) / stripes);
+            executor.execute(() -> {
+                try {
+                    task.run(stripe, startRow, endRow);
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        try {
+            task.run(0, 0, rows / stripes);
+        } finally {
+            awaitUninterruptibly(done);
+        }
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t != null) {
+            throw new IllegalStateException("Enhancement stripe failed", t);
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void ensureRowScratch(int width) {
+        if (rowScratch[0].length < width) {
+            for (int i = 0; i < parallelism; i++) {
+                rowScratch[i] = new byte[width];
+            }
+        }
+    }
+
+    private void ensureTileBuffers(int width, int tileCount) {
+        if (tileHistograms.length < tileCount * LUT_SIZE) {
+            tileHistograms = new int[tileCount * LUT_SIZE];
+            tileLuts = new byte[tileCount * LUT_SIZE];
+        }
+        if (columnTile.length < width) {
+            columnTile = new int[width];
+            columnTileNext = new int[width];
+            columnWeight = new int[width];
+        }
+    }
+
+    private static void checkPlane(ByteBuffer plane, int width, int height, int rowStride) {
+        if (width <= 0 || height <= 0 || rowStride < width) {
+            throw new IllegalArgumentException("Invalid plane " + width + "x" + height
+                    + " with row stride " + rowStride);
+        }
+        if (plane.remaining() < (long) (height - 1) * rowStride + width) {
+            throw new IllegalArgumentException("Plane buffer is too small");
+        }
+    }
+
+    private static int weight(float fraction) {
+        return Math.max(0, Math.min(256, Math.round(fraction * 256)));
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -17,6 +17,7 @@ import com.google.android.material.navigation.NavigationBarView;
 
 public class MainActivity extends AppCompatActivity {
     private Button btnTextRecognition, btnFaceDetection, btnBarcodeScanning, btnObjectDetection;
+    private Button btnCombinedScanner;
 
 
     @Override
@@ -29,6 +30,7 @@ public class MainActivity extends AppCompatActivity {
         btnBarcodeScanning = findViewById(R.id.btn_barcode_scanning);
 
         btnObjectDetection = findViewById(R.id.btn_object_detection);
+        btnCombinedScanner = findViewById(R.id.btn_combined_scanner);
         btnTextRecognition.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -62,6 +64,14 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
+        btnCombinedScanner.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                Intent intent = new Intent(MainActivity.this, CombinedScannerActivity.class);
+                startActivity(intent);
+            }
+        });
+
         BottomNavigationView bottomNavigationView = findViewById(R.id.bottom_navigation);
         bottomNavigationView.setOnItemSelectedListener(item -> {
             if (item.getItemId() == R.id.nav_features) {
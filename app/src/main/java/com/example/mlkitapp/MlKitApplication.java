@@ -0,0 +1,60 @@
+package com.example.mlkitapp;
+
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the process-wide {@link DetectorRegistry}, so ML Kit clients outlive the screens that
+ * use them and re-entering a screen does not reload its model.
+ */
+public class MlKitApplication extends Application {
+    private static final String TAG = "MlKitApplication";
+    // Unused clients stay loaded this long before the next acquire closes them
+    private static final long DETECTOR_IDLE_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    private DetectorRegistry detectorRegistry;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        ExecutorService warmUpExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "DetectorWarmUp");
+            thread.setDaemon(true);
+            return thread;
+        });
+        detectorRegistry = new DetectorRegistry(
+                Clock.SYSTEM, DETECTOR_IDLE_TIMEOUT_NANOS, warmUpExecutor);
+        detectorRegistry.setWarmUpFailureListener(
+                (key, e) -> Log.w(TAG, "Warm-up of " + key + " failed", e));
+    }
+
+    public DetectorRegistry getDetectorRegistry() {
+        return detectorRegistry;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Keep models loaded while the user moves between screens; free them once the app
+        // is in the background or the system runs short of memory
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            int closed = detectorRegistry.evictAllIdle();
+            Log.d(TAG, "onTrimMemory(" + level + ") closed " + closed + " idle detectors");
+        } else {
+            detectorRegistry.evictIdle();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        detectorRegistry.evictAllIdle();
+    }
+}
@@ -6,54 +6,59 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.mlkit.vision.objects.DetectedObject;
-
 import java.util.ArrayList;
 import java.util.List;
 
-public class ObjectAdapter extends RecyclerView.Adapter<ObjectAdapter.ObjectViewHolder> {
-    
-    private List<DetectedObjectItem> objectList = new ArrayList<>();
-    
-    public static class DetectedObjectItem {
-        String label;
-        float confidence;
-        
-        public DetectedObjectItem(String label, float confidence) {
-            this.label = label;
-            this.confidence = confidence;
-        }
-    }
-    
-    public void updateObjects(List<DetectedObject> detectedObjects) {
-        objectList.clear();
-        
-        for (DetectedObject object : detectedObjects) {
-            // Get the label with highest confidence for each object
-            String labelText = "Unknown";
-            float confidence = 0f;
-            
-            List<DetectedObject.Label> labels = object.getLabels();
-            if (labels != null && !labels.isEmpty()) {
-                for (DetectedObject.Label label : labels) {
-                    if (label.getConfidence() > confidence) {
-                        confidence = label.getConfidence();
-                        String text = label.getText();
-                        if (text != null && !text.isEmpty()) {
-                            labelText = text;
-                        }
-                    }
+/**
+ * Result list for the object screen. Each frame becomes a list of immutable rows keyed by
+ * tracking ID; the diff against the previous list runs on a background thread and only
+ * rows whose visible text changed are rebound. Confidence is compared at the one decimal
+ * the row shows, so jitter below that does not rebind anything.
+ */
+public class ObjectAdapter extends ListAdapter<ObjectAdapter.ObjectRow, ObjectAdapter.ObjectViewHolder> {
+
+    private static final DiffUtil.ItemCallback<ObjectRow> DIFF =
+            new DiffUtil.ItemCallback<ObjectRow>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull ObjectRow a, @NonNull ObjectRow b) {
+                    return a.key == b.key;
                 }
-            }
-            
-            objectList.add(new DetectedObjectItem(labelText, confidence));
+
+                @Override
+                public boolean areContentsTheSame(@NonNull ObjectRow a, @NonNull ObjectRow b) {
+                    return a.confidencePermille == b.confidencePermille && a.label.equals(b.label);
+                }
+            };
+
+    public ObjectAdapter() {
+        super(DIFF);
+        setHasStableIds(true);
+    }
+
+    /**
+     * Copies the frame into rows and submits them for diffing; the frame can be released
+     * as soon as this returns. Main thread only.
+     */
+    public void updateObjects(DetectionFrame frame) {
+        int count = frame.getCount();
+        float[] scores = frame.getScores();
+        List<ObjectRow> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new ObjectRow(frame.getStableKey(i), frame.getLabel(i, "Unknown"),
+                    Math.round(Math.max(0f, scores[i]) * 1000)));
         }
-        
-        notifyDataSetChanged();
+        submitList(rows);
     }
-    
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).key;
+    }
+
     @NonNull
     @Override
     public ObjectViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -64,13 +69,20 @@ public class ObjectAdapter extends RecyclerView.Adapter<ObjectAdapter.ObjectView
     
     @Override
     public void onBindViewHolder(@NonNull ObjectViewHolder holder, int position) {
-        DetectedObjectItem item = objectList.get(position);
-        holder.bind(item);
+        ObjectRow row = getItem(position);
+        holder.bind(row.label, row.confidencePermille);
     }
-    
-    @Override
-    public int getItemCount() {
-        return objectList.size();
+
+    static final class ObjectRow {
+        final long key;
+        final String label;
+        final int confidencePermille;
+
+        ObjectRow(long key, String label, int confidencePermille) {
+            this.key = key;
+            this.label = label;
+            this.confidencePermille = confidencePermille;
+        }
     }
     
     static class ObjectViewHolder extends RecyclerView.ViewHolder {
@@ -83,9 +95,9 @@ public class ObjectAdapter extends RecyclerView.Adapter<ObjectAdapter.ObjectView
             tvConfidence = itemView.findViewById(R.id.tv_confidence);
         }
         
-        public void bind(DetectedObjectItem item) {
-            tvObjectName.setText(item.label);
-            tvConfidence.setText(String.format("%.1f%%", item.confidence * 100));
+        public void bind(String label, int confidencePermille) {
+            tvObjectName.setText(label);
+            tvConfidence.setText(String.format("%.1f%%", confidencePermille / 10f));
         }
     }
 }
\ No newline at end of file
@@ -4,7 +4,6 @@ import android.Manifest;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.util.Log;
-import android.util.Size;
 import android.view.View;
 import android.widget.Button;
 import android.widget.ImageButton;
@@ -19,9 +18,7 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.Camera;
 import androidx.camera.core.CameraSelector;
-import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.core.ImageAnalysis;
-import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
@@ -31,28 +28,56 @@ import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.gms.tasks.Task;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.mlkit.vision.common.InputImage;
-import com.google.mlkit.vision.objects.ObjectDetection;
+import com.google.mlkit.vision.objects.DetectedObject;
 import com.google.mlkit.vision.objects.ObjectDetector;
-import com.google.mlkit.vision.objects.defaults.ObjectDetectorOptions;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-@androidx.annotation.OptIn(markerClass = ExperimentalGetImage.class)
 public class ObjectDetectionActivity extends AppCompatActivity {
     private static final String TAG = "ObjectDetectionActivity";
     private static final int REQUEST_CODE_PERMISSIONS = 10;
     private static final String[] REQUIRED_PERMISSIONS = new String[]{Manifest.permission.CAMERA};
+    private static final float TARGET_ANALYSIS_FPS = 10f;
+    // Single-image mode has no ML Kit tracking, so IDs come from a BoxTracker instead
+    private static final int MAX_TRACKS = 16;
+    private static final float TRACK_IOU_THRESHOLD = 0.3f;
+    private static final int TRACK_MAX_MISSED = 3;
+    // The list is for reading, so it refreshes slower than the overlay
+    private static final float MAX_LIST_UPDATES_PER_SECOND = 8f;
+    // Analysis sizes to choose from at runtime; smaller objects are missed or misclassified
+    private static final int[][] ANALYSIS_RESOLUTIONS = {{360, 640}, {720, 1280}, {1080, 1920}};
+    private static final int INITIAL_RESOLUTION = 1;
+    private static final float MIN_OBJECT_PIXELS = 64f;
+
+    /** Path of a frame recording to analyze instead of the live camera. */
+    public static final String EXTRA_REPLAY_PATH = "com.example.mlkitapp.REPLAY_PATH";
+    /** Replay as fast as the detector allows instead of on the recorded timeline. */
+    public static final String EXTRA_REPLAY_MAX_SPEED = "com.example.mlkitapp.REPLAY_MAX_SPEED";
 
     private PreviewView previewView;
     private ObjectDetectionOverlay objectOverlay;
     private Camera camera;
-    private ExecutorService cameraExecutor;
-    private ObjectDetector objectDetector;
-    private boolean isPaused = false;
+    private FrameAnalysisPipeline analysisPipeline;
+    private FrameAdmissionController admissionController;
+    private SwappableClient<DetectorRegistry.Handle<ObjectDetector>> objectDetector;
+    // Builds and warms replacement detectors off the main thread
+    private final ExecutorService detectorSetupExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "DetectorSetup");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private FrameRecordingWriter frameRecorder;
+    // Set on the replay thread, cancelled from onDestroy
+    private volatile FrameReplaySource replaySource;
     
     // UI elements
     private RecyclerView rvObjects;
@@ -68,7 +93,14 @@ public class ObjectDetectionActivity extends AppCompatActivity {
     private ObjectAdapter objectAdapter;
     private float confidenceThreshold = 0.5f;
     private boolean isMultipleDetection = true;
-    private boolean isTrackingEnabled = false;
+    // Read by the stage on the detector's completion thread
+    private volatile boolean isTrackingEnabled = false;
+    // Guarded by itself: updated from results, cleared from the tracking toggle
+    private final BoxTracker boxTracker =
+            new BoxTracker(MAX_TRACKS, TRACK_IOU_THRESHOLD, TRACK_MAX_MISSED, 1);
+    // Results are copied into these frames off the main thread and recycled
+    private final DetectionFramePool framePool = DetectionFrames.newObjectPool();
+    private ThrottledFrameFeed listFeed;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -94,28 +126,60 @@ public class ObjectDetectionActivity extends AppCompatActivity {
         objectAdapter = new ObjectAdapter();
         rvObjects.setLayoutManager(new LinearLayoutManager(this));
         rvObjects.setAdapter(objectAdapter);
+        listFeed = new ThrottledFrameFeed(rvObjects, MAX_LIST_UPDATES_PER_SECOND,
+                objectAdapter::updateObjects);
 
         // Set up ML Kit Object Detector with default options
-        setupObjectDetector();
+        objectDetector = new SwappableClient<>(
+                DetectorClients.objects(this, isTrackingEnabled, isMultipleDetection));
+        ObjectStage objectStage = new ObjectStage();
+        analysisPipeline = new FrameAnalysisPipeline(objectStage);
+        objectOverlay.setDrawLatencyHistogram(analysisPipeline.getLatencyRegistry()
+                .histogram("ObjectOverlay" + LatencyRegistry.DRAW));
+        admissionController = new FrameAdmissionController(Clock.SYSTEM, TARGET_ANALYSIS_FPS);
+        analysisPipeline.setResolutionController(new ResolutionController(
+                ANALYSIS_RESOLUTIONS, INITIAL_RESOLUTION, TARGET_ANALYSIS_FPS, MIN_OBJECT_PIXELS),
+                admissionController);
+
+        String replayPath = getIntent().getStringExtra(EXTRA_REPLAY_PATH);
+        boolean replayMaxSpeed = getIntent().getBooleanExtra(EXTRA_REPLAY_MAX_SPEED, false);
+        // Throughput replays must see every frame, so they bypass frame admission
+        if (replayPath == null || !replayMaxSpeed) {
+            analysisPipeline.setAdmissionController(objectStage, admissionController);
+        }
 
         // Set up button listeners
         btnCaptureFreeze.setOnClickListener(v -> {
-            if (isPaused) {
+            if (analysisPipeline.isPaused()) {
                 // Resume analysis
-                isPaused = false;
+                analysisPipeline.setPaused(false);
                 objectOverlay.resumeAnalysis();
                 btnCaptureFreeze.setText("Capture");
             } else {
                 // Pause analysis
-                isPaused = true;
+                analysisPipeline.setPaused(true);
                 objectOverlay.pauseAnalysis();
                 btnCaptureFreeze.setText("Resume");
             }
         });
 
+        analysisPipeline.setRecorderFailureListener((writer, e) -> runOnUiThread(() -> {
+            if (writer == frameRecorder) {
+                stopRecording();
+                Toast.makeText(this, "Frame recording failed", Toast.LENGTH_SHORT).show();
+            }
+        }));
+        // Long-press records the raw analyzer frames for offline replay
+        btnCaptureFreeze.setOnLongClickListener(v -> {
+            toggleRecording();
+            return true;
+        });
+
         toggleTracking.setOnCheckedChangeListener((buttonView, isChecked) -> {
             isTrackingEnabled = isChecked;
-            objectOverlay.setTrackingMode(isTrackingEnabled);
+            synchronized (boxTracker) {
+                boxTracker.clear();
+            }
             
             // Recreate the object detector with new options
             setupObjectDetector();
@@ -152,32 +216,37 @@ public class ObjectDetectionActivity extends AppCompatActivity {
             }
         });
 
+        if (replayPath != null) {
+            startReplay(new File(replayPath), replayMaxSpeed);
+            return;
+        }
+
         // Request camera permissions
         if (allPermissionsGranted()) {
             startCamera();
         } else {
             ActivityCompat.requestPermissions(this, REQUIRED_PERMISSIONS, REQUEST_CODE_PERMISSIONS);
         }
-
-        cameraExecutor = Executors.newSingleThreadExecutor();
     }
 
+    /**
+     * Replaces the detector with one built from the current settings. The new detector is
+     * built and warmed on a background thread while the old one keeps serving frames, then
+     * swapped in; the old one is released once its in-flight frames finish.
+     */
     private void setupObjectDetector() {
-        if (objectDetector != null) {
-            objectDetector.close();
-        }
-        
-        ObjectDetectorOptions.Builder builder = new ObjectDetectorOptions.Builder()
-                .setDetectorMode(isTrackingEnabled ? 
-                        ObjectDetectorOptions.STREAM_MODE : 
-                        ObjectDetectorOptions.SINGLE_IMAGE_MODE)
-                .enableClassification();
-                
-        if (isMultipleDetection) {
-            builder.enableMultipleObjects();
-        }
-        
-        objectDetector = ObjectDetection.getClient(builder.build());
+        boolean streamMode = isTrackingEnabled;
+        boolean multipleObjects = isMultipleDetection;
+        long generation = objectDetector.beginSwap();
+        detectorSetupExecutor.execute(() -> {
+            DetectorRegistry.Handle<ObjectDetector> detector =
+                    DetectorClients.objects(this, streamMode, multipleObjects);
+            // Waits for the registry's warm-up, whether this acquire or an earlier one started it
+            DetectorClients.awaitWarmUp(detector);
+            if (objectDetector.completeSwap(generation, detector)) {
+                Log.d(TAG, "Object detector replaced with " + detector.getKey());
+            }
+        });
     }
 
     private void applySettings() {
@@ -202,19 +271,15 @@ public class ObjectDetectionActivity extends AppCompatActivity {
                 Preview preview = new Preview.Builder().build();
                 preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
-                // Image analysis use case
-                ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                        .setTargetResolution(new Size(720, 1280))
-                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                        .build();
-
-                imageAnalysis.setAnalyzer(cameraExecutor, this::processImageForObjectDetection);
-
                 // Select back camera as a default
                 CameraSelector cameraSelector = new CameraSelector.Builder()
                         .requireLensFacing(CameraSelector.LENS_FACING_BACK)
                         .build();
 
+                // Image analysis use case
+                ImageAnalysis imageAnalysis =
+                        analysisPipeline.createImageAnalysis(cameraProvider, this, cameraSelector);
+
                 // Unbind use cases before rebinding
                 cameraProvider.unbindAll();
 
@@ -228,38 +293,120 @@ public class ObjectDetectionActivity extends AppCompatActivity {
         }, ContextCompat.getMainExecutor(this));
     }
 
-    @ExperimentalGetImage
-    private void processImageForObjectDetection(ImageProxy imageProxy) {
+    private void toggleRecording() {
+        if (frameRecorder != null) {
+            stopRecording();
+            Toast.makeText(this, "Frame recording stopped", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        File directory = new File(getExternalFilesDir(null), "recordings");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Toast.makeText(this, "Cannot create recordings folder", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        File target = new File(directory, "objects-" + System.currentTimeMillis() + ".yuvrec");
+        try {
+            frameRecorder = new FrameRecordingWriter(target);
+            analysisPipeline.setRecorder(frameRecorder);
+            Toast.makeText(this, "Recording frames to " + target.getName(), Toast.LENGTH_SHORT).show();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to start frame recording", e);
+            Toast.makeText(this, "Failed to start recording", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void stopRecording() {
+        if (frameRecorder == null) {
+            return;
+        }
+        analysisPipeline.setRecorder(null);
         try {
-            if (isPaused || imageProxy.getImage() == null) {
-                imageProxy.close();
+            Log.i(TAG, "Recorded " + frameRecorder.getFrameCount() + " frames");
+            frameRecorder.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to finish frame recording", e);
+        }
+        frameRecorder = null;
+    }
+
+    private void startReplay(File recording, boolean maxSpeed) {
+        FrameReplaySource.Pacing pacing = maxSpeed
+                ? FrameReplaySource.Pacing.MAXIMUM
+                : FrameReplaySource.Pacing.RECORDED;
+        Thread replayThread = new Thread(() -> {
+            try (FrameRecordingReader reader = new FrameRecordingReader(recording)) {
+                FrameReplaySource source = new FrameReplaySource(reader, Clock.SYSTEM);
+                replaySource = source;
+                if (isDestroyed()) {
+                    // onDestroy ran before the source was published
+                    return;
+                }
+                FrameReplaySource.Result result = source.replay(analysisPipeline, pacing);
+                Log.i(TAG, "Replay of " + recording.getName() + " finished: " + result);
+                runOnUiThread(() -> Toast.makeText(this,
+                        "Replay finished: " + result, Toast.LENGTH_LONG).show());
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to replay " + recording, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "FrameReplay");
+        replayThread.start();
+    }
+
+    private class ObjectStage implements FrameAnalysisPipeline.DetectorStage<DetectionFrame> {
+        @Override
+        public Task<DetectionFrame> process(InputImage image) {
+            SwappableClient.Lease<DetectorRegistry.Handle<ObjectDetector>> lease =
+                    objectDetector.acquire();
+            if (lease == null) {
+                throw new IllegalStateException("Object detector is closed");
+            }
+            Task<List<DetectedObject>> task;
+            try {
+                task = lease.get().get().process(image);
+            } catch (RuntimeException e) {
+                lease.release();
+                throw e;
+            }
+            // Released inline on whichever thread completes the Task
+            task.addOnCompleteListener(Runnable::run, done -> lease.release());
+            return DetectionFrames.objects(task, framePool);
+        }
+
+        @Override
+        public void onResult(DetectionFrame result, FrameMetadata frame) {
+            if (result == null) {
                 return;
             }
+            result.setImage(frame.getWidth(), frame.getHeight(),
+                    FrameAnalysisPipeline.captureTimeToNanoTime(frame.getTimestampNanos()));
+            if (!isTrackingEnabled) {
+                // Single-image mode has no ML Kit tracking IDs; the BoxTracker fills them in
+                synchronized (boxTracker) {
+                    boxTracker.setImageSize(result.getWidth(), result.getHeight());
+                    boxTracker.update(result.getBoxes(), result.getCount(),
+                            frame.getTimestampNanos(), result.getTrackingIds());
+                }
+            }
+            objectOverlay.publish(result);
+            listFeed.publish(result);
+            analysisPipeline.reportSubjectSize(result.getSmallestExtent());
+            result.release();
+        }
 
-            InputImage image = InputImage.fromMediaImage(
-                    imageProxy.getImage(),
-                    imageProxy.getImageInfo().getRotationDegrees()
-            );
-
-            objectDetector.process(image)
-                    .addOnSuccessListener(detectedObjects -> {
-                        if (!isPaused) {
-                            objectAdapter.updateObjects(detectedObjects);
-                            objectOverlay.updateObjects(
-                                    detectedObjects,
-                                    imageProxy.getWidth(),
-                                    imageProxy.getHeight()
-                            );
-                        }
-                        imageProxy.close();
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Object detection failed", e);
-                        imageProxy.close();
-                    });
-        } catch (Exception e) {
-            Log.e(TAG, "Error processing image for object detection", e);
-            imageProxy.close();
+        @Override
+        public void onDiscarded(DetectionFrame result) {
+            if (result != null) {
+                result.release();
+            }
+        }
+
+        @Override
+        public Executor getResultExecutor() {
+            // The overlay and list pull the newest frame themselves
+            return Runnable::run;
         }
     }
 
@@ -292,11 +439,18 @@ public class ObjectDetectionActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (objectDetector != null) {
-            objectDetector.close();
-        }
-        if (cameraExecutor != null) {
-            cameraExecutor.shutdown();
+        // Drop late results; the analyzer thread itself is shared across screens
+        analysisPipeline.setPaused(true);
+        stopRecording();
+        if (replaySource != null) {
+            replaySource.cancel();
         }
+        Log.d(TAG, "Frame admission: " + admissionController.getStats());
+        analysisPipeline.dumpLatency(new File(getExternalFilesDir(null),
+                "latency/objects-" + System.currentTimeMillis() + ".txt"));
+        // Releases the current detector once in-flight frames finish, and drops pending swaps
+        objectDetector.close();
+        detectorSetupExecutor.shutdown();
+        listFeed.close();
     }
 }
\ No newline at end of file
@@ -4,21 +4,24 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Rect;
-import android.graphics.RectF;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.View;
 
 import androidx.annotation.Nullable;
 
-import com.google.mlkit.vision.objects.DetectedObject;
-
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-
 public class ObjectDetectionOverlay extends View {
-    private List<DetectedObject> objects = new ArrayList<>();
+    // Boxes keep moving this long past their capture time, enough to span a slow detector
+    private static final long MAX_EXTRAPOLATION_NANOS = 300_000_000L;
+    // A new result's correction is eased in over this long instead of jumping
+    private static final long BLEND_NANOS = 100_000_000L;
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+
+    // The result on screen; the overlay holds a share of it until the next one arrives
+    @Nullable
+    private DetectionFrame frame;
+    private int[] visibleIndices = new int[8];
+    private int visibleCount = 0;
     private final Paint boxPaint;
     private final Paint textBackgroundPaint;
     private final Paint textPaint;
@@ -26,12 +29,31 @@ public class ObjectDetectionOverlay extends View {
             Color.RED, Color.GREEN, Color.BLUE, Color.YELLOW, Color.CYAN,
             Color.MAGENTA, Color.DKGRAY, Color.rgb(255, 128, 0)
     };
-    private int previewWidth;
-    private int previewHeight;
     private boolean isAnalyzing = true;
-    private boolean isTrackingMode = false;
     private float confidenceThreshold = 0.5f;
     private boolean singleObjectMode = false;
+    private LatencyHistogram drawLatency;
+    // Newest result not drawn yet, handed over from detector threads
+    private final LatestValueChannel<DetectionFrame> pendingFrame = new LatestValueChannel<>();
+    // When the newest result was published, for the draw latency histogram
+    private volatile long publishedAtNanos = 0;
+    private final Runnable invalidateOnAnimation = this::postInvalidateOnAnimation;
+
+    // Moves boxes between results so they redraw smoothly at display rate
+    private final BoxInterpolator interpolator =
+            new BoxInterpolator(MAX_EXTRAPOLATION_NANOS, BLEND_NANOS, VELOCITY_SMOOTHING);
+    private final float[] drawnBox = new float[4];
+    // Maps, batches and labels the boxes without allocating per draw
+    private final OverlayRenderer renderer;
+    private final OverlayLabelCache.Numbers idLabels;
+    // Vsync time of the frame being drawn, or 0 when the draw was not from the callback
+    private long vsyncNanos = 0;
+    private boolean frameCallbackPosted = false;
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> {
+        frameCallbackPosted = false;
+        vsyncNanos = frameTimeNanos;
+        invalidate();
+    };
 
     public ObjectDetectionOverlay(Context context) {
         this(context, null);
@@ -56,45 +78,56 @@ public class ObjectDetectionOverlay extends View {
         textPaint = new Paint();
         textPaint.setColor(Color.WHITE);
         textPaint.setTextSize(36.0f);
+
+        renderer = new OverlayRenderer(textPaint);
+        idLabels = renderer.getLabels().numbers("ID: ", "");
     }
 
-    public void updateObjects(List<DetectedObject> objects, int previewWidth, int previewHeight) {
-        if (singleObjectMode && objects.size() > 1) {
-            // In single object mode, find the object with highest confidence
-            DetectedObject bestObject = objects.get(0);
-            float highestConfidence = 0f;
-            
-            for (DetectedObject object : objects) {
-                for (DetectedObject.Label label : object.getLabels()) {
-                    if (label.getConfidence() > highestConfidence) {
-                        highestConfidence = label.getConfidence();
-                        bestObject = object;
-                    }
-                }
-            }
-            
-            this.objects = Arrays.asList(bestObject);
+    /**
+     * Hands the overlay a new result; may be called from any thread. The overlay takes its
+     * own share of the frame and picks up the newest one at its next draw, so results that
+     * arrive faster than the display refreshes are released unseen rather than queued.
+     * The caller keeps and releases its own share. Tracking IDs in the frame, from ML Kit
+     * or a {@link BoxTracker}, label the boxes.
+     */
+    public void publish(DetectionFrame frame) {
+        publishedAtNanos = System.nanoTime();
+        DetectionFrames.handOff(frame, pendingFrame, invalidateOnAnimation);
+    }
+
+    /**
+     * Makes a frame taken from the channel the one on screen; the overlay already owns
+     * its share. Main thread only.
+     */
+    private void showFrame(DetectionFrame frame) {
+        int count = frame.getCount();
+        if (visibleIndices.length < count) {
+            visibleIndices = new int[count];
+        }
+        interpolator.setImageSize(frame.getWidth(), frame.getHeight());
+        interpolator.update(frame.getTrackingIds(), frame.getBoxes(), count,
+                frame.getCaptureNanos(), System.nanoTime());
+
+        float[] scores = frame.getScores();
+        if (singleObjectMode && count > 1) {
+            // In single object mode, keep only the object with the highest confidence
+            visibleIndices[0] = DetectionFilters.argMax(scores, count);
+            visibleCount = 1;
         } else {
             // Filter by confidence threshold
-            List<DetectedObject> filteredObjects = new ArrayList<>();
-            for (DetectedObject object : objects) {
-                for (DetectedObject.Label label : object.getLabels()) {
-                    if (label.getConfidence() >= confidenceThreshold) {
-                        filteredObjects.add(object);
-                        break;
-                    }
-                }
-            }
-            this.objects = filteredObjects;
+            visibleCount = DetectionFilters.filterAtLeast(
+                    scores, count, confidenceThreshold, visibleIndices);
         }
-        
-        this.previewWidth = previewWidth;
-        this.previewHeight = previewHeight;
-        invalidate();
+
+        releaseFrame();
+        this.frame = frame;
     }
 
-    public void setTrackingMode(boolean trackingMode) {
-        this.isTrackingMode = trackingMode;
+    private void releaseFrame() {
+        if (frame != null) {
+            frame.release();
+            frame = null;
+        }
     }
 
     public void setConfidenceThreshold(float threshold) {
@@ -105,67 +138,86 @@ public class ObjectDetectionOverlay extends View {
         this.singleObjectMode = singleMode;
     }
 
+    /**
+     * Records the delay between a new result's publish and the draw that shows it.
+     */
+    public void setDrawLatencyHistogram(@Nullable LatencyHistogram histogram) {
+        this.drawLatency = histogram;
+    }
+
     public void pauseAnalysis() {
         isAnalyzing = false;
+        stopAnimating();
     }
 
     public void resumeAnalysis() {
         isAnalyzing = true;
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        stopAnimating();
+        releaseFrame();
+        DetectionFrames.drain(pendingFrame);
+        visibleCount = 0;
+    }
+
+    private void stopAnimating() {
+        if (frameCallbackPosted) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            frameCallbackPosted = false;
+        }
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-
-        if (!isAnalyzing || objects == null || objects.isEmpty()) return;
-
-        float scaleX = (float) getWidth() / previewWidth;
-        float scaleY = (float) getHeight() / previewHeight;
-
-        for (int i = 0; i < objects.size(); i++) {
-            DetectedObject object = objects.get(i);
-            
-            // Draw bounding box
-            int colorIndex = i % colors.length;
-            boxPaint.setColor(colors[colorIndex]);
-            
-            Rect bounds = object.getBoundingBox();
-            float left = bounds.left * scaleX;
-            float top = bounds.top * scaleY;
-            float right = bounds.right * scaleX;
-            float bottom = bounds.bottom * scaleY;
-            
-            canvas.drawRect(left, top, right, bottom, boxPaint);
-            
-            // Get the label with highest confidence
-            String labelText = "Unknown";
-            float confidence = 0f;
-            
-            for (DetectedObject.Label label : object.getLabels()) {
-                if (label.getConfidence() > confidence) {
-                    confidence = label.getConfidence();
-                    labelText = label.getText();
-                    if (labelText == null || labelText.isEmpty()) {
-                        labelText = "Unknown";
-                    }
-                }
+        DetectionFrame next = pendingFrame.take();
+        if (next != null) {
+            if (drawLatency != null) {
+                drawLatency.record(System.nanoTime() - publishedAtNanos);
             }
-            
-            // Draw label with background
-            String displayText = labelText + " " + String.format("%.1f%%", confidence * 100);
-            float textWidth = textPaint.measureText(displayText);
-            float textPadding = 8f;
-            
-            // Background for text
-            canvas.drawRect(left, top - 40f, left + textWidth + 2 * textPadding, top, textBackgroundPaint);
-            
-            // Text itself
-            canvas.drawText(displayText, left + textPadding, top - 10f, textPaint);
-            
-            // Draw tracking ID if available and tracking mode is on
-            if (isTrackingMode && object.getTrackingId() != null) {
-                String trackingId = "ID: " + object.getTrackingId();
-                canvas.drawText(trackingId, left + textPadding, top - 50f, textPaint);
+            showFrame(next);
+        }
+        long drawNanos = vsyncNanos != 0 ? vsyncNanos : System.nanoTime();
+        vsyncNanos = 0;
+
+        if (!isAnalyzing || frame == null || visibleCount == 0) return;
+
+        // Keep redrawing every vsync while any box is still moving
+        if (!frameCallbackPosted && interpolator.isMoving(drawNanos)) {
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+            frameCallbackPosted = true;
+        }
+
+        OverlayBoxBuffer boxes = renderer.getBoxes();
+        boxes.setTransform(frame.getWidth(), frame.getHeight(), 0, false, getWidth(), getHeight());
+        boxes.clear();
+        for (int i = 0; i < visibleCount; i++) {
+            interpolator.boxAt(visibleIndices[i], drawNanos, drawnBox, 0);
+            boxes.addBox(drawnBox[0], drawnBox[1], drawnBox[2], drawnBox[3],
+                    colors[i % colors.length]);
+        }
+        renderer.drawBoxes(canvas, boxPaint);
+
+        float textPadding = 8f;
+        for (int i = 0; i < visibleCount; i++) {
+            int objectIndex = visibleIndices[i];
+            float left = boxes.getLeft(i);
+            float top = boxes.getTop(i);
+
+            // Label with highest confidence, selected when the result arrived
+            OverlayLabelCache.Entry label = renderer.getLabels().percent(
+                    frame.getLabel(objectIndex, "Unknown"),
+                    Math.max(0f, frame.getScores()[objectIndex]));
+            renderer.drawLabel(canvas, label, left, top, 40f, textPadding, 10f,
+                    textBackgroundPaint, textPaint);
+
+            // Tracking ID from ML Kit or the BoxTracker, when the object has one
+            int id = frame.getTrackingIds()[objectIndex];
+            if (id != BoxTracker.NO_ID) {
+                canvas.drawText(idLabels.get(id).text, left + textPadding, top - 50f, textPaint);
             }
         }
     }
@@ -0,0 +1,195 @@
+package com.example.mlkitapp;
+
+import java.util.Arrays;
+
+/**
+ * One frame's worth of overlay geometry, already mapped to view coordinates.
+ * Boxes are kept as struct-of-arrays floats with a color slot each, so a frame is drawn
+ * with one line batch per color instead of one call per box, and points (landmarks) go
+ * into a single batch. The image-to-view mapping is shared by every overlay: scale to the
+ * view, rotate by {@code rotationDegrees} through {@link BoxTransform}, then optionally
+ * mirror for the front camera. Buffers grow as needed and are reused; filling and batching
+ * do not allocate once warmed up. Not thread-safe; use it from the UI thread.
+ */
+public final class OverlayBoxBuffer {
+    private int rotationDegrees = 0;
+    private boolean mirrored = false;
+    private float scaleX = 1f;
+    private float scaleY = 1f;
+    private int viewWidth;
+    private int viewHeight;
+
+    private int boxCount = 0;
+    private float[] lefts = new float[16];
+    private float[] tops = new float[16];
+    private float[] rights = new float[16];
+    private float[] bottoms = new float[16];
+    private int[] colors = new int[16];
+
+    private int pointCount = 0;
+    private float[] points = new float[64];
+    private float[] lines = new float[16 * 16];
+    private final float[] mapped = new float[4];
+
+    /**
+     * Sets the mapping from image pixels to view pixels. For 90 and 270 degrees the image
+     * is shown sideways, so its width spans the view's height.
+     */
+    public void setTransform(int imageWidth, int imageHeight, int rotationDegrees,
+                             boolean mirrored, int viewWidth, int viewHeight) {
+        this.rotationDegrees = rotationDegrees;
+        this.mirrored = mirrored;
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+        if (imageWidth <= 0 || imageHeight <= 0) {
+            scaleX = 1f;
+            scaleY = 1f;
+        } else if (rotationDegrees == 90 || rotationDegrees == 270) {
+            scaleX = (float) viewWidth / imageHeight;
+            scaleY = (float) viewHeight / imageWidth;
+        } else {
+            scaleX = (float) viewWidth / imageWidth;
+            scaleY = (float) viewHeight / imageHeight;
+        }
+    }
+
+    /**
+     * Empties the buffer for a new frame. The transform is kept.
+     */
+    public void clear() {
+        boxCount = 0;
+        pointCount = 0;
+    }
+
+    /**
+     * Maps an image-space box into the buffer and returns its index.
+     */
+    public int addBox(float left, float top, float right, float bottom, int color) {
+        if (boxCount == lefts.length) {
+            int capacity = boxCount * 2;
+            lefts = Arrays.copyOf(lefts, capacity);
+            tops = Arrays.copyOf(tops, capacity);
+            rights = Arrays.copyOf(rights, capacity);
+            bottoms = Arrays.copyOf(bottoms, capacity);
+            colors = Arrays.copyOf(colors, capacity);
+        }
+        map(left, top, right, bottom);
+        int index = boxCount++;
+        lefts[index] = Math.min(mapped[0], mapped[2]);
+        tops[index] = Math.min(mapped[1], mapped[3]);
+        rights[index] = Math.max(mapped[0], mapped[2]);
+        bottoms[index] = Math.max(mapped[1], mapped[3]);
+        colors[index] = color;
+        return index;
+    }
+
+    /**
+     * Maps an image-space point into the point batch.
+     */
+    public void addPoint(float x, float y) {
+        if (pointCount * 2 == points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        map(x, y, x, y);
+        points[pointCount * 2] = mapped[0];
+        points[pointCount * 2 + 1] = mapped[1];
+        pointCount++;
+    }
+
+    private void map(float left, float top, float right, float bottom) {
+        BoxTransform.map(rotationDegrees, left, top, right, bottom, scaleX, scaleY,
+                viewWidth, viewHeight, mapped, 0);
+        if (mirrored) {
+            float mappedLeft = mapped[0];
+            mapped[0] = viewWidth - mapped[2];
+            mapped[2] = viewWidth - mappedLeft;
+        }
+    }
+
+    /**
+     * Writes the outlines of every box with the given color as line segments, four per
+     * box in the x0, y0, x1, y1 layout Canvas.drawLines takes.
+     *
+     * @return the number of floats written into {@link #getLines()}
+     */
+    public int buildLines(int color) {
+        int needed = boxCount * 16;
+        if (lines.length < needed) {
+            lines = new float[needed];
+        }
+        int n = 0;
+        for (int i = 0; i < boxCount; i++) {
+            if (colors[i] != color) {
+                continue;
+            }
+            float l = lefts[i];
+            float t = tops[i];
+            float r = rights[i];
+            float b = bottoms[i];
+            n = segment(n, l, t, r, t);
+            n = segment(n, r, t, r, b);
+            n = segment(n, r, b, l, b);
+            n = segment(n, l, b, l, t);
+        }
+        return n;
+    }
+
+    private int segment(int n, float x0, float y0, float x1, float y1) {
+        lines[n] = x0;
+        lines[n + 1] = y0;
+        lines[n + 2] = x1;
+        lines[n + 3] = y1;
+        return n + 4;
+    }
+
+    /**
+     * Returns the distinct colors in use, in first-use order, written into {@code out}.
+     * {@code out} must hold at least {@link #getBoxCount()} entries.
+     */
+    public int distinctColors(int[] out) {
+        int distinct = 0;
+        outer:
+        for (int i = 0; i < boxCount; i++) {
+            int color = colors[i];
+            for (int j = 0; j < distinct; j++) {
+                if (out[j] == color) {
+                    continue outer;
+                }
+            }
+            out[distinct++] = color;
+        }
+        return distinct;
+    }
+
+    public float[] getLines() {
+        return lines;
+    }
+
+    public float[] getPoints() {
+        return points;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public int getBoxCount() {
+        return boxCount;
+    }
+
+    public float getLeft(int index) {
+        return lefts[index];
+    }
+
+    public float getTop(int index) {
+        return tops[index];
+    }
+
+    public float getRight(int index) {
+        return rights[index];
+    }
+
+    public float getBottom(int index) {
+        return bottoms[index];
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.mlkitapp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formatted overlay labels and their measured widths, cached by value so drawing a label
+ * that was drawn before neither formats nor measures text. Confidence labels are keyed by
+ * label and tenth of a percent; numeric labels such as tracking IDs by their int value.
+ * Each cache is bounded and starts over when full. Not thread-safe; use it from the UI thread.
+ */
+public final class OverlayLabelCache {
+    // Tenths of a percent from 0.0% to 100.0%
+    private static final int PERCENT_STEPS = 1001;
+
+    /**
+     * Measures the drawn width of a string, usually Paint::measureText.
+     */
+    public interface Measurer {
+        float measure(String text);
+    }
+
+    public static final class Entry {
+        public final String text;
+        public final float width;
+
+        Entry(String text, float width) {
+            this.text = text;
+            this.width = width;
+        }
+    }
+
+    /**
+     * Labels made of a fixed prefix and suffix around an int, such as "ID: 12".
+     */
+    public final class Numbers {
+        private final String prefix;
+        private final String suffix;
+        private final LongIntHashMap slots = new LongIntHashMap();
+        private final List<Entry> entries = new ArrayList<>();
+
+        private Numbers(String prefix, String suffix) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        public Entry get(int value) {
+            int slot = slots.get(value, -1);
+            if (slot >= 0) {
+                return entries.get(slot);
+            }
+            if (entries.size() >= maxEntries) {
+                // Tracking IDs only grow, so drop them all rather than track recency
+                slots.clear();
+                entries.clear();
+            }
+            String text = prefix + value + suffix;
+            Entry entry = new Entry(text, measurer.measure(text));
+            slots.put(value, entries.size());
+            entries.add(entry);
+            return entry;
+        }
+    }
+
+    private final Measurer measurer;
+    private final int maxEntries;
+    private final Map<String, Entry[]> percentLabels = new HashMap<>();
+
+    public OverlayLabelCache(Measurer measurer, int maxEntries) {
+        this.measurer = measurer;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns "label 87.3%" for a confidence between 0 and 1.
+     */
+    public Entry percent(String label, float confidence) {
+        Entry[] steps = percentLabels.get(label);
+        if (steps == null) {
+            if (percentLabels.size() >= maxEntries) {
+                percentLabels.clear();
+            }
+            steps = new Entry[PERCENT_STEPS];
+            percentLabels.put(label, steps);
+        }
+        int tenths = Math.max(0, Math.min(PERCENT_STEPS - 1, Math.round(confidence * 1000f)));
+        Entry entry = steps[tenths];
+        if (entry == null) {
+            String text = label + " " + (tenths / 10) + "." + (tenths % 10) + "%";
+            entry = new Entry(text, measurer.measure(text));
+            steps[tenths] = entry;
+        }
+        return entry;
+    }
+
+    /**
+     * Creates a cache of numeric labels. Call once and keep it; lookups do not allocate.
+     */
+    public Numbers numbers(String prefix, String suffix) {
+        return new Numbers(prefix, suffix);
+    }
+}
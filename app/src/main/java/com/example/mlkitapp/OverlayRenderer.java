@@ -0,0 +1,75 @@
+package com.example.mlkitapp;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * Shared drawing path for the detection overlays. An overlay fills {@link #getBoxes()} with
+ * image-space boxes and points each draw, then strokes them here: one drawLines call per
+ * box color and one drawPoints call for all points. Labels come from {@link #getLabels()},
+ * which keeps formatted strings and their widths so redraws do not format or measure text.
+ */
+public final class OverlayRenderer {
+    // Distinct labels (or label names for confidence labels) kept before the cache starts over
+    private static final int MAX_CACHED_LABELS = 256;
+
+    private final OverlayBoxBuffer boxes = new OverlayBoxBuffer();
+    private final OverlayLabelCache labels;
+    private int[] colorScratch = new int[8];
+
+    /**
+     * @param textPaint the paint labels are drawn with, used to measure them
+     */
+    public OverlayRenderer(Paint textPaint) {
+        labels = new OverlayLabelCache(textPaint::measureText, MAX_CACHED_LABELS);
+    }
+
+    public OverlayBoxBuffer getBoxes() {
+        return boxes;
+    }
+
+    public OverlayLabelCache getLabels() {
+        return labels;
+    }
+
+    /**
+     * Strokes every box in the buffer with {@code paint}, switching only its color.
+     * Square caps make the four separate edges meet like a drawRect outline.
+     */
+    public void drawBoxes(Canvas canvas, Paint paint) {
+        int boxCount = boxes.getBoxCount();
+        if (boxCount == 0) {
+            return;
+        }
+        if (colorScratch.length < boxCount) {
+            colorScratch = new int[Math.max(boxCount, colorScratch.length * 2)];
+        }
+        paint.setStrokeCap(Paint.Cap.SQUARE);
+        int colorCount = boxes.distinctColors(colorScratch);
+        for (int c = 0; c < colorCount; c++) {
+            paint.setColor(colorScratch[c]);
+            int floats = boxes.buildLines(colorScratch[c]);
+            canvas.drawLines(boxes.getLines(), 0, floats, paint);
+        }
+    }
+
+    /**
+     * Draws every point in the buffer as a dot of the paint's stroke width.
+     */
+    public void drawPoints(Canvas canvas, Paint paint) {
+        int pointCount = boxes.getPointCount();
+        if (pointCount > 0) {
+            canvas.drawPoints(boxes.getPoints(), 0, pointCount * 2, paint);
+        }
+    }
+
+    /**
+     * Draws a cached label on a background strip whose bottom-left corner is at (x, bottom).
+     */
+    public void drawLabel(Canvas canvas, OverlayLabelCache.Entry label, float x, float bottom,
+                          float height, float padding, float baselineOffset,
+                          Paint backgroundPaint, Paint textPaint) {
+        canvas.drawRect(x, bottom - height, x + label.width + 2 * padding, bottom, backgroundPaint);
+        canvas.drawText(label.text, x + padding, bottom - baselineOffset, textPaint);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.mlkitapp;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a camera frame open while several consumers read it and closes it exactly once,
+ * when the last consumer releases its share.
+ */
+public final class RefCountedFrame {
+    private final AutoCloseable frame;
+    private final AtomicInteger refCount;
+
+    public RefCountedFrame(AutoCloseable frame, int consumers) {
+        if (consumers < 1) {
+            throw new IllegalArgumentException("consumers must be at least 1");
+        }
+        this.frame = frame;
+        this.refCount = new AtomicInteger(consumers);
+    }
+
+    /**
+     * Adds one more consumer. Must be called while the caller still holds a share.
+     */
+    public void retain() {
+        if (refCount.getAndIncrement() <= 0) {
+            throw new IllegalStateException("Frame already closed");
+        }
+    }
+
+    /**
+     * Drops one share, closing the underlying frame when none remain.
+     */
+    public void release() {
+        int remaining = refCount.decrementAndGet();
+        if (remaining == 0) {
+            try {
+                frame.close();
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to close frame", e);
+            }
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Frame released more times than retained");
+        }
+    }
+
+    public int getRefCount() {
+        return refCount.get();
+    }
+}
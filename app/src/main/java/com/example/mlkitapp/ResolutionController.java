@@ -0,0 +1,164 @@
+package com.example.mlkitapp;
+
+/**
+ * Picks the analysis resolution from a ladder of sizes while a screen runs. Detection time
+ * grows roughly with pixel count, while small subjects (a distant face, a tiny barcode
+ * module) need enough pixels to be found at all; the controller steps down a rung when the
+ * detector cannot keep up with the target rate and the smallest subject would still be
+ * large enough, and steps up when a subject is too small and the larger size is predicted
+ * to fit the frame budget.
+ * <p>
+ * Rebinding the camera stream costs a visible hiccup, so changes are damped three ways:
+ * decisions are made per window of results, the same decision must win
+ * {@link #CONFIRM_WINDOWS} windows in a row, and no change happens within
+ * {@code minDwellNanos} of the last one. The step-down and step-up conditions also leave a
+ * gap between them, on latency and on subject size, so the result of one step never
+ * immediately argues for the opposite step.
+ * <p>
+ * Thread-safe; results are usually reported from the detector's completion thread.
+ */
+public final class ResolutionController {
+    /** Default shortest time between changes; a rebind stalls analysis for a moment. */
+    public static final long DEFAULT_MIN_DWELL_NANOS = 5_000_000_000L;
+    /** Results per decision window. */
+    static final int WINDOW_RESULTS = 15;
+    /** Consecutive windows that must agree before the resolution changes. */
+    static final int CONFIRM_WINDOWS = 2;
+    // Step down once latency exceeds the frame budget by this factor
+    private static final double OVER_BUDGET = 1.1;
+    // Step up only if the larger size's predicted latency is under this share of the budget
+    private static final double UNDER_BUDGET = 0.8;
+    // After stepping down, the smallest subject must still be this much over the minimum
+    private static final float SUBJECT_MARGIN = 1.25f;
+
+    private final Clock clock;
+    private final int[] widths;
+    private final int[] heights;
+    private final long frameBudgetNanos;
+    private final float minSubjectPixels;
+    private final long minDwellNanos;
+
+    private int tier;
+    private long lastChangeNanos;
+    private int windowResults = 0;
+    private long latestLatencyNanos = 0;
+    // Smallest subject in the window, in pixels at the current size; NaN when none
+    private float windowSmallestSubject = Float.NaN;
+    // Last window's decision (-1, 0 or +1) and how many windows in a row made it
+    private int pendingStep = 0;
+    private int pendingWindows = 0;
+
+    /**
+     * @param resolutions      width, height pairs, from fewest pixels to most, all with the
+     *                         same aspect ratio
+     * @param minSubjectPixels smallest subject size, on the scale passed to
+     *                         {@link #onResult}, the detector handles reliably
+     */
+    public ResolutionController(Clock clock, int[][] resolutions, int initialTier,
+                                float targetFps, float minSubjectPixels, long minDwellNanos) {
+        if (resolutions.length == 0 || initialTier < 0 || initialTier >= resolutions.length) {
+            throw new IllegalArgumentException("initialTier must index a resolution");
+        }
+        if (targetFps <= 0) {
+            throw new IllegalArgumentException("targetFps must be positive");
+        }
+        this.clock = clock;
+        widths = new int[resolutions.length];
+        heights = new int[resolutions.length];
+        for (int i = 0; i < resolutions.length; i++) {
+            widths[i] = resolutions[i][0];
+            heights[i] = resolutions[i][1];
+        }
+        this.tier = initialTier;
+        this.frameBudgetNanos = (long) (1_000_000_000L / targetFps);
+        this.minSubjectPixels = minSubjectPixels;
+        this.minDwellNanos = minDwellNanos;
+        this.lastChangeNanos = clock.nanoTime();
+    }
+
+    /**
+     * Controller on the system clock with the {@link #DEFAULT_MIN_DWELL_NANOS default dwell}.
+     */
+    public ResolutionController(int[][] resolutions, int initialTier, float targetFps,
+                                float minSubjectPixels) {
+        this(Clock.SYSTEM, resolutions, initialTier, targetFps, minSubjectPixels,
+                DEFAULT_MIN_DWELL_NANOS);
+    }
+
+    /**
+     * Reports one detector result.
+     *
+     * @param latencyNanos          the detector's current smoothed latency
+     * @param smallestSubjectPixels size of the smallest subject in this result, measured in
+     *                              the analyzed frame, or NaN when nothing was detected
+     * @return true when the resolution changed and the stream should be rebound at
+     *         {@link #getWidth()} x {@link #getHeight()}
+     */
+    public synchronized boolean onResult(long latencyNanos, float smallestSubjectPixels) {
+        windowResults++;
+        latestLatencyNanos = latencyNanos;
+        if (!Float.isNaN(smallestSubjectPixels) && (Float.isNaN(windowSmallestSubject)
+                || smallestSubjectPixels < windowSmallestSubject)) {
+            windowSmallestSubject = smallestSubjectPixels;
+        }
+        if (windowResults < WINDOW_RESULTS) {
+            return false;
+        }
+
+        int step = decide(latestLatencyNanos, windowSmallestSubject);
+        windowResults = 0;
+        windowSmallestSubject = Float.NaN;
+        if (step == 0) {
+            pendingStep = 0;
+            pendingWindows = 0;
+            return false;
+        }
+        pendingWindows = step == pendingStep ? pendingWindows + 1 : 1;
+        pendingStep = step;
+        long now = clock.nanoTime();
+        if (pendingWindows < CONFIRM_WINDOWS || now - lastChangeNanos < minDwellNanos) {
+            return false;
+        }
+        tier += step;
+        lastChangeNanos = now;
+        pendingStep = 0;
+        pendingWindows = 0;
+        return true;
+    }
+
+    public synchronized int getTier() {
+        return tier;
+    }
+
+    public synchronized int getWidth() {
+        return widths[tier];
+    }
+
+    public synchronized int getHeight() {
+        return heights[tier];
+    }
+
+    private int decide(long latencyNanos, float smallestSubject) {
+        boolean hasSubject = !Float.isNaN(smallestSubject);
+        if (tier > 0 && latencyNanos > frameBudgetNanos * OVER_BUDGET) {
+            float shrink = scale(tier - 1);
+            if (!hasSubject || smallestSubject * shrink >= minSubjectPixels * SUBJECT_MARGIN) {
+                return -1;
+            }
+        }
+        if (tier < widths.length - 1 && hasSubject && smallestSubject < minSubjectPixels) {
+            float grow = scale(tier + 1);
+            double predictedNanos = latencyNanos * (double) grow * grow;
+            if (predictedNanos <= frameBudgetNanos * UNDER_BUDGET) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    /** Linear scale from the current size to {@code otherTier}. */
+    private float scale(int otherTier) {
+        return (float) Math.min(widths[otherTier], heights[otherTier])
+                / Math.min(widths[tier], heights[tier]);
+    }
+}
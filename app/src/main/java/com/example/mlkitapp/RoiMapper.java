@@ -0,0 +1,86 @@
+package com.example.mlkitapp;
+
+/**
+ * Maps a rectangle drawn over a FILL_CENTER preview back into the camera buffer it shows.
+ * This is the inverse of {@link BoxTransform}: the preview scales the upright image until
+ * it covers the view and crops the overflow evenly, and the buffer itself is rotated by
+ * {@code rotationDegrees} relative to upright.
+ */
+public final class RoiMapper {
+
+    private RoiMapper() {
+    }
+
+    /**
+     * Writes the buffer-space rectangle as left, top, right, bottom into {@code out}, clamped
+     * to the buffer and widened to even coordinates so the 2x2-subsampled chroma planes
+     * line up with the luma plane.
+     *
+     * @return false if the rectangle lies outside the visible image or is smaller than
+     *         {@code minSize} pixels on either side after clamping
+     */
+    public static boolean mapViewRectToImage(float viewLeft, float viewTop, float viewRight,
+                                             float viewBottom, int viewWidth, int viewHeight,
+                                             int imageWidth, int imageHeight, int rotationDegrees,
+                                             int minSize, int[] out) {
+        if (viewWidth <= 0 || viewHeight <= 0 || imageWidth <= 0 || imageHeight <= 0) {
+            return false;
+        }
+        boolean swapped = rotationDegrees == 90 || rotationDegrees == 270;
+        int uprightWidth = swapped ? imageHeight : imageWidth;
+        int uprightHeight = swapped ? imageWidth : imageHeight;
+
+        // FILL_CENTER: scale to cover, centre the overflow
+        float scale = Math.max((float) viewWidth / uprightWidth, (float) viewHeight / uprightHeight);
+        float offsetX = (viewWidth - uprightWidth * scale) / 2f;
+        float offsetY = (viewHeight - uprightHeight * scale) / 2f;
+
+        float uLeft = (viewLeft - offsetX) / scale;
+        float uTop = (viewTop - offsetY) / scale;
+        float uRight = (viewRight - offsetX) / scale;
+        float uBottom = (viewBottom - offsetY) / scale;
+
+        float left;
+        float top;
+        float right;
+        float bottom;
+        switch (rotationDegrees) {
+            case 90:
+                left = uTop;
+                top = imageHeight - uRight;
+                right = uBottom;
+                bottom = imageHeight - uLeft;
+                break;
+            case 180:
+                left = imageWidth - uRight;
+                top = imageHeight - uBottom;
+                right = imageWidth - uLeft;
+                bottom = imageHeight - uTop;
+                break;
+            case 270:
+                left = imageWidth - uBottom;
+                top = uLeft;
+                right = imageWidth - uTop;
+                bottom = uRight;
+                break;
+            default: // 0 degrees
+                left = uLeft;
+                top = uTop;
+                right = uRight;
+                bottom = uBottom;
+        }
+
+        int l = Math.max(0, (int) Math.floor(left)) & ~1;
+        int t = Math.max(0, (int) Math.floor(top)) & ~1;
+        int r = Math.min(imageWidth, ((int) Math.ceil(right) + 1) & ~1);
+        int b = Math.min(imageHeight, ((int) Math.ceil(bottom) + 1) & ~1);
+        if (r - l < minSize || b - t < minSize) {
+            return false;
+        }
+        out[0] = l;
+        out[1] = t;
+        out[2] = r;
+        out[3] = b;
+        return true;
+    }
+}
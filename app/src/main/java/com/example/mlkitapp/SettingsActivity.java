@@ -21,9 +21,13 @@ public class SettingsActivity extends AppCompatActivity {
 
         SwitchCompat switchDarkMode = findViewById(R.id.switch_dark_mode);
         SwitchCompat switchNotifications = findViewById(R.id.switch_notifications);
+        SwitchCompat switchBarcodeRoi = findViewById(R.id.switch_barcode_roi);
+        SwitchCompat switchBarcodeAdaptive = findViewById(R.id.switch_barcode_adaptive);
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
         switchDarkMode.setChecked(prefs.getBoolean("dark_mode", false));
         switchNotifications.setChecked(prefs.getBoolean("notifications", true));
+        switchBarcodeRoi.setChecked(prefs.getBoolean(BarcodeScanningActivity.PREF_SCAN_BOX_ONLY, true));
+        switchBarcodeAdaptive.setChecked(prefs.getBoolean(BarcodeScanningActivity.PREF_ADAPTIVE_FORMATS, true));
 
         switchDarkMode.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
             @Override
@@ -40,6 +44,20 @@ public class SettingsActivity extends AppCompatActivity {
                 Toast.makeText(SettingsActivity.this, isChecked ? "Notifications enabled" : "Notifications disabled", Toast.LENGTH_SHORT).show();
             }
         });
+        switchBarcodeRoi.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                prefs.edit().putBoolean(BarcodeScanningActivity.PREF_SCAN_BOX_ONLY, isChecked).apply();
+                Toast.makeText(SettingsActivity.this, isChecked ? "Scanning inside the box only" : "Scanning the whole frame", Toast.LENGTH_SHORT).show();
+            }
+        });
+        switchBarcodeAdaptive.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                prefs.edit().putBoolean(BarcodeScanningActivity.PREF_ADAPTIVE_FORMATS, isChecked).apply();
+                Toast.makeText(SettingsActivity.this, isChecked ? "Learning barcode formats" : "Scanning every barcode format", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
     @Override
     public boolean onSupportNavigateUp() {
@@ -0,0 +1,126 @@
+package com.example.mlkitapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the current instance of a detector client so it can be replaced while frames are in
+ * flight. Callers {@link #acquire()} a lease for each frame and release it when the frame's
+ * Task completes; a replaced client is closed once its last lease is released, so a Task is
+ * never run against a closed client.
+ * Replacements are usually built and warmed on a background thread. Take a generation with
+ * {@link #beginSwap()} before building, and only the newest build is installed.
+ */
+public final class SwappableClient<C extends Closeable> {
+
+    /**
+     * A counted reference to one client instance. Release exactly once.
+     */
+    public static final class Lease<C extends Closeable> {
+        private final C client;
+        // One reference for being current, plus one per outstanding lease
+        private final AtomicInteger refs = new AtomicInteger(1);
+
+        private Lease(C client) {
+            this.client = client;
+        }
+
+        public C get() {
+            return client;
+        }
+
+        public void release() {
+            if (refs.decrementAndGet() == 0) {
+                closeQuietly(client);
+            }
+        }
+
+        private boolean tryRetain() {
+            int count = refs.get();
+            while (count > 0) {
+                if (refs.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+                count = refs.get();
+            }
+            return false;
+        }
+    }
+
+    private final AtomicLong latestGeneration = new AtomicLong();
+    private volatile Lease<C> current;
+    private volatile boolean closed = false;
+
+    public SwappableClient(C initial) {
+        current = new Lease<>(initial);
+    }
+
+    /**
+     * Returns a lease on the current client, or null once this holder is closed.
+     */
+    public Lease<C> acquire() {
+        while (true) {
+            Lease<C> lease = current;
+            if (lease == null) {
+                return null;
+            }
+            if (lease.tryRetain()) {
+                return lease;
+            }
+            // Swapped out and drained between the read and the retain; read again
+        }
+    }
+
+    /**
+     * Starts a replacement and returns its generation. Any replacement started earlier is
+     * now stale and will be discarded by {@link #completeSwap}.
+     */
+    public long beginSwap() {
+        return latestGeneration.incrementAndGet();
+    }
+
+    /**
+     * Installs {@code next} if {@code generation} is still the newest replacement. The
+     * previous client is closed when its in-flight leases drain. A stale or late client is
+     * closed instead and false is returned.
+     */
+    public synchronized boolean completeSwap(long generation, C next) {
+        if (closed || generation != latestGeneration.get()) {
+            closeQuietly(next);
+            return false;
+        }
+        Lease<C> previous = current;
+        current = new Lease<>(next);
+        if (previous != null) {
+            previous.release();
+        }
+        return true;
+    }
+
+    /**
+     * Stops handing out leases. The current client is closed when its leases drain, and
+     * replacements still being built are discarded.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        latestGeneration.incrementAndGet();
+        Lease<C> previous = current;
+        current = null;
+        if (previous != null) {
+            previous.release();
+        }
+    }
+
+    private static void closeQuietly(Closeable client) {
+        try {
+            client.close();
+        } catch (IOException ignored) {
+            // Detector clients do not throw from close(); nothing useful to do if one does
+        }
+    }
+}
@@ -8,6 +8,7 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.ImageFormat;
 import android.graphics.Rect;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
@@ -38,6 +39,7 @@ import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
+import android.widget.ToggleButton;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
@@ -49,9 +51,7 @@ import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
 import com.google.mlkit.vision.common.InputImage;
 import com.google.mlkit.vision.text.Text;
-import com.google.mlkit.vision.text.TextRecognition;
 import com.google.mlkit.vision.text.TextRecognizer;
-import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
 
 import java.io.IOException;
 import java.lang.ref.WeakReference;
@@ -74,17 +74,32 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
     private static final int MAX_PREVIEW_HEIGHT = 720;
 
     private static final float MIN_LUX_FOR_NO_FLASH = 50.0f;
+    // Contrast curves for the luma enhancement, matching the old ColorMatrix factors
+    private static final byte[] NORMAL_LIGHT_LUT = LumaEnhancer.contrastLut(1.2f, 10);
+    private static final byte[] LOW_LIGHT_LUT = LumaEnhancer.contrastLut(1.4f, 20);
+    // Low-light YUV captures get CLAHE on an 8x6 grid, roughly square tiles at 16:9
+    private static final int CLAHE_TILES_X = 8;
+    private static final int CLAHE_TILES_Y = 6;
+    private static final float CLAHE_CLIP_LIMIT = 3.0f;
+    // Live OCR rate; recognition on a full preview frame takes well over 100ms on most devices
+    private static final float LIVE_OCR_FPS = 5f;
     private boolean shouldUseFlash = true;
 
     private final Executor imageProcessingExecutor = Executors.newSingleThreadExecutor();
+    private final LumaEnhancer lumaEnhancer =
+            new LumaEnhancer(Runtime.getRuntime().availableProcessors());
+    // Row buffer for enhancing JPEG captures, reused between captures
+    private int[] argbRow = new int[0];
 
     private WeakReference<SurfaceView> viewFinderRef;
     private Button captureButton;
+    private ToggleButton liveToggle;
     private Button copyButton;
     private Button shareButton;
     private TextView textResult;
     private BoundingBoxView overlay;
 
+    private DetectorRegistry.Handle<TextRecognizer> textRecognizerHandle;
     private TextRecognizer textRecognizer;
     private String recognizedText = "";
 
@@ -94,7 +109,17 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
     private CaptureRequest.Builder captureRequestBuilder;
     private Size imageDimension;
     private ImageReader imageReader;
+    // YUV_420_888 when the camera can deliver it at the preview size, JPEG otherwise
+    private int captureFormat = ImageFormat.JPEG;
+    private long captureStartNanos;
+    // In live mode the preview stream also feeds the ImageReader and every admitted frame is recognized
+    private volatile boolean liveMode = false;
+    private final FrameAdmissionController liveAdmission =
+            new FrameAdmissionController(Clock.SYSTEM, LIVE_OCR_FPS);
     private volatile boolean isCapturing = false;
+    // Sensor timestamp of the pending still capture, or -1 until the camera reports it.
+    // Preview frames still queued in the reader are older and must not pass for the capture.
+    private volatile long stillTimestampNanos = -1;
     private volatile boolean isCameraReady = false;
     private long lastToastTime = 0;
 
@@ -121,6 +146,7 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
         SurfaceView viewFinder = findViewById(R.id.viewFinder);
         viewFinderRef = new WeakReference<>(viewFinder);
         captureButton = findViewById(R.id.btn_capture);
+        liveToggle = findViewById(R.id.toggle_live);
         copyButton = findViewById(R.id.btn_copy);
         shareButton = findViewById(R.id.btn_share);
         textResult = findViewById(R.id.text_result);
@@ -130,18 +156,9 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
         lightSensorListener = new LightSensorListener();
 
         try {
-            textRecognizer = TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
-
-            // Pre-warm ML Kit on a background thread
-            imageProcessingExecutor.execute(() -> {
-                try {
-                    Bitmap dummyBitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
-                    InputImage dummyInput = InputImage.fromBitmap(dummyBitmap, 0);
-                    textRecognizer.process(dummyInput).addOnCompleteListener(task -> dummyBitmap.recycle());
-                } catch (Exception e) {
-                    Log.w(TAG, "ML Kit warm-up failed: " + e.getMessage());
-                }
-            });
+            // Shared and warmed by the registry, so coming back to this screen starts hot
+            textRecognizerHandle = DetectorClients.text(this);
+            textRecognizer = textRecognizerHandle.get();
         } catch (Exception e) {
             Log.e(TAG, "Failed to initialize text recognizer: " + e.getMessage());
             Toast.makeText(this, "Error initializing text recognizer. Please restart the app.",
@@ -179,6 +196,8 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
             }
         });
 
+        liveToggle.setOnCheckedChangeListener((buttonView, isChecked) -> setLiveMode(isChecked));
+
         copyButton.setOnClickListener(v -> copyToClipboard(recognizedText));
         shareButton.setOnClickListener(v -> shareText(recognizedText));
 
@@ -358,6 +377,10 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
 
             Log.d(TAG, "Selected camera preview size: " + imageDimension.getWidth() + "x" + imageDimension.getHeight());
 
+            // YUV frames go to ML Kit as-is; JPEG needs an encode, a decode and a bitmap copy
+            captureFormat = containsSize(map.getOutputSizes(ImageFormat.YUV_420_888), imageDimension)
+                    ? ImageFormat.YUV_420_888 : ImageFormat.JPEG;
+
             // Setup ImageReader for image capture
             setupImageReader();
 
@@ -406,16 +429,32 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
             imageReader = null;
         }
 
+        // In live mode one image is held by the recognizer while the next is acquired; the
+        // extra slot keeps the repeating request from stalling on the reader
         imageReader = ImageReader.newInstance(
                 imageDimension.getWidth(), imageDimension.getHeight(),
-                android.graphics.ImageFormat.JPEG, 2);
+                captureFormat, 3);
 
         imageReader.setOnImageAvailableListener(reader -> {
             try {
                 Image image = reader.acquireLatestImage();
                 if (image != null) {
-                    processImage(image);
-                    image.close();
+                    boolean still = isCapturing && image.getTimestamp() >= stillTimestampNanos;
+                    if (image.getFormat() != ImageFormat.YUV_420_888) {
+                        // Only the still request targets the reader when it is JPEG
+                        processImage(image);
+                        image.close();
+                    } else if (still) {
+                        // One image per capture; closed by processYuvImage once recognition
+                        // is done with the planes
+                        stillTimestampNanos = Long.MAX_VALUE;
+                        processYuvImage(image);
+                    } else if (liveMode && !isCapturing) {
+                        processLiveFrame(image);
+                    } else {
+                        // A preview frame that raced a capture or a switch out of live mode
+                        image.close();
+                    }
                 }
             } catch (Exception e) {
                 Log.e(TAG, "Error processing image: " + e.getMessage());
@@ -424,6 +463,18 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
         }, backgroundHandler);
     }
 
+    private static boolean containsSize(Size[] sizes, Size size) {
+        if (sizes == null) {
+            return false;
+        }
+        for (Size candidate : sizes) {
+            if (candidate.equals(size)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void retryOpeningCamera() {
         if (backgroundHandler != null) {
             backgroundHandler.postDelayed(this::tryOpenCamera, 1000);
@@ -563,6 +614,9 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
                     cameraCaptureSession = session;
                     try {
                         captureRequestBuilder.set(CaptureRequest.CONTROL_MODE, CaptureRequest.CONTROL_MODE_AUTO);
+                        if (liveMode && imageReader != null) {
+                            captureRequestBuilder.addTarget(imageReader.getSurface());
+                        }
                         cameraCaptureSession.setRepeatingRequest(captureRequestBuilder.build(), null, backgroundHandler);
                         isCameraReady = true;
                     } catch (CameraAccessException e) {
@@ -613,6 +667,7 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
             return;
         }
 
+        stillTimestampNanos = -1;
         isCapturing = true;
 
         try {
@@ -636,14 +691,26 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
             captureBuilder.addTarget(imageReader.getSurface());
             captureBuilder.set(CaptureRequest.CONTROL_MODE, CaptureRequest.CONTROL_MODE_AUTO);
             captureBuilder.set(CaptureRequest.CONTROL_AF_MODE, CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_PICTURE);
-            captureBuilder.set(CaptureRequest.JPEG_QUALITY, (byte) 95);
+            if (captureFormat == ImageFormat.JPEG) {
+                captureBuilder.set(CaptureRequest.JPEG_QUALITY, (byte) 95);
+            }
 
             // Use flash if necessary
             captureBuilder.set(CaptureRequest.FLASH_MODE,
                     shouldUseFlash ? CaptureRequest.FLASH_MODE_TORCH : CaptureRequest.FLASH_MODE_OFF);
 
             // Capture the image
+            captureStartNanos = System.nanoTime();
             cameraCaptureSession.capture(captureBuilder.build(), new CameraCaptureSession.CaptureCallback() {
+                @Override
+                public void onCaptureStarted(@NonNull CameraCaptureSession session,
+                                             @NonNull CaptureRequest request,
+                                             long timestamp, long frameNumber) {
+                    super.onCaptureStarted(session, request, timestamp, frameNumber);
+                    // Matches the still image's Image.getTimestamp()
+                    stillTimestampNanos = timestamp;
+                }
+
                 @Override
                 public void onCaptureCompleted(@NonNull CameraCaptureSession session,
                                                @NonNull CaptureRequest request,
@@ -679,7 +746,8 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
     }
 
     /**
-     * Process the image captured from camera and run text recognition
+     * Process a JPEG capture and run text recognition. Only used when the camera cannot
+     * deliver YUV at the preview size; see {@link #processYuvImage(Image)}.
      */
     private void processImage(Image image) {
         ByteBuffer buffer = image.getPlanes()[0].getBuffer();
@@ -690,6 +758,8 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
             // Create bitmap from byte array
             BitmapFactory.Options options = new BitmapFactory.Options();
             options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            // Decoded mutable so it can be enhanced in place
+            options.inMutable = true;
             final Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
 
             if (bitmap == null) {
@@ -701,7 +771,7 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
             }
 
             // Enhance the bitmap for better text recognition
-            final Bitmap enhancedBitmap = enhanceBitmapForTextRecognition(bitmap);
+            enhanceBitmapForTextRecognition(bitmap);
 
             runOnUiThread(() -> Toast.makeText(TextRecognitionActivity.this,
                     "Processing text...", Toast.LENGTH_SHORT).show());
@@ -711,11 +781,11 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
             // Run text recognition in a background thread
             imageProcessingExecutor.execute(() -> {
                 try {
-                    InputImage inputImage = InputImage.fromBitmap(enhancedBitmap, rotation * 90);
+                    InputImage inputImage = InputImage.fromBitmap(bitmap, rotation * 90);
 
                     // Pass the actual bitmap dimensions to the overlay for proper scaling
-                    final int bitmapWidth = enhancedBitmap.getWidth();
-                    final int bitmapHeight = enhancedBitmap.getHeight();
+                    final int bitmapWidth = bitmap.getWidth();
+                    final int bitmapHeight = bitmap.getHeight();
 
                     // Make sure UI updates happen on the main thread
                     runOnUiThread(() -> {
@@ -731,75 +801,13 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
 
                     // Process the image with ML Kit
                     textRecognizer.process(inputImage)
-                            .addOnSuccessListener(visionText -> {
-                                // Process results on the main thread
-                                runOnUiThread(() -> {
-                                    try {
-                                        isCapturing = false;
-                                        recognizedText = visionText.getText();
-
-                                        if (recognizedText.isEmpty()) {
-                                            textResult.setText("No text detected");
-                                            overlay.clear(); // Using the new method name
-                                            Toast.makeText(TextRecognitionActivity.this,
-                                                    "No text detected", Toast.LENGTH_SHORT).show();
-
-                                            // Disable buttons since no text was found
-                                            copyButton.setEnabled(false);
-                                            shareButton.setEnabled(false);
-                                            return;
-                                        }
-
-                                        textResult.setText(recognizedText);
-
-                                        // Create a list to store bounding boxes
-                                        List<Rect> boundingBoxes = new ArrayList<>();
-
-                                        // Process all text blocks and their elements
-                                        for (Text.TextBlock block : visionText.getTextBlocks()) {
-                                            Rect blockFrame = block.getBoundingBox();
-                                            if (blockFrame != null) {
-                                                boundingBoxes.add(blockFrame);
-                                            }
-                                        }
-
-                                        // Use the new method name to set the bounding boxes
-                                        overlay.setBoundingBoxes(boundingBoxes);
-
-                                        // Enable buttons
-                                        copyButton.setEnabled(true);
-                                        shareButton.setEnabled(true);
-
-                                        Toast.makeText(TextRecognitionActivity.this,
-                                                "Text recognized successfully", Toast.LENGTH_SHORT).show();
-                                    } catch (Exception e) {
-                                        Log.e(TAG, "Error updating UI with text results: " + e.getMessage());
-                                        Toast.makeText(TextRecognitionActivity.this,
-                                                "Error displaying results", Toast.LENGTH_SHORT).show();
-                                    }
-                                });
-                            })
-                            .addOnFailureListener(e -> {
-                                runOnUiThread(() -> {
-                                    try {
-                                        isCapturing = false;
-                                        Log.e(TAG, "Text recognition failed: " + e.getMessage());
-                                        textResult.setText("Text recognition failed");
-                                        overlay.clear(); // Using the new method name
-                                        Toast.makeText(TextRecognitionActivity.this,
-                                                "Text recognition failed", Toast.LENGTH_SHORT).show();
-
-                                        // Disable buttons on failure
-                                        copyButton.setEnabled(false);
-                                        shareButton.setEnabled(false);
-                                    } catch (Exception ex) {
-                                        Log.e(TAG, "Error updating UI after recognition failure: " + ex.getMessage());
-                                    }
-                                });
-                            })
+                            .addOnSuccessListener(visionText ->
+                                    // Process results on the main thread
+                                    runOnUiThread(() -> showRecognizedText(visionText)))
+                            .addOnFailureListener(e ->
+                                    runOnUiThread(() -> showRecognitionFailure(e)))
                             .addOnCompleteListener(task -> {
                                 // Always make sure to recycle bitmaps to prevent memory leaks
-                                enhancedBitmap.recycle();
                                 bitmap.recycle();
                             });
                 } catch (Exception e) {
@@ -812,7 +820,6 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
                     });
 
                     // Make sure to recycle bitmaps even in case of error
-                    enhancedBitmap.recycle();
                     bitmap.recycle();
                 }
             });
@@ -826,41 +833,269 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
     }
 
     /**
-     * Enhance bitmap for better text recognition using image processing
+     * Runs text recognition straight on the Y/UV planes of a YUV capture. Nothing is
+     * copied or decoded; the image stays open until ML Kit is done with it.
      */
-    private Bitmap enhanceBitmapForTextRecognition(Bitmap original) {
-        if (original == null) return null;
+    private void processYuvImage(Image image) {
+        final int rotation = getWindowManager().getDefaultDisplay().getRotation();
+        final int imageWidth = image.getWidth();
+        final int imageHeight = image.getHeight();
 
+        InputImage inputImage;
         try {
-            // Create a mutable copy that we can modify
-            Bitmap enhanced = original.copy(Bitmap.Config.ARGB_8888, true);
+            enhanceLuma(image);
+            inputImage = InputImage.fromMediaImage(image, rotation * 90);
+        } catch (Exception e) {
+            image.close();
+            isCapturing = false;
+            Log.e(TAG, "Error processing image data: " + e.getMessage());
+            runOnUiThread(() -> Toast.makeText(TextRecognitionActivity.this,
+                    "Failed to process image", Toast.LENGTH_SHORT).show());
+            return;
+        }
 
-            // Create canvas and set up paint for processing
-            android.graphics.Canvas canvas = new android.graphics.Canvas(enhanced);
-            android.graphics.Paint paint = new android.graphics.Paint();
+        runOnUiThread(() -> {
+            Toast.makeText(TextRecognitionActivity.this,
+                    "Processing text...", Toast.LENGTH_SHORT).show();
+            try {
+                overlay.updateScaleFactors(imageWidth, imageHeight);
+                overlay.setDeviceRotation(rotation * 90);
+            } catch (Exception e) {
+                Log.e(TAG, "Error updating overlay: " + e.getMessage());
+            }
+        });
 
-            // Adjust contrast and brightness based on flash usage and estimated lighting
-            float contrastFactor = shouldUseFlash ? 1.4f : 1.2f;
-            int brightnessFactor = shouldUseFlash ? 20 : 10;
-
-            android.graphics.ColorMatrix cm = new android.graphics.ColorMatrix(new float[] {
-                    contrastFactor, 0, 0, 0, brightnessFactor,
-                    0, contrastFactor, 0, 0, brightnessFactor,
-                    0, 0, contrastFactor, 0, brightnessFactor,
-                    0, 0, 0, 1, 0
+        try {
+            textRecognizer.process(inputImage)
+                    .addOnSuccessListener(this::showRecognizedText)
+                    .addOnFailureListener(this::showRecognitionFailure)
+                    .addOnCompleteListener(task -> image.close());
+        } catch (Exception e) {
+            image.close();
+            Log.e(TAG, "Error in text recognition process: " + e.getMessage());
+            runOnUiThread(() -> {
+                isCapturing = false;
+                Toast.makeText(TextRecognitionActivity.this,
+                        "Text recognition error", Toast.LENGTH_SHORT).show();
             });
+        }
+    }
+
+    /**
+     * Turns live OCR on or off. Live mode needs a YUV reader, so it is refused until the
+     * camera is open and on cameras that only offered JPEG.
+     */
+    private void setLiveMode(boolean enabled) {
+        if (enabled && (!isCameraReady || captureFormat != ImageFormat.YUV_420_888)) {
+            Toast.makeText(this, isCameraReady ? "Live mode is not supported on this camera"
+                    : "Camera not ready yet", Toast.LENGTH_SHORT).show();
+            liveToggle.setChecked(false);
+            return;
+        }
+        liveMode = enabled;
+        captureButton.setEnabled(!enabled);
+        // Boxes change every few frames; fading each set in would only add lag
+        overlay.setAnimateBoxes(!enabled);
+        if (backgroundHandler != null) {
+            backgroundHandler.post(this::applyLiveMode);
+        }
+    }
+
+    /**
+     * Adds or removes the ImageReader as a target of the repeating preview request.
+     */
+    private void applyLiveMode() {
+        if (captureRequestBuilder == null || cameraCaptureSession == null || imageReader == null) {
+            return;
+        }
+        try {
+            if (liveMode) {
+                captureRequestBuilder.addTarget(imageReader.getSurface());
+            } else {
+                captureRequestBuilder.removeTarget(imageReader.getSurface());
+            }
+            cameraCaptureSession.setRepeatingRequest(captureRequestBuilder.build(), null, backgroundHandler);
+        } catch (CameraAccessException | IllegalStateException e) {
+            Log.e(TAG, "Failed to switch live mode: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recognizes one preview frame in live mode. Frames arrive at the preview rate and are
+     * dropped unless the admission controller lets them through, so at most one frame is
+     * being recognized at a time.
+     */
+    private void processLiveFrame(Image image) {
+        if (liveAdmission.tryAdmit() != FrameAdmissionController.Decision.ADMIT) {
+            image.close();
+            return;
+        }
+        long startNanos = liveAdmission.now();
+        final int rotation = getWindowManager().getDefaultDisplay().getRotation();
+        final int imageWidth = image.getWidth();
+        final int imageHeight = image.getHeight();
+
+        try {
+            enhanceLuma(image);
+            InputImage inputImage = InputImage.fromMediaImage(image, rotation * 90);
+            textRecognizer.process(inputImage)
+                    .addOnSuccessListener(visionText -> {
+                        if (liveMode) {
+                            showLiveText(visionText, imageWidth, imageHeight, rotation * 90);
+                        }
+                    })
+                    .addOnFailureListener(e -> Log.e(TAG, "Live text recognition failed: " + e.getMessage()))
+                    .addOnCompleteListener(task -> {
+                        liveAdmission.onComplete(startNanos);
+                        image.close();
+                    });
+        } catch (Exception e) {
+            Log.e(TAG, "Error in live text recognition: " + e.getMessage());
+            liveAdmission.cancel();
+            image.close();
+        }
+    }
+
+    /**
+     * Shows a live result without toasts. Must run on the main thread.
+     */
+    private void showLiveText(Text visionText, int imageWidth, int imageHeight, int rotationDegrees) {
+        overlay.updateScaleFactors(imageWidth, imageHeight);
+        overlay.setDeviceRotation(rotationDegrees);
+
+        String text = visionText.getText();
+        if (!text.equals(recognizedText)) {
+            recognizedText = text;
+            textResult.setText(text);
+        }
+        copyButton.setEnabled(!text.isEmpty());
+        shareButton.setEnabled(!text.isEmpty());
+
+        List<Rect> boundingBoxes = new ArrayList<>();
+        for (Text.TextBlock block : visionText.getTextBlocks()) {
+            Rect blockFrame = block.getBoundingBox();
+            if (blockFrame != null) {
+                boundingBoxes.add(blockFrame);
+            }
+        }
+        overlay.setBoundingBoxes(boundingBoxes);
+    }
+
+    /**
+     * Shows a recognition result. Must run on the main thread.
+     */
+    private void showRecognizedText(Text visionText) {
+        try {
+            isCapturing = false;
+            Log.d(TAG, "Capture to text: " + (System.nanoTime() - captureStartNanos) / 1_000_000 + " ms");
+            recognizedText = visionText.getText();
+
+            if (recognizedText.isEmpty()) {
+                textResult.setText("No text detected");
+                overlay.clear(); // Using the new method name
+                Toast.makeText(TextRecognitionActivity.this,
+                        "No text detected", Toast.LENGTH_SHORT).show();
+
+                // Disable buttons since no text was found
+                copyButton.setEnabled(false);
+                shareButton.setEnabled(false);
+                return;
+            }
+
+            textResult.setText(recognizedText);
+
+            // Create a list to store bounding boxes
+            List<Rect> boundingBoxes = new ArrayList<>();
+
+            // Process all text blocks and their elements
+            for (Text.TextBlock block : visionText.getTextBlocks()) {
+                Rect blockFrame = block.getBoundingBox();
+                if (blockFrame != null) {
+                    boundingBoxes.add(blockFrame);
+                }
+            }
 
-            // Apply color matrix to paint
-            paint.setColorFilter(new android.graphics.ColorMatrixColorFilter(cm));
+            // Use the new method name to set the bounding boxes
+            overlay.setBoundingBoxes(boundingBoxes);
 
-            // Draw using the enhanced filter
-            canvas.drawBitmap(enhanced, 0, 0, paint);
+            // Enable buttons
+            copyButton.setEnabled(true);
+            shareButton.setEnabled(true);
 
-            return enhanced;
+            Toast.makeText(TextRecognitionActivity.this,
+                    "Text recognized successfully", Toast.LENGTH_SHORT).show();
+        } catch (Exception e) {
+            Log.e(TAG, "Error updating UI with text results: " + e.getMessage());
+            Toast.makeText(TextRecognitionActivity.this,
+                    "Error displaying results", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * Shows a recognition failure. Must run on the main thread.
+     */
+    private void showRecognitionFailure(Exception e) {
+        try {
+            isCapturing = false;
+            Log.e(TAG, "Text recognition failed: " + e.getMessage());
+            textResult.setText("Text recognition failed");
+            overlay.clear(); // Using the new method name
+            Toast.makeText(TextRecognitionActivity.this,
+                    "Text recognition failed", Toast.LENGTH_SHORT).show();
+
+            // Disable buttons on failure
+            copyButton.setEnabled(false);
+            shareButton.setEnabled(false);
+        } catch (Exception ex) {
+            Log.e(TAG, "Error updating UI after recognition failure: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Stretches the contrast of a YUV capture's luma plane in place before recognition.
+     * Low light gets CLAHE, which lifts dim text without saturating bright areas; otherwise
+     * a fixed contrast curve is enough.
+     */
+    private void enhanceLuma(Image image) {
+        Image.Plane luma = image.getPlanes()[0];
+        ByteBuffer buffer = luma.getBuffer();
+        if (buffer.isReadOnly()) {
+            Log.w(TAG, "Luma plane is read-only, skipping enhancement");
+            return;
+        }
 
+        long start = System.nanoTime();
+        if (shouldUseFlash) {
+            lumaEnhancer.applyClahe(buffer, image.getWidth(), image.getHeight(), luma.getRowStride(),
+                    CLAHE_TILES_X, CLAHE_TILES_Y, CLAHE_CLIP_LIMIT);
+        } else {
+            lumaEnhancer.applyLut(buffer, image.getWidth(), image.getHeight(), luma.getRowStride(),
+                    NORMAL_LIGHT_LUT);
+        }
+        Log.d(TAG, "Luma enhancement: " + (System.nanoTime() - start) / 1_000 + " us");
+    }
+
+    /**
+     * Enhance a JPEG capture for better text recognition. Works in place one row at a time,
+     * so the bitmap must be mutable.
+     */
+    private void enhanceBitmapForTextRecognition(Bitmap bitmap) {
+        if (bitmap == null || !bitmap.isMutable()) return;
+
+        try {
+            // Adjust contrast and brightness based on flash usage and estimated lighting
+            byte[] lut = shouldUseFlash ? LOW_LIGHT_LUT : NORMAL_LIGHT_LUT;
+            int width = bitmap.getWidth();
+            if (argbRow.length < width) {
+                argbRow = new int[width];
+            }
+            for (int y = 0; y < bitmap.getHeight(); y++) {
+                bitmap.getPixels(argbRow, 0, width, 0, y, width, 1);
+                LumaEnhancer.applyLutArgb(argbRow, 0, width, lut);
+                bitmap.setPixels(argbRow, 0, width, 0, y, width, 1);
+            }
         } catch (Exception e) {
             Log.e(TAG, "Error enhancing bitmap: " + e.getMessage());
-            return original; // Return original if enhancement fails
         }
     }
 
@@ -981,7 +1216,8 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
         if (textRecognizer == null) {
             // Re-initialize if necessary
             try {
-                textRecognizer = TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
+                textRecognizerHandle = DetectorClients.text(this);
+                textRecognizer = textRecognizerHandle.get();
             } catch (Exception e) {
                 Log.e(TAG, "Failed to initialize text recognizer on resume: " + e.getMessage());
             }
@@ -1017,6 +1253,7 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
 
     @Override
     protected void onPause() {
+        Log.d(TAG, "Live OCR admission: " + liveAdmission.getStats());
         closeCamera();
         stopBackgroundThread();
 
@@ -1031,12 +1268,11 @@ public class TextRecognitionActivity extends AppCompatActivity implements Surfac
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (textRecognizer != null) {
-            try {
-                textRecognizer.close();
-            } catch (Exception e) {
-                Log.e(TAG, "Error closing text recognizer: " + e.getMessage());
-            }
+        lumaEnhancer.close();
+        if (textRecognizerHandle != null) {
+            // The registry keeps the recognizer loaded for the next visit
+            textRecognizerHandle.close();
+            textRecognizerHandle = null;
             textRecognizer = null;
         }
     }
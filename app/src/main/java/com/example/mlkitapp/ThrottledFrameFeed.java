@@ -0,0 +1,63 @@
+package com.example.mlkitapp;
+
+import android.view.View;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Delivers the newest {@link DetectionFrame} to a main-thread consumer, such as a result
+ * list, at most a fixed number of times per second. Frames may be published from any
+ * thread; ones that arrive between deliveries replace each other in a
+ * {@link LatestValueChannel} and are released unseen. Deliveries are posted to the host
+ * view's animation frames, so they land with a draw instead of in between.
+ */
+public final class ThrottledFrameFeed {
+    private final View host;
+    private final UpdateThrottle throttle;
+    private final Consumer<DetectionFrame> consumer;
+    private final LatestValueChannel<DetectionFrame> channel = new LatestValueChannel<>();
+    private final Runnable pull = this::pull;
+    private final Runnable wake;
+
+    /**
+     * @param consumer called on the main thread; the frame is released after it returns
+     */
+    public ThrottledFrameFeed(View host, float maxUpdatesPerSecond,
+                              Consumer<DetectionFrame> consumer) {
+        this.host = host;
+        this.throttle = new UpdateThrottle(Clock.SYSTEM, maxUpdatesPerSecond);
+        this.consumer = consumer;
+        this.wake = () -> host.postOnAnimation(pull);
+    }
+
+    /**
+     * Queues {@code frame} for the next delivery, taking a share of it; may be called from
+     * any thread. The caller keeps and releases its own share.
+     */
+    public void publish(DetectionFrame frame) {
+        DetectionFrames.handOff(frame, channel, wake);
+    }
+
+    private void pull() {
+        long waitNanos = throttle.tryAcquire();
+        if (waitNanos > 0) {
+            // The frame stays in the channel, so publishers keep replacing it meanwhile
+            host.postOnAnimationDelayed(pull, TimeUnit.NANOSECONDS.toMillis(waitNanos) + 1);
+            return;
+        }
+        DetectionFrame frame = channel.take();
+        if (frame != null) {
+            consumer.accept(frame);
+            frame.release();
+        }
+    }
+
+    /**
+     * Cancels a pending delivery and releases the frame waiting for it.
+     */
+    public void close() {
+        host.removeCallbacks(pull);
+        DetectionFrames.drain(channel);
+    }
+}
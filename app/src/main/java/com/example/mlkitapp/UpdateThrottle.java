@@ -0,0 +1,40 @@
+package com.example.mlkitapp;
+
+/**
+ * Spaces UI updates at least {@code 1 / maxUpdatesPerSecond} apart. Callers ask before each
+ * update; when it is too early they get the wait and retry later, keeping whatever newer
+ * data arrived in the meantime. Not thread-safe; meant for the main thread.
+ */
+public final class UpdateThrottle {
+    private final Clock clock;
+    private final long minIntervalNanos;
+    private long lastUpdateNanos;
+    private boolean updated = false;
+
+    public UpdateThrottle(Clock clock, float maxUpdatesPerSecond) {
+        if (!(maxUpdatesPerSecond > 0)) {
+            throw new IllegalArgumentException("maxUpdatesPerSecond must be positive");
+        }
+        this.clock = clock;
+        this.minIntervalNanos = (long) (1_000_000_000L / maxUpdatesPerSecond);
+    }
+
+    /**
+     * Claims an update slot.
+     *
+     * @return 0 when the update may run now, which counts as the update, otherwise the
+     *         nanoseconds to wait before asking again
+     */
+    public long tryAcquire() {
+        long now = clock.nanoTime();
+        if (updated) {
+            long wait = lastUpdateNanos + minIntervalNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+        }
+        lastUpdateNanos = now;
+        updated = true;
+        return 0;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.mlkitapp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A YUV_420_888 frame held as three planes with their strides, independent of the
+ * Android camera classes so recordings can be read and replayed on a plain JVM.
+ * Like ImageProxy, a frame handed to a consumer must be closed exactly once.
+ */
+public final class YuvFrame implements AutoCloseable {
+    public static final int PLANE_COUNT = 3;
+
+    private final int width;
+    private final int height;
+    private final int rotationDegrees;
+    private final long timestampNanos;
+    private final ByteBuffer[] planes;
+    private final int[] rowStrides;
+    private final int[] pixelStrides;
+    private final Runnable onClose;
+
+    public YuvFrame(int width, int height, int rotationDegrees, long timestampNanos,
+                    ByteBuffer[] planes, int[] rowStrides, int[] pixelStrides, Runnable onClose) {
+        if (planes.length != PLANE_COUNT || rowStrides.length != PLANE_COUNT
+                || pixelStrides.length != PLANE_COUNT) {
+            throw new IllegalArgumentException("YUV_420_888 frames have exactly three planes");
+        }
+        this.width = width;
+        this.height = height;
+        this.rotationDegrees = rotationDegrees;
+        this.timestampNanos = timestampNanos;
+        this.planes = planes;
+        this.rowStrides = rowStrides;
+        this.pixelStrides = pixelStrides;
+        this.onClose = onClose;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getRotationDegrees() {
+        return rotationDegrees;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * Returns a view of the plane; its position and limit may be changed freely.
+     */
+    public ByteBuffer getPlane(int plane) {
+        return planes[plane].duplicate();
+    }
+
+    public int getRowStride(int plane) {
+        return rowStrides[plane];
+    }
+
+    public int getPixelStride(int plane) {
+        return pixelStrides[plane];
+    }
+
+    /**
+     * Number of bytes an NV21 copy of this frame needs.
+     */
+    public int nv21Size() {
+        return nv21Size(width, height);
+    }
+
+    /**
+     * Number of bytes an NV21 image of the given size needs.
+     */
+    public static int nv21Size(int width, int height) {
+        return width * height + 2 * ((width + 1) / 2) * ((height + 1) / 2);
+    }
+
+    /**
+     * Packs the frame into NV21 (full Y plane followed by interleaved V/U), honouring the
+     * row and pixel strides of each plane.
+     */
+    public void copyToNv21(byte[] out) {
+        copyToNv21(0, 0, width, height, out);
+    }
+
+    /**
+     * Packs only the given region into NV21; pixels outside it are never read. The region's
+     * left and top must be even so chroma samples stay aligned with their luma pixels.
+     */
+    public void copyToNv21(int left, int top, int cropWidth, int cropHeight, byte[] out) {
+        if (left < 0 || top < 0 || cropWidth <= 0 || cropHeight <= 0
+                || left + cropWidth > width || top + cropHeight > height) {
+            throw new IllegalArgumentException("Crop region outside the frame");
+        }
+        if ((left & 1) != 0 || (top & 1) != 0) {
+            throw new IllegalArgumentException("Crop origin must be even");
+        }
+        if (out.length < nv21Size(cropWidth, cropHeight)) {
+            throw new IllegalArgumentException("NV21 buffer too small: " + out.length);
+        }
+
+        ByteBuffer y = planes[0];
+        int yRowStride = rowStrides[0];
+        int yBase = y.position() + left;
+        ByteBuffer src = y.duplicate();
+        int offset = 0;
+        for (int row = top; row < top + cropHeight; row++) {
+            src.position(yBase + row * yRowStride);
+            src.get(out, offset, cropWidth);
+            offset += cropWidth;
+        }
+
+        ByteBuffer u = planes[1];
+        ByteBuffer v = planes[2];
+        int chromaLeft = left / 2;
+        int chromaTop = top / 2;
+        int chromaWidth = (cropWidth + 1) / 2;
+        int chromaHeight = (cropHeight + 1) / 2;
+        int uBase = u.position();
+        int vBase = v.position();
+        int uPixelStride = pixelStrides[1];
+        int vPixelStride = pixelStrides[2];
+        for (int row = chromaTop; row < chromaTop + chromaHeight; row++) {
+            int uRow = uBase + row * rowStrides[1] + chromaLeft * uPixelStride;
+            int vRow = vBase + row * rowStrides[2] + chromaLeft * vPixelStride;
+            for (int col = 0; col < chromaWidth; col++) {
+                out[offset++] = v.get(vRow + col * vPixelStride);
+                out[offset++] = u.get(uRow + col * uPixelStride);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (onClose != null) {
+            onClose.run();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BarcodeDedupeCacheTest {
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void valueInViewIsReportedOnce() {
+        FakeClock clock = new FakeClock();
+        BarcodeDedupeCache cache = new BarcodeDedupeCache(clock, 1000 * MS, 8);
+
+        assertTrue(cache.shouldReport("4006381333931"));
+        // Seen on every frame for five seconds: each sighting extends the window
+        for (int i = 0; i < 50; i++) {
+            clock.now += 100 * MS;
+            assertFalse(cache.shouldReport("4006381333931"));
+        }
+    }
+
+    @Test
+    public void valueIsReportedAgainAfterLeavingView() {
+        FakeClock clock = new FakeClock();
+        BarcodeDedupeCache cache = new BarcodeDedupeCache(clock, 1000 * MS, 8);
+
+        assertTrue(cache.shouldReport("A"));
+        clock.now += 999 * MS;
+        assertFalse(cache.shouldReport("A"));
+        clock.now += 1000 * MS;
+        assertTrue(cache.shouldReport("A"));
+    }
+
+    @Test
+    public void leastRecentlySeenValueIsEvicted() {
+        FakeClock clock = new FakeClock();
+        BarcodeDedupeCache cache = new BarcodeDedupeCache(clock, 1000 * MS, 2);
+
+        assertTrue(cache.shouldReport("A"));
+        assertTrue(cache.shouldReport("B"));
+        assertFalse(cache.shouldReport("A"));
+        assertTrue(cache.shouldReport("C"));
+
+        assertEquals(2, cache.size());
+        // B was the least recently seen, so it was forgotten and counts as new
+        assertTrue(cache.shouldReport("B"));
+        assertFalse(cache.shouldReport("C"));
+    }
+
+    @Test
+    public void hashDistinguishesSimilarValues() {
+        assertNotEquals(BarcodeDedupeCache.hash64("AB"), BarcodeDedupeCache.hash64("BA"));
+        assertNotEquals(BarcodeDedupeCache.hash64("\u0100"), BarcodeDedupeCache.hash64("\u0001"));
+        assertEquals(BarcodeDedupeCache.hash64("item-42"), BarcodeDedupeCache.hash64("item-" + 42));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BarcodeFormatPolicyTest {
+    // Same bit values as ML Kit's Barcode.FORMAT_* constants
+    private static final int CODE_128 = 1;
+    private static final int EAN_13 = 32;
+    private static final int QR_CODE = 256;
+    private static final int ALL = CODE_128 | EAN_13 | QR_CODE;
+
+    @Test
+    public void scansEverythingUntilSomethingIsSeen() {
+        BarcodeFormatPolicy policy = new BarcodeFormatPolicy(ALL, 10, 100);
+        for (int i = 0; i < 25; i++) {
+            assertEquals(ALL, policy.nextFrameFormats());
+        }
+    }
+
+    @Test
+    public void narrowsToSeenFormatsAndProbesPeriodically() {
+        BarcodeFormatPolicy policy = new BarcodeFormatPolicy(ALL, 10, 1000);
+        policy.nextFrameFormats();
+        policy.onDetected(EAN_13);
+
+        int probes = 0;
+        for (int i = 0; i < 100; i++) {
+            int formats = policy.nextFrameFormats();
+            if (formats == ALL) {
+                probes++;
+            } else {
+                assertEquals(EAN_13, formats);
+            }
+        }
+        assertEquals(10, probes);
+    }
+
+    @Test
+    public void probeAddsNewFormat() {
+        BarcodeFormatPolicy policy = new BarcodeFormatPolicy(ALL, 10, 1000);
+        policy.nextFrameFormats();
+        policy.onDetected(EAN_13);
+        policy.onDetected(QR_CODE);
+
+        assertEquals(EAN_13 | QR_CODE, policy.getLearnedFormats());
+        assertEquals(EAN_13 | QR_CODE, policy.nextFrameFormats());
+    }
+
+    @Test
+    public void forgetsFormatsNotSeenForLong() {
+        BarcodeFormatPolicy policy = new BarcodeFormatPolicy(ALL, 10, 50);
+        policy.nextFrameFormats();
+        policy.onDetected(EAN_13 | CODE_128);
+
+        for (int i = 0; i < 40; i++) {
+            policy.nextFrameFormats();
+        }
+        policy.onDetected(CODE_128);
+        for (int i = 0; i < 20; i++) {
+            policy.nextFrameFormats();
+        }
+
+        assertEquals(CODE_128, policy.getLearnedFormats());
+        for (int i = 0; i < 60; i++) {
+            policy.nextFrameFormats();
+        }
+        assertEquals(0, policy.getLearnedFormats());
+        assertEquals(ALL, policy.nextFrameFormats());
+    }
+
+    @Test
+    public void ignoresFormatsOutsideTheFullSet() {
+        BarcodeFormatPolicy policy = new BarcodeFormatPolicy(ALL, 10, 100);
+        policy.onDetected(4096);
+        assertEquals(0, policy.getLearnedFormats());
+    }
+}
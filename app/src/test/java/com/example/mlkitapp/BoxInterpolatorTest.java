@@ -0,0 +1,93 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoxInterpolatorTest {
+    private static final long MS = 1_000_000L;
+
+    private static BoxInterpolator newInterpolator() {
+        return new BoxInterpolator(200 * MS, 100 * MS, 1f);
+    }
+
+    @Test
+    public void extrapolatesAlongVelocityBetweenResults() {
+        BoxInterpolator interpolator = newInterpolator();
+        int[] ids = {7};
+        // Captured at 0 and 100 ms, each arriving 50 ms later; 1 px per ms to the right
+        interpolator.update(ids, new float[]{0, 0, 10, 10}, 1, 0, 50 * MS);
+        interpolator.update(ids, new float[]{100, 0, 110, 10}, 1, 100 * MS, 150 * MS);
+
+        float[] box = new float[4];
+        // Long after the blend, the box is where it should be at draw time, not at capture
+        interpolator.boxAt(0, 250 * MS, box, 0);
+        assertEquals(250f, box[0], 0.01f);
+        assertEquals(260f, box[2], 0.01f);
+        assertEquals(0f, box[1], 0.01f);
+    }
+
+    @Test
+    public void stopsExtrapolatingWhenResultsStall() {
+        BoxInterpolator interpolator = newInterpolator();
+        int[] ids = {1};
+        interpolator.update(ids, new float[]{0, 0, 10, 10}, 1, 0, 0);
+        interpolator.update(ids, new float[]{100, 0, 110, 10}, 1, 100 * MS, 100 * MS);
+
+        float[] box = new float[4];
+        interpolator.boxAt(0, 5000 * MS, box, 0);
+        assertEquals(300f, box[0], 0.01f);
+        assertFalse(interpolator.isMoving(5000 * MS));
+    }
+
+    @Test
+    public void newResultBlendsFromDrawnPosition() {
+        BoxInterpolator interpolator = newInterpolator();
+        int[] ids = {1};
+        interpolator.update(ids, new float[]{0, 0, 10, 10}, 1, 0, 0);
+        interpolator.update(ids, new float[]{100, 0, 110, 10}, 1, 100 * MS, 100 * MS);
+        float[] before = new float[4];
+        interpolator.boxAt(0, 200 * MS, before, 0);
+
+        // The object stopped; the new result says it is back at 150
+        interpolator.update(ids, new float[]{150, 0, 160, 10}, 1, 200 * MS, 200 * MS);
+        float[] after = new float[4];
+        interpolator.boxAt(0, 200 * MS, after, 0);
+
+        for (int k = 0; k < 4; k++) {
+            assertEquals(before[k], after[k], 0.01f);
+        }
+        assertTrue(interpolator.isMoving(250 * MS));
+    }
+
+    @Test
+    public void boxesWithoutIdStayPut() {
+        BoxInterpolator interpolator = newInterpolator();
+        int[] ids = {BoxTracker.NO_ID};
+        interpolator.update(ids, new float[]{0, 0, 10, 10}, 1, 0, 0);
+        interpolator.update(ids, new float[]{100, 0, 110, 10}, 1, 100 * MS, 100 * MS);
+
+        float[] box = new float[4];
+        interpolator.boxAt(0, 150 * MS, box, 0);
+        assertEquals(100f, box[0], 0f);
+        assertFalse(interpolator.isMoving(150 * MS));
+    }
+
+    @Test
+    public void sameBoxAtAnotherImageSizeDoesNotMove() {
+        BoxInterpolator interpolator = newInterpolator();
+        int[] ids = {3};
+        interpolator.setImageSize(480, 640);
+        interpolator.update(ids, new float[]{100, 200, 200, 300}, 1, 0, 0);
+        interpolator.setImageSize(240, 320);
+        interpolator.update(ids, new float[]{50, 100, 100, 150}, 1, 100 * MS, 100 * MS);
+
+        float[] box = new float[4];
+        interpolator.boxAt(0, 150 * MS, box, 0);
+        assertEquals(50f, box[0], 0.01f);
+        assertEquals(100f, box[1], 0.01f);
+        assertEquals(100f, box[2], 0.01f);
+        assertEquals(150f, box[3], 0.01f);
+        assertFalse(interpolator.isMoving(150 * MS));
+    }
+}
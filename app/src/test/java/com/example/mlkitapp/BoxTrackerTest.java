@@ -0,0 +1,122 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoxTrackerTest {
+    private static final long FRAME_NANOS = 100_000_000L;
+
+    private static float[] boxes(float... ltrb) {
+        return ltrb;
+    }
+
+    @Test
+    public void movingObjectKeepsItsId() {
+        BoxTracker tracker = new BoxTracker(8, 0.3f, 2, 1);
+        int[] ids = new int[1];
+
+        tracker.update(boxes(0, 0, 100, 100), 1, 0, ids);
+        int id = ids[0];
+        for (int frame = 1; frame <= 20; frame++) {
+            float x = frame * 20f;
+            tracker.update(boxes(x, 0, x + 100, 100), 1, frame * FRAME_NANOS, ids);
+            assertEquals(id, ids[0]);
+        }
+        assertEquals(1, tracker.getTrackCount());
+    }
+
+    @Test
+    public void idsFollowObjectsNotDetectionOrder() {
+        BoxTracker tracker = new BoxTracker(8, 0.3f, 2, 1);
+        int[] ids = new int[2];
+
+        tracker.update(boxes(0, 0, 100, 100, 500, 500, 600, 600), 2, 0, ids);
+        int first = ids[0];
+        int second = ids[1];
+        assertNotEquals(first, second);
+
+        tracker.update(boxes(505, 505, 605, 605, 5, 5, 105, 105), 2, FRAME_NANOS, ids);
+        assertEquals(second, ids[0]);
+        assertEquals(first, ids[1]);
+    }
+
+    @Test
+    public void shortDropoutKeepsIdLongDropoutDoesNot() {
+        BoxTracker tracker = new BoxTracker(8, 0.3f, 2, 1);
+        int[] ids = new int[1];
+        float[] box = boxes(100, 100, 200, 200);
+
+        tracker.update(box, 1, 0, ids);
+        int id = ids[0];
+        tracker.update(box, 0, FRAME_NANOS, ids);
+        tracker.update(box, 0, 2 * FRAME_NANOS, ids);
+        tracker.update(box, 1, 3 * FRAME_NANOS, ids);
+        assertEquals(id, ids[0]);
+
+        for (int frame = 4; frame <= 6; frame++) {
+            tracker.update(box, 0, frame * FRAME_NANOS, ids);
+        }
+        assertEquals(0, tracker.getTrackCount());
+        tracker.update(box, 1, 7 * FRAME_NANOS, ids);
+        assertNotEquals(id, ids[0]);
+    }
+
+    @Test
+    public void predictionFollowsVelocity() {
+        BoxTracker tracker = new BoxTracker(8, 0.3f, 5, 1);
+        int[] ids = new int[1];
+        // 100 px per second to the right
+        for (int frame = 0; frame <= 30; frame++) {
+            float x = frame * 10f;
+            tracker.update(boxes(x, 0, x + 100, 100), 1, frame * FRAME_NANOS, ids);
+        }
+
+        tracker.predict(35 * FRAME_NANOS);
+        float[] predicted = new float[4];
+        tracker.getTrackBox(0, predicted, 0);
+        assertEquals(350f, predicted[0], 5f);
+        assertEquals(450f, predicted[2], 5f);
+        assertEquals(0f, predicted[1], 1f);
+    }
+
+    @Test
+    public void unconfirmedTracksReportNoId() {
+        BoxTracker tracker = new BoxTracker(8, 0.3f, 2, 2);
+        int[] ids = new int[1];
+        float[] box = boxes(0, 0, 50, 50);
+
+        tracker.update(box, 1, 0, ids);
+        assertEquals(BoxTracker.NO_ID, ids[0]);
+        tracker.update(box, 1, FRAME_NANOS, ids);
+        assertNotEquals(BoxTracker.NO_ID, ids[0]);
+    }
+
+    @Test
+    public void iouOfBoxes() {
+        assertEquals(1f, BoxTracker.iou(0, 0, 10, 10, 0, 0, 10, 10), 1e-6f);
+        assertEquals(1f / 3f, BoxTracker.iou(0, 0, 10, 10, 5, 0, 15, 10), 1e-6f);
+        assertEquals(0f, BoxTracker.iou(0, 0, 10, 10, 10, 0, 20, 10), 0f);
+    }
+
+    @Test
+    public void sameBoxAtAnotherImageSizeKeepsItsId() {
+        BoxTracker tracker = new BoxTracker(8, 0.3f, 2, 1);
+        int[] ids = new int[1];
+
+        tracker.setImageSize(480, 640);
+        tracker.update(boxes(100, 200, 200, 300), 1, 0, ids);
+        int id = ids[0];
+        // Half the resolution halves every coordinate, so the box no longer overlaps its track
+        tracker.setImageSize(240, 320);
+        tracker.update(boxes(50, 100, 100, 150), 1, FRAME_NANOS, ids);
+
+        assertEquals(id, ids[0]);
+        assertEquals(1, tracker.getTrackCount());
+        float[] velocity = new float[4];
+        tracker.getTrackVelocity(0, velocity, 0);
+        for (float v : velocity) {
+            assertEquals(0f, v, 1e-3f);
+        }
+    }
+}
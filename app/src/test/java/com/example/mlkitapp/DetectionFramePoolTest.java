@@ -0,0 +1,65 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DetectionFramePoolTest {
+    @Test
+    public void framesAreRecycledOnceEveryShareIsReleased() {
+        DetectionFramePool pool = new DetectionFramePool(2, 4, 0, 0, new LabelTable());
+
+        DetectionFrame first = pool.acquire();
+        DetectionFrame second = pool.acquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNotSame(first, second);
+        assertNull(pool.acquire());
+        assertEquals(1, pool.getDroppedCount());
+
+        first.retain();
+        first.release();
+        assertNull(pool.acquire());
+        first.release();
+        assertEquals(1, pool.getFreeCount());
+        assertSame(first, pool.acquire());
+    }
+
+    @Test
+    public void storesDetectionsInPrimitiveArrays() {
+        LabelTable labels = new LabelTable();
+        DetectionFramePool pool = new DetectionFramePool(1, 2, 1, 2, labels);
+        DetectionFrame frame = pool.acquire();
+        frame.reset();
+
+        int cup = frame.add(1, 2, 3, 4, 0.9f, labels.idOf("Cup"), 7);
+        frame.setAttribute(cup, 0, 0.25f);
+        frame.setPoint(cup, 1, 5, 6);
+        frame.add(0, 0, 1, 1, 0.1f, LabelTable.NO_LABEL, BoxTracker.NO_ID);
+
+        assertEquals(-1, frame.add(0, 0, 1, 1, 0f, LabelTable.NO_LABEL, BoxTracker.NO_ID));
+        assertEquals(2, frame.getCount());
+        assertEquals(3f, frame.getBoxes()[2], 0f);
+        assertEquals(7, frame.getTrackingIds()[0]);
+        assertEquals("Cup", frame.getLabel(0, "Unknown"));
+        assertEquals("Unknown", frame.getLabel(1, "Unknown"));
+        assertEquals(0.25f, frame.getAttribute(0, 0), 0f);
+        assertTrue(Float.isNaN(frame.getAttribute(1, 0)));
+        assertTrue(Float.isNaN(frame.getPointX(0, 0)));
+        assertEquals(6f, frame.getPointY(0, 1), 0f);
+        assertEquals(7L, frame.getStableKey(0));
+        assertEquals(-2L, frame.getStableKey(1));
+        assertEquals(1f, frame.getSmallestExtent(), 0f);
+
+        frame.reset();
+        assertEquals(0, frame.getCount());
+        assertTrue(Float.isNaN(frame.getSmallestExtent()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releasingTooOftenFails() {
+        DetectionFrame frame = new DetectionFramePool(1, 1, 0, 0, new LabelTable()).acquire();
+        frame.release();
+        frame.release();
+    }
+}
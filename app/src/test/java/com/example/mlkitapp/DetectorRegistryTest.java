@@ -0,0 +1,115 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DetectorRegistryTest {
+    private static final long MS = 1_000_000L;
+
+    private static class FakeClient implements Closeable {
+        int warmUps = 0;
+        boolean closed = false;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static DetectorRegistry newRegistry(FakeClock clock) {
+        return new DetectorRegistry(clock, 1000 * MS, Runnable::run);
+    }
+
+    @Test
+    public void sameKeySharesOneWarmClient() {
+        DetectorRegistry registry = newRegistry(new FakeClock());
+        int[] created = new int[1];
+        DetectorRegistry.Factory<FakeClient> factory = () -> {
+            created[0]++;
+            return new FakeClient();
+        };
+
+        DetectorRegistry.Handle<FakeClient> first = registry.acquire("face", factory, c -> c.warmUps++);
+        DetectorRegistry.Handle<FakeClient> second = registry.acquire("face", factory, c -> c.warmUps++);
+
+        assertSame(first.get(), second.get());
+        assertEquals(1, created[0]);
+        assertEquals(1, first.get().warmUps);
+        assertNotSame(first.get(), registry.acquire("objects", factory, null).get());
+    }
+
+    @Test
+    public void releasedClientStaysOpenForReuse() {
+        FakeClock clock = new FakeClock();
+        DetectorRegistry registry = newRegistry(clock);
+
+        DetectorRegistry.Handle<FakeClient> handle = registry.acquire("face", FakeClient::new, null);
+        FakeClient client = handle.get();
+        handle.close();
+        clock.now += 500 * MS;
+
+        assertFalse(client.closed);
+        assertSame(client, registry.acquire("face", FakeClient::new, null).get());
+    }
+
+    @Test
+    public void idleClientIsClosedAfterTimeout() {
+        FakeClock clock = new FakeClock();
+        DetectorRegistry registry = newRegistry(clock);
+
+        DetectorRegistry.Handle<FakeClient> idle = registry.acquire("face", FakeClient::new, null);
+        DetectorRegistry.Handle<FakeClient> busy = registry.acquire("objects", FakeClient::new, null);
+        idle.close();
+        // Releasing twice must not drop a reference the handle never held
+        idle.close();
+        clock.now += 1000 * MS;
+
+        assertEquals(1, registry.evictIdle());
+        assertTrue(idle.get().closed);
+        assertFalse(busy.get().closed);
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void memoryPressureEvictsEveryIdleClient() {
+        FakeClock clock = new FakeClock();
+        DetectorRegistry registry = newRegistry(clock);
+
+        FakeClient warm = new FakeClient();
+        registry.acquire("face", () -> warm, null).close();
+        DetectorRegistry.Handle<FakeClient> busy = registry.acquire("objects", FakeClient::new, null);
+
+        assertEquals(0, registry.evictIdle());
+        assertEquals(1, registry.evictAllIdle());
+        assertTrue(warm.closed);
+        assertFalse(busy.get().closed);
+    }
+
+    @Test
+    public void everyHandleCanWaitForTheWarmUp() throws InterruptedException {
+        ArrayDeque<Runnable> warmUps = new ArrayDeque<>();
+        DetectorRegistry registry = new DetectorRegistry(new FakeClock(), 1000 * MS, warmUps::add);
+        String[] failedKey = new String[1];
+        registry.setWarmUpFailureListener((key, e) -> failedKey[0] = key);
+
+        DetectorRegistry.Handle<FakeClient> first = registry.acquire("face", FakeClient::new, c -> {
+            throw new IllegalStateException("model missing");
+        });
+        DetectorRegistry.Handle<FakeClient> second = registry.acquire("face", FakeClient::new, null);
+        assertFalse(first.awaitWarmUp(0, TimeUnit.MILLISECONDS));
+        assertFalse(second.awaitWarmUp(0, TimeUnit.MILLISECONDS));
+
+        warmUps.remove().run();
+        // A failed warm-up is reported and still releases the waiters
+        assertEquals("face", failedKey[0]);
+        assertTrue(first.awaitWarmUp(0, TimeUnit.MILLISECONDS));
+        assertTrue(second.awaitWarmUp(0, TimeUnit.MILLISECONDS));
+        assertTrue(registry.acquire("text", FakeClient::new, null)
+                .awaitWarmUp(0, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FaceCascadeTest {
+    private final DetectionFramePool pool = new DetectionFramePool(4, 4, 1, 1, new LabelTable());
+
+    private DetectionFrame frame() {
+        DetectionFrame frame = pool.acquire();
+        frame.reset();
+        return frame;
+    }
+
+    @Test
+    public void runsFullPassesEveryIntervalAndForNewFaces() {
+        FaceCascade cascade = new FaceCascade(3, 0.5f, 4, 1, 1);
+
+        long first = cascade.beginFrame();
+        assertTrue(cascade.isFullPass(first));
+        // Only one full pass in flight at a time
+        assertFalse(cascade.isFullPass(cascade.beginFrame()));
+        assertFalse(cascade.isFullPass(cascade.beginFrame()));
+        assertFalse(cascade.isFullPass(cascade.beginFrame()));
+        cascade.endFullPass(first);
+        assertTrue(cascade.isFullPass(cascade.beginFrame()));
+    }
+
+    @Test
+    public void copiesFeaturesOntoFastFacesAndFollowsTheirBoxes() {
+        FaceCascade cascade = new FaceCascade(10, 0.5f, 4, 1, 1);
+
+        long first = cascade.beginFrame();
+        DetectionFrame fast = frame();
+        fast.add(0, 0, 10, 10, 1f, LabelTable.NO_LABEL, 5);
+        DetectionFrame full = frame();
+        full.add(1, 1, 11, 11, 1f, LabelTable.NO_LABEL, 90);
+        full.setAttribute(0, 0, 0.75f);
+        full.setPoint(0, 0, 6, 11);
+        assertTrue(cascade.merge(fast, full, first));
+        assertEquals(0.75f, fast.getAttribute(0, 0), 0f);
+        assertFalse(fast.isCarriedOver(0));
+        assertEquals(5f, fast.getPointX(0, 0), 1e-5f);
+        assertEquals(10f, fast.getPointY(0, 0), 1e-5f);
+        fast.release();
+        full.release();
+
+        // A later boxes-only frame gets the cached features, moved with its box
+        long second = cascade.beginFrame();
+        assertFalse(cascade.isFullPass(second));
+        DetectionFrame moved = frame();
+        moved.add(20, 0, 40, 20, 1f, LabelTable.NO_LABEL, 5);
+        assertTrue(cascade.apply(moved, second));
+        assertEquals(0.75f, moved.getAttribute(0, 0), 0f);
+        assertTrue(moved.isCarriedOver(0));
+        assertEquals(30f, moved.getPointX(0, 0), 1e-5f);
+        assertEquals(20f, moved.getPointY(0, 0), 1e-5f);
+        moved.release();
+
+        // A face the cache does not cover asks for a full pass on the next frame
+        long third = cascade.beginFrame();
+        DetectionFrame newcomer = frame();
+        newcomer.add(20, 0, 40, 20, 1f, LabelTable.NO_LABEL, 6);
+        assertTrue(cascade.apply(newcomer, third));
+        assertTrue(Float.isNaN(newcomer.getAttribute(0, 0)));
+        assertTrue(cascade.isFullPass(cascade.beginFrame()));
+    }
+
+    @Test
+    public void reportsResultsOlderThanTheLastAppliedOne() {
+        FaceCascade cascade = new FaceCascade(10, 0.5f, 4, 1, 1);
+        long first = cascade.beginFrame();
+        long second = cascade.beginFrame();
+
+        DetectionFrame later = frame();
+        later.add(0, 0, 10, 10, 1f, LabelTable.NO_LABEL, 1);
+        assertTrue(cascade.apply(later, second));
+
+        DetectionFrame fast = frame();
+        fast.add(0, 0, 10, 10, 1f, LabelTable.NO_LABEL, 1);
+        DetectionFrame full = frame();
+        full.add(0, 0, 10, 10, 1f, LabelTable.NO_LABEL, 2);
+        full.setAttribute(0, 0, 0.5f);
+        assertFalse(cascade.merge(fast, full, first));
+
+        // The late full pass still feeds the cache
+        long third = cascade.beginFrame();
+        later.reset();
+        later.add(0, 0, 10, 10, 1f, LabelTable.NO_LABEL, 1);
+        assertTrue(cascade.apply(later, third));
+        assertEquals(0.5f, later.getAttribute(0, 0), 0f);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FaceStateStoreTest {
+    private static final long MS = 1_000_000L;
+
+    private static DetectionFrame frame(DetectionFramePool pool, long captureNanos) {
+        DetectionFrame frame = pool.acquire();
+        frame.reset();
+        frame.setImage(100, 100, captureNanos);
+        return frame;
+    }
+
+    @Test
+    public void smoothsAttributesAndWritesThemBack() {
+        DetectionFramePool pool = new DetectionFramePool(1, 4, 1, 0, new LabelTable());
+        FaceStateStore store = new FaceStateStore(4, 1, 0.5f, 1000 * MS);
+
+        DetectionFrame first = frame(pool, 0);
+        first.add(0, 0, 10, 10, 1f, LabelTable.NO_LABEL, 7);
+        first.setAttribute(0, 0, 1f);
+        store.update(first);
+        assertEquals(1f, first.getAttribute(0, 0), 0f);
+        first.release();
+
+        DetectionFrame second = frame(pool, 100 * MS);
+        second.add(10, 0, 20, 10, 1f, LabelTable.NO_LABEL, 7);
+        second.setAttribute(0, 0, 0f);
+        // Untracked faces pass through untouched
+        second.add(0, 0, 1, 1, 1f, LabelTable.NO_LABEL, BoxTracker.NO_ID);
+        second.setAttribute(1, 0, 0.2f);
+        store.update(second);
+
+        assertEquals(0.5f, second.getAttribute(0, 0), 1e-6f);
+        assertEquals(0.2f, second.getAttribute(1, 0), 0f);
+        assertEquals(0.5f, store.getAttribute(7, 0), 1e-6f);
+        assertEquals(0L, store.getFirstSeenNanos(7));
+        assertEquals(100 * MS, store.getLastSeenNanos(7));
+        // 10 px in 100 ms, half weighted in
+        assertEquals(50f, store.getVelocityX(7), 1e-3f);
+        assertEquals(0f, store.getVelocityY(7), 0f);
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void missingSamplesKeepTheLastSmoothedValue() {
+        DetectionFramePool pool = new DetectionFramePool(1, 1, 1, 0, new LabelTable());
+        FaceStateStore store = new FaceStateStore(4, 1, 0.5f, 1000 * MS);
+
+        DetectionFrame first = frame(pool, 0);
+        first.add(0, 0, 10, 10, 1f, LabelTable.NO_LABEL, 3);
+        store.update(first);
+        assertTrue(Float.isNaN(first.getAttribute(0, 0)));
+        first.reset();
+        first.setImage(100, 100, 10 * MS);
+        first.add(0, 0, 10, 10, 1f, LabelTable.NO_LABEL, 3);
+        first.setAttribute(0, 0, 0.8f);
+        store.update(first);
+        first.reset();
+        first.setImage(100, 100, 20 * MS);
+        first.add(0, 0, 10, 10, 1f, LabelTable.NO_LABEL, 3);
+        store.update(first);
+
+        assertEquals(0.8f, first.getAttribute(0, 0), 0f);
+    }
+
+    @Test
+    public void evictsFacesPastTheirTtlAndKeepsTheRestReachable() {
+        DetectionFramePool pool = new DetectionFramePool(1, 64, 0, 0, new LabelTable());
+        FaceStateStore store = new FaceStateStore(2, 0, 0.5f, 100 * MS);
+
+        // Enough IDs to grow the table and build long probe runs
+        DetectionFrame early = frame(pool, 0);
+        for (int id = 0; id < 40; id++) {
+            early.add(0, 0, 1, 1, 1f, LabelTable.NO_LABEL, id);
+        }
+        store.update(early);
+        early.release();
+        assertEquals(40, store.size());
+
+        DetectionFrame late = frame(pool, 150 * MS);
+        for (int id = 0; id < 40; id += 3) {
+            late.add(0, 0, 1, 1, 1f, LabelTable.NO_LABEL, id);
+        }
+        store.update(late);
+
+        assertEquals(14, store.size());
+        for (int id = 0; id < 40; id++) {
+            assertEquals("id " + id, id % 3 == 0, store.contains(id));
+        }
+        assertEquals(-1L, store.getFirstSeenNanos(1));
+
+        store.evictExpired(300 * MS);
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void sameBoxAtAnotherImageSizeHasNoVelocity() {
+        DetectionFramePool pool = new DetectionFramePool(1, 4, 1, 0, new LabelTable());
+        FaceStateStore store = new FaceStateStore(4, 1, 0.5f, 1000 * MS);
+
+        DetectionFrame first = pool.acquire();
+        first.reset();
+        first.setImage(480, 640, 0);
+        first.add(100, 200, 200, 300, 1f, LabelTable.NO_LABEL, 7);
+        store.update(first);
+        first.release();
+
+        DetectionFrame second = pool.acquire();
+        second.reset();
+        second.setImage(240, 320, 100 * MS);
+        second.add(50, 100, 100, 150, 1f, LabelTable.NO_LABEL, 7);
+        store.update(second);
+        second.release();
+
+        assertEquals(0f, store.getVelocityX(7), 1e-3f);
+        assertEquals(0f, store.getVelocityY(7), 1e-3f);
+    }
+
+    @Test
+    public void carriedOverAttributesAreNotNewSamples() {
+        DetectionFramePool pool = new DetectionFramePool(1, 4, 1, 0, new LabelTable());
+        FaceStateStore store = new FaceStateStore(4, 1, 0.5f, 1000 * MS);
+
+        DetectionFrame first = frame(pool, 0);
+        first.add(0, 0, 10, 10, 1f, LabelTable.NO_LABEL, 7);
+        first.setAttribute(0, 0, 0f);
+        store.update(first);
+        first.release();
+
+        DetectionFrame measured = frame(pool, 100 * MS);
+        measured.add(0, 0, 10, 10, 1f, LabelTable.NO_LABEL, 7);
+        measured.setAttribute(0, 0, 1f);
+        store.update(measured);
+        measured.release();
+        assertEquals(0.5f, store.getAttribute(7, 0), 1e-6f);
+
+        // The same value copied forward by the cascade must not pull the average further
+        for (int i = 2; i < 7; i++) {
+            DetectionFrame copy = frame(pool, i * 100 * MS);
+            copy.add(0, 0, 10, 10, 1f, LabelTable.NO_LABEL, 7);
+            copy.setAttribute(0, 0, 1f);
+            copy.setCarriedOver(0);
+            store.update(copy);
+            assertEquals(0.5f, copy.getAttribute(0, 0), 1e-6f);
+            copy.release();
+        }
+        assertEquals(0.5f, store.getAttribute(7, 0), 1e-6f);
+
+        // A carried-over value still seeds a face with nothing smoothed yet
+        DetectionFrame seeded = frame(pool, 800 * MS);
+        seeded.add(50, 50, 60, 60, 1f, LabelTable.NO_LABEL, 8);
+        seeded.setAttribute(0, 0, 0.25f);
+        seeded.setCarriedOver(0);
+        store.update(seeded);
+        assertEquals(0.25f, store.getAttribute(8, 0), 0f);
+        seeded.release();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.mlkitapp;
+
+/**
+ * Clock the test moves by hand.
+ */
+class FakeClock implements Clock {
+    private static final long MS = 1_000_000L;
+
+    long now = 0;
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    void advanceMs(long ms) {
+        now += ms * MS;
+    }
+}
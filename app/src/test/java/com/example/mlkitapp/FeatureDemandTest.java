@@ -0,0 +1,25 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FeatureDemandTest {
+    @Test
+    public void reportsChangesOfTheUnionOnly() {
+        FeatureDemand demand = new FeatureDemand(2);
+        assertEquals(0, demand.get());
+
+        assertTrue(demand.set(0, FeatureDemand.LANDMARKS));
+        assertTrue(demand.set(1, FeatureDemand.LANDMARKS | FeatureDemand.CLASSIFICATION));
+        assertTrue(demand.has(FeatureDemand.CLASSIFICATION));
+
+        // Still demanded by the second consumer
+        assertFalse(demand.set(0, 0));
+        assertTrue(demand.has(FeatureDemand.LANDMARKS));
+
+        assertTrue(demand.set(1, 0));
+        assertEquals(0, demand.get());
+        assertFalse(demand.set(1, 0));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameAdmissionControllerTest {
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void admitsAtTargetRate() {
+        FakeClock clock = new FakeClock();
+        FrameAdmissionController controller = new FrameAdmissionController(clock, 10f);
+
+        assertEquals(FrameAdmissionController.Decision.ADMIT, controller.tryAdmit());
+        controller.onComplete(controller.now());
+
+        clock.advanceMs(50);
+        assertEquals(FrameAdmissionController.Decision.SKIP_RATE, controller.tryAdmit());
+
+        clock.advanceMs(50);
+        assertEquals(FrameAdmissionController.Decision.ADMIT, controller.tryAdmit());
+    }
+
+    @Test
+    public void skipsWhileBusy() {
+        FakeClock clock = new FakeClock();
+        FrameAdmissionController controller = new FrameAdmissionController(clock, 30f);
+
+        assertEquals(FrameAdmissionController.Decision.ADMIT, controller.tryAdmit());
+        long start = controller.now();
+        clock.advanceMs(100);
+        assertEquals(FrameAdmissionController.Decision.SKIP_BUSY, controller.tryAdmit());
+
+        controller.onComplete(start);
+        assertEquals(FrameAdmissionController.Decision.ADMIT, controller.tryAdmit());
+    }
+
+    @Test
+    public void pacesToDetectorLatencyWhenBehind() {
+        FakeClock clock = new FakeClock();
+        FrameAdmissionController controller = new FrameAdmissionController(clock, 30f);
+
+        // First frame takes 100ms, far longer than the 33ms target interval
+        assertEquals(FrameAdmissionController.Decision.ADMIT, controller.tryAdmit());
+        long start = controller.now();
+        clock.advanceMs(100);
+        controller.onComplete(start);
+
+        // A fast frame only pulls the EWMA down to 82ms
+        assertEquals(FrameAdmissionController.Decision.ADMIT, controller.tryAdmit());
+        start = controller.now();
+        clock.advanceMs(10);
+        controller.onComplete(start);
+
+        clock.advanceMs(40);
+        assertEquals(FrameAdmissionController.Decision.SKIP_BEHIND, controller.tryAdmit());
+
+        clock.advanceMs(40);
+        assertEquals(FrameAdmissionController.Decision.ADMIT, controller.tryAdmit());
+    }
+
+    @Test
+    public void reportsLatencyStatistics() {
+        FakeClock clock = new FakeClock();
+        FrameAdmissionController controller =
+                new FrameAdmissionController(clock, 1000f, 1, 0.5);
+
+        long[] latenciesMs = {10, 20, 30, 40};
+        for (long latency : latenciesMs) {
+            assertEquals(FrameAdmissionController.Decision.ADMIT, controller.tryAdmit());
+            long start = controller.now();
+            clock.advanceMs(latency);
+            controller.onComplete(start);
+            clock.advanceMs(latency);
+        }
+
+        FrameAdmissionController.Stats stats = controller.getStats();
+        assertEquals(4, stats.getCount(FrameAdmissionController.Decision.ADMIT));
+        assertEquals(20 * MS, stats.getP50LatencyNanos());
+        assertEquals(40 * MS, stats.getP90LatencyNanos());
+        // 10 -> 15 -> 22.5 -> 31.25
+        assertEquals(31.25 * MS, stats.getEwmaLatencyNanos(), 1);
+        assertEquals(0, stats.getInFlight());
+    }
+
+    @Test
+    public void notifiesListenerOfEveryDecision() {
+        FakeClock clock = new FakeClock();
+        FrameAdmissionController controller = new FrameAdmissionController(clock, 10f);
+        int[] calls = new int[1];
+        controller.setListener((decision, stats) -> calls[0]++);
+
+        controller.tryAdmit();
+        controller.tryAdmit();
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    public void cancelFreesTheSlotWithoutASample() {
+        FakeClock clock = new FakeClock();
+        FrameAdmissionController controller = new FrameAdmissionController(clock, 10f);
+
+        assertEquals(FrameAdmissionController.Decision.ADMIT, controller.tryAdmit());
+        long start = controller.now();
+        clock.advanceMs(80);
+        controller.onComplete(start);
+
+        clock.advanceMs(100);
+        assertEquals(FrameAdmissionController.Decision.ADMIT, controller.tryAdmit());
+        controller.cancel();
+
+        FrameAdmissionController.Stats stats = controller.getStats();
+        assertEquals(0, stats.getInFlight());
+        assertEquals(80 * MS, stats.getEwmaLatencyNanos());
+        assertEquals(80 * MS, stats.getP50LatencyNanos());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void completeWithoutAdmitFails() {
+        new FrameAdmissionController(new FakeClock(), 10f).onComplete(0);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class FrameRecordingTest {
+    private static final int WIDTH = 6;
+    private static final int HEIGHT = 4;
+    private static final int Y_ROW_STRIDE = 8;
+    private static final int CHROMA_ROW_STRIDE = 8;
+
+    /**
+     * Builds a semi-planar frame like most camera HALs produce: padded rows and U/V
+     * planes that interleave with a pixel stride of 2.
+     */
+    private static YuvFrame syntheticFrame(int seed, long timestampNanos) {
+        byte[] y = new byte[Y_ROW_STRIDE * HEIGHT];
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                y[row * Y_ROW_STRIDE + col] = (byte) (seed + row * WIDTH + col);
+            }
+        }
+        byte[] uv = new byte[CHROMA_ROW_STRIDE * (HEIGHT / 2)];
+        for (int row = 0; row < HEIGHT / 2; row++) {
+            for (int col = 0; col < WIDTH / 2; col++) {
+                uv[row * CHROMA_ROW_STRIDE + col * 2] = (byte) (100 + seed + col);
+                uv[row * CHROMA_ROW_STRIDE + col * 2 + 1] = (byte) (200 + seed + col);
+            }
+        }
+        ByteBuffer u = ByteBuffer.wrap(uv, 0, uv.length - 1).slice();
+        ByteBuffer v = ByteBuffer.wrap(uv, 1, uv.length - 1).slice();
+        return new YuvFrame(WIDTH, HEIGHT, 90, timestampNanos,
+                new ByteBuffer[]{ByteBuffer.wrap(y), u, v},
+                new int[]{Y_ROW_STRIDE, CHROMA_ROW_STRIDE, CHROMA_ROW_STRIDE},
+                new int[]{1, 2, 2},
+                null);
+    }
+
+    private static byte[] nv21(YuvFrame frame) {
+        byte[] out = new byte[frame.nv21Size()];
+        frame.copyToNv21(out);
+        return out;
+    }
+
+    private static File record(int frames, long intervalNanos) throws IOException {
+        File file = File.createTempFile("frames", ".yuvrec");
+        file.deleteOnExit();
+        try (FrameRecordingWriter writer = new FrameRecordingWriter(file)) {
+            for (int i = 0; i < frames; i++) {
+                writer.write(syntheticFrame(i, 1_000_000L + i * intervalNanos));
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void nv21ConversionHonoursStrides() {
+        byte[] out = nv21(syntheticFrame(0, 0));
+
+        assertEquals(WIDTH * HEIGHT + WIDTH * HEIGHT / 2, out.length);
+        assertEquals(7, out[WIDTH + 1]);
+        // V comes before U in NV21
+        assertEquals((byte) 200, out[WIDTH * HEIGHT]);
+        assertEquals((byte) 100, out[WIDTH * HEIGHT + 1]);
+        assertEquals((byte) 202, out[WIDTH * HEIGHT + 4]);
+    }
+
+    @Test
+    public void roundTripsFramesAndMetadata() throws IOException {
+        File file = record(3, 33_000_000L);
+
+        try (FrameRecordingReader reader = new FrameRecordingReader(file)) {
+            assertEquals(3, reader.getFrameCount());
+            for (int i = 0; i < 3; i++) {
+                YuvFrame frame = reader.getFrame(i, null);
+                YuvFrame expected = syntheticFrame(i, 1_000_000L + i * 33_000_000L);
+                assertEquals(WIDTH, frame.getWidth());
+                assertEquals(HEIGHT, frame.getHeight());
+                assertEquals(90, frame.getRotationDegrees());
+                assertEquals(expected.getTimestampNanos(), frame.getTimestampNanos());
+                assertEquals(Y_ROW_STRIDE, frame.getRowStride(0));
+                assertEquals(2, frame.getPixelStride(1));
+                assertArrayEquals(nv21(expected), nv21(frame));
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsForeignFiles() throws IOException {
+        File file = File.createTempFile("frames", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[64]);
+        new FrameRecordingReader(file).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsPlanesLongerThanTheirRecord() throws IOException {
+        File file = record(2, 33_000_000L);
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            // First record's Y plane length: file header, record length, fixed fields, strides
+            raw.seek(FrameRecordingWriter.HEADER_SIZE + 4 + 20 + 8);
+            raw.writeInt(Integer.reverseBytes(1 << 20));
+        }
+        new FrameRecordingReader(file).close();
+    }
+
+    @Test
+    public void replaysEveryFrameAtMaximumSpeed() throws Exception {
+        File file = record(20, 33_000_000L);
+        ExecutorService fakeDetector = Executors.newSingleThreadExecutor();
+        AtomicInteger processed = new AtomicInteger();
+        AtomicLong lumaSum = new AtomicLong();
+
+        try (FrameRecordingReader reader = new FrameRecordingReader(file)) {
+            FrameReplaySource source = new FrameReplaySource(reader, Clock.SYSTEM);
+            FrameReplaySource.Result result = source.replay(frame -> fakeDetector.execute(() -> {
+                lumaSum.addAndGet(frame.getPlane(0).get(0) & 0xFF);
+                processed.incrementAndGet();
+                frame.close();
+            }), FrameReplaySource.Pacing.MAXIMUM);
+
+            assertEquals(20, result.getDeliveredFrames());
+            assertEquals(0, result.getDroppedFrames());
+            assertEquals(20, processed.get());
+            assertEquals(19 * 20 / 2, lumaSum.get());
+        } finally {
+            fakeDetector.shutdown();
+            fakeDetector.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void dropsFramesWhileSinkIsBusyAtRecordedSpeed() throws Exception {
+        File file = record(10, 10_000_000L);
+        ExecutorService slowDetector = Executors.newSingleThreadExecutor();
+
+        try (FrameRecordingReader reader = new FrameRecordingReader(file)) {
+            FrameReplaySource source = new FrameReplaySource(reader, Clock.SYSTEM);
+            FrameReplaySource.Result result = source.replay(frame -> slowDetector.execute(() -> {
+                try {
+                    Thread.sleep(35);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                frame.close();
+            }), FrameReplaySource.Pacing.RECORDED);
+
+            assertEquals(10, result.getDeliveredFrames() + result.getDroppedFrames());
+            assertTrue(result.getDroppedFrames() > 0);
+            assertTrue(result.getElapsedNanos() >= 90_000_000L);
+        } finally {
+            slowDetector.shutdown();
+            slowDetector.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+}
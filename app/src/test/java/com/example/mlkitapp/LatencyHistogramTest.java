@@ -0,0 +1,102 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void percentilesStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1ms to 100ms in 1ms steps
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100_000_000L, histogram.getMaxNanos());
+        assertWithin(50_000_000L, histogram.getValueAtPercentile(50));
+        assertWithin(90_000_000L, histogram.getValueAtPercentile(90));
+        assertWithin(99_000_000L, histogram.getValueAtPercentile(99));
+        assertEquals(100_000_000L, histogram.getValueAtPercentile(100));
+        assertEquals(50_500_000L, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(7);
+        histogram.record(100);
+
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertEquals(7, histogram.getValueAtPercentile(50));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void hugeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(LatencyHistogram.HIGHEST_TRACKABLE_NANOS, histogram.getMaxNanos());
+        assertEquals(LatencyHistogram.HIGHEST_TRACKABLE_NANOS, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i * 1000L);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40_000, histogram.getCount());
+        assertWithin(9_999_000L, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void registryDumpsEveryHistogramByName() throws IOException {
+        LatencyRegistry registry = new LatencyRegistry();
+        registry.histogram("b" + LatencyRegistry.DETECT).record(2_000_000L);
+        registry.histogram(LatencyRegistry.QUEUE).record(1_000_000L);
+        assertSame(registry.histogram(LatencyRegistry.QUEUE), registry.get(LatencyRegistry.QUEUE));
+
+        StringWriter out = new StringWriter();
+        registry.writeTo(out);
+        String[] lines = out.toString().split("\n");
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("b.detect: n=1 "));
+        assertTrue(lines[1].startsWith("queue: n=1 "));
+
+        registry.resetAll();
+        assertEquals(0, registry.get(LatencyRegistry.QUEUE).getCount());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        // Bucket resolution is 1/64 of the value's power of two; reported values round up
+        assertTrue("expected ~" + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 32);
+    }
+}
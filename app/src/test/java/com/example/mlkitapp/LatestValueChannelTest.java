@@ -0,0 +1,56 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LatestValueChannelTest {
+    @Test
+    public void onlyTheFirstPublishAfterATakeAsksForAWakeUp() {
+        LatestValueChannel<String> channel = new LatestValueChannel<>();
+
+        assertNull(channel.publish("a"));
+        assertEquals("a", channel.publish("b"));
+        assertEquals("b", channel.take());
+        assertNull(channel.take());
+        assertNull(channel.publish("c"));
+    }
+
+    @Test
+    public void everyValueIsEitherTakenOrHandedBack() throws InterruptedException {
+        LatestValueChannel<Integer> channel = new LatestValueChannel<>();
+        int producers = 4;
+        int perProducer = 10_000;
+        AtomicInteger handedBack = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    if (channel.publish(i) != null) {
+                        handedBack.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+
+        int taken = 0;
+        while (done.getCount() > 0) {
+            if (channel.take() != null) {
+                taken++;
+            }
+        }
+        if (channel.take() != null) {
+            taken++;
+        }
+        assertEquals(producers * perProducer, taken + handedBack.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNull() {
+        new LatestValueChannel<String>().publish(null);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LongIntHashMapTest {
+    @Test
+    public void countsPerKey() {
+        LongIntHashMap map = new LongIntHashMap();
+
+        assertEquals(1, map.addTo(42L, 1));
+        assertEquals(2, map.addTo(42L, 1));
+        assertEquals(1, map.addTo(-7L, 1));
+        map.put(0L, 5);
+
+        assertEquals(3, map.size());
+        assertEquals(2, map.get(42L, 0));
+        assertEquals(5, map.get(0L, 0));
+        assertEquals(-1, map.get(99L, -1));
+        assertFalse(map.containsKey(99L));
+    }
+
+    @Test
+    public void growsWithoutLosingEntries() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (long key = 0; key < 10_000; key++) {
+            // Keys that share their low bits would all collide without mixing
+            map.put(key << 32, (int) key);
+        }
+
+        assertEquals(10_000, map.size());
+        for (long key = 0; key < 10_000; key++) {
+            assertEquals((int) key, map.get(key << 32, -1));
+        }
+    }
+
+    @Test
+    public void clearEmptiesTheMap() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.addTo(1L, 3);
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(1L));
+        assertEquals(1, map.addTo(1L, 1));
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LumaEnhancerTest {
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final int ROW_STRIDE = 72;
+    private static final byte PADDING = (byte) 0xAB;
+
+    @Test
+    public void contrastLutClampsToByteRange() {
+        byte[] lut = LumaEnhancer.contrastLut(1.4f, 20);
+
+        assertEquals(20, lut[0] & 0xFF);
+        assertEquals(160, lut[100] & 0xFF);
+        assertEquals(255, lut[255] & 0xFF);
+    }
+
+    @Test
+    public void lutRewritesPixelsAndLeavesRowPadding() {
+        ByteBuffer plane = gradientPlane();
+        byte[] invert = new byte[LumaEnhancer.LUT_SIZE];
+        for (int v = 0; v < invert.length; v++) {
+            invert[v] = (byte) (255 - v);
+        }
+
+        try (LumaEnhancer enhancer = new LumaEnhancer(3)) {
+            enhancer.applyLut(plane, WIDTH, HEIGHT, ROW_STRIDE, invert);
+        }
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(255 - gradient(x, y), plane.get(y * ROW_STRIDE + x) & 0xFF);
+            }
+        }
+        assertPaddingUntouched(plane);
+        assertEquals(0, plane.position());
+    }
+
+    @Test
+    public void parallelClaheMatchesSingleThreaded() {
+        ByteBuffer serial = noisyDarkPlane();
+        ByteBuffer parallel = noisyDarkPlane();
+
+        try (LumaEnhancer one = new LumaEnhancer(1); LumaEnhancer four = new LumaEnhancer(4)) {
+            one.applyClahe(serial, WIDTH, HEIGHT, ROW_STRIDE, 4, 3, 2f);
+            four.applyClahe(parallel, WIDTH, HEIGHT, ROW_STRIDE, 4, 3, 2f);
+        }
+
+        assertEquals(serial, parallel);
+        assertPaddingUntouched(parallel);
+    }
+
+    @Test
+    public void claheStretchesDimPlane() {
+        ByteBuffer plane = noisyDarkPlane();
+        int before = range(plane);
+
+        try (LumaEnhancer enhancer = new LumaEnhancer(2)) {
+            enhancer.applyClahe(plane, WIDTH, HEIGHT, ROW_STRIDE, 2, 2, 4f);
+            // Buffers are reused; a second pass on the same size must still work
+            enhancer.applyClahe(noisyDarkPlane(), WIDTH, HEIGHT, ROW_STRIDE, 2, 2, 4f);
+        }
+
+        assertTrue("range " + before + " -> " + range(plane), range(plane) > before * 2);
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void readOnlyPlaneIsRejected() {
+        try (LumaEnhancer enhancer = new LumaEnhancer(1)) {
+            enhancer.applyLut(gradientPlane().asReadOnlyBuffer(), WIDTH, HEIGHT, ROW_STRIDE,
+                    LumaEnhancer.contrastLut(1.2f, 10));
+        }
+    }
+
+    @Test
+    public void argbLutKeepsAlpha() {
+        int[] pixels = {0x80102030};
+        LumaEnhancer.applyLutArgb(pixels, 0, 1, LumaEnhancer.contrastLut(2f, 0));
+
+        assertEquals(0x80204060, pixels[0]);
+    }
+
+    private static int gradient(int x, int y) {
+        return (x * 4 + y) & 0xFF;
+    }
+
+    private static ByteBuffer gradientPlane() {
+        ByteBuffer plane = paddedPlane();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                plane.put(y * ROW_STRIDE + x, (byte) gradient(x, y));
+            }
+        }
+        return plane;
+    }
+
+    private static ByteBuffer noisyDarkPlane() {
+        ByteBuffer plane = paddedPlane();
+        Random random = new Random(42);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                // Dim text-like stripes between 10 and 40
+                int value = ((x / 4) % 2 == 0 ? 12 : 32) + random.nextInt(6);
+                plane.put(y * ROW_STRIDE + x, (byte) value);
+            }
+        }
+        return plane;
+    }
+
+    private static ByteBuffer paddedPlane() {
+        ByteBuffer plane = ByteBuffer.allocateDirect(HEIGHT * ROW_STRIDE);
+        for (int i = 0; i < plane.capacity(); i++) {
+            plane.put(i, PADDING);
+        }
+        return plane;
+    }
+
+    private static void assertPaddingUntouched(ByteBuffer plane) {
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = WIDTH; x < ROW_STRIDE; x++) {
+                assertEquals(PADDING, plane.get(y * ROW_STRIDE + x));
+            }
+        }
+    }
+
+    private static int range(ByteBuffer plane) {
+        int min = 255;
+        int max = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int v = plane.get(y * ROW_STRIDE + x) & 0xFF;
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+        }
+        return max - min;
+    }
+}
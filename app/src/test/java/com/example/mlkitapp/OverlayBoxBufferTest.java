@@ -0,0 +1,60 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OverlayBoxBufferTest {
+    @Test
+    public void scalesBoxesToTheView() {
+        OverlayBoxBuffer buffer = new OverlayBoxBuffer();
+        buffer.setTransform(640, 480, 0, false, 1280, 960);
+
+        buffer.addBox(10, 20, 110, 220, 1);
+
+        assertEquals(20f, buffer.getLeft(0), 0f);
+        assertEquals(40f, buffer.getTop(0), 0f);
+        assertEquals(220f, buffer.getRight(0), 0f);
+        assertEquals(440f, buffer.getBottom(0), 0f);
+    }
+
+    @Test
+    public void mirroringKeepsLeftOfRight() {
+        OverlayBoxBuffer buffer = new OverlayBoxBuffer();
+        buffer.setTransform(100, 100, 0, true, 100, 100);
+
+        buffer.addBox(10, 0, 30, 10, 1);
+        buffer.addPoint(10, 5);
+
+        assertEquals(70f, buffer.getLeft(0), 0f);
+        assertEquals(90f, buffer.getRight(0), 0f);
+        assertEquals(90f, buffer.getPoints()[0], 0f);
+        assertEquals(5f, buffer.getPoints()[1], 0f);
+    }
+
+    @Test
+    public void batchesOutlinesPerColor() {
+        OverlayBoxBuffer buffer = new OverlayBoxBuffer();
+        buffer.setTransform(100, 100, 0, false, 100, 100);
+        for (int i = 0; i < 40; i++) {
+            buffer.addBox(i, i, i + 10, i + 10, i % 3 == 0 ? 7 : 9);
+        }
+
+        int[] colors = new int[buffer.getBoxCount()];
+        assertEquals(2, buffer.distinctColors(colors));
+        assertEquals(7, colors[0]);
+        assertEquals(9, colors[1]);
+
+        // 14 boxes of the first color, four segments of four floats each
+        assertEquals(14 * 16, buffer.buildLines(7));
+        float[] lines = buffer.getLines();
+        float[] expected = {0, 0, 10, 0, 10, 0, 10, 10, 10, 10, 0, 10, 0, 10, 0, 0};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], lines[i], 0f);
+        }
+        assertEquals(26 * 16, buffer.buildLines(9));
+
+        buffer.clear();
+        assertEquals(0, buffer.buildLines(7));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OverlayLabelCacheTest {
+    /** Measures one unit per character and counts calls. */
+    private static class CountingMeasurer implements OverlayLabelCache.Measurer {
+        int calls = 0;
+
+        @Override
+        public float measure(String text) {
+            calls++;
+            return text.length();
+        }
+    }
+
+    @Test
+    public void formatsConfidenceToTenthsOfAPercent() {
+        OverlayLabelCache cache = new OverlayLabelCache(new CountingMeasurer(), 16);
+
+        assertEquals("Cup 87.3%", cache.percent("Cup", 0.8734f).text);
+        assertEquals("Cup 0.0%", cache.percent("Cup", -0.2f).text);
+        assertEquals("Cup 100.0%", cache.percent("Cup", 1.5f).text);
+        assertEquals(9f, cache.percent("Cup", 0.8734f).width, 0f);
+    }
+
+    @Test
+    public void repeatedLabelsAreNotFormattedOrMeasuredAgain() {
+        CountingMeasurer measurer = new CountingMeasurer();
+        OverlayLabelCache cache = new OverlayLabelCache(measurer, 16);
+        OverlayLabelCache.Numbers ids = cache.numbers("ID: ", "");
+
+        OverlayLabelCache.Entry first = cache.percent("Cup", 0.5f);
+        OverlayLabelCache.Entry id = ids.get(12);
+
+        assertSame(first, cache.percent("Cup", 0.5f));
+        assertSame(id, ids.get(12));
+        assertEquals("ID: 12", id.text);
+        assertEquals(2, measurer.calls);
+    }
+
+    @Test
+    public void numbersStartOverWhenFull() {
+        CountingMeasurer measurer = new CountingMeasurer();
+        OverlayLabelCache.Numbers counts = new OverlayLabelCache(measurer, 2).numbers("", " texts");
+
+        counts.get(1);
+        counts.get(2);
+        counts.get(3);
+
+        assertEquals("1 texts", counts.get(1).text);
+        assertEquals(4, measurer.calls);
+    }
+}
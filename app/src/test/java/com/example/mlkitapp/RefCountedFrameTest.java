@@ -0,0 +1,48 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RefCountedFrameTest {
+    @Test
+    public void closesOnlyAfterLastConsumer() {
+        AtomicInteger closes = new AtomicInteger();
+        RefCountedFrame frame = new RefCountedFrame(closes::incrementAndGet, 3);
+
+        frame.release();
+        frame.release();
+        assertEquals(0, closes.get());
+
+        frame.release();
+        assertEquals(1, closes.get());
+    }
+
+    @Test
+    public void retainExtendsLifetime() {
+        AtomicInteger closes = new AtomicInteger();
+        RefCountedFrame frame = new RefCountedFrame(closes::incrementAndGet, 1);
+
+        frame.retain();
+        frame.release();
+        assertEquals(0, closes.get());
+        frame.release();
+        assertEquals(1, closes.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void overReleaseFails() {
+        RefCountedFrame frame = new RefCountedFrame(() -> { }, 1);
+        frame.release();
+        frame.release();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void retainAfterCloseFails() {
+        RefCountedFrame frame = new RefCountedFrame(() -> { }, 1);
+        frame.release();
+        frame.retain();
+    }
+}
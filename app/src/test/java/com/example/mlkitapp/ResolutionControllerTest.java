@@ -0,0 +1,78 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResolutionControllerTest {
+    private static final long MS = 1_000_000L;
+    private static final int[][] LADDER = {{240, 320}, {480, 640}, {720, 960}};
+
+    /** Reports one full window; returns whether any result changed the resolution. */
+    private static boolean window(ResolutionController controller, long latencyNanos,
+                                  float subject) {
+        boolean changed = false;
+        for (int i = 0; i < ResolutionController.WINDOW_RESULTS; i++) {
+            changed |= controller.onResult(latencyNanos, subject);
+        }
+        return changed;
+    }
+
+    @Test
+    public void stepsDownWhenBehindAndSubjectsStayLargeEnough() {
+        FakeClock clock = new FakeClock();
+        // 10 fps: 100 ms budget
+        ResolutionController controller =
+                new ResolutionController(clock, LADDER, 1, 10f, 40f, 1000 * MS);
+        clock.now = 2000 * MS;
+
+        assertFalse(window(controller, 150 * MS, 200f));
+        assertTrue(window(controller, 150 * MS, 200f));
+        assertEquals(0, controller.getTier());
+        assertEquals(240, controller.getWidth());
+    }
+
+    @Test
+    public void keepsResolutionWhenSteppingDownWouldLoseSmallSubjects() {
+        FakeClock clock = new FakeClock();
+        ResolutionController controller =
+                new ResolutionController(clock, LADDER, 1, 10f, 40f, 1000 * MS);
+        clock.now = 2000 * MS;
+
+        // 60 px would become 30 px at half the size
+        for (int i = 0; i < 4; i++) {
+            assertFalse(window(controller, 150 * MS, 60f));
+        }
+        assertEquals(1, controller.getTier());
+    }
+
+    @Test
+    public void stepsUpForSmallSubjectsOnlyWithHeadroomAndAfterTheDwellTime() {
+        FakeClock clock = new FakeClock();
+        ResolutionController controller =
+                new ResolutionController(clock, LADDER, 0, 10f, 40f, 1000 * MS);
+
+        // Quadrupling 30 ms would blow the budget
+        assertFalse(window(controller, 30 * MS, 20f));
+        assertFalse(window(controller, 30 * MS, 20f));
+
+        // 15 ms grows to about 60 ms: fits, but only once the dwell time has passed
+        assertFalse(window(controller, 15 * MS, 20f));
+        assertFalse(window(controller, 15 * MS, 20f));
+        clock.now = 1000 * MS;
+        assertTrue(window(controller, 15 * MS, 20f));
+        assertEquals(1, controller.getTier());
+    }
+
+    @Test
+    public void aDisagreeingWindowResetsConfirmation() {
+        FakeClock clock = new FakeClock();
+        ResolutionController controller =
+                new ResolutionController(clock, LADDER, 1, 10f, 40f, 0);
+
+        assertFalse(window(controller, 150 * MS, Float.NaN));
+        assertFalse(window(controller, 50 * MS, Float.NaN));
+        assertFalse(window(controller, 150 * MS, Float.NaN));
+        assertTrue(window(controller, 150 * MS, Float.NaN));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class RoiMapperTest {
+    // A 1280x720 landscape buffer shown upright on a 1080x1920 portrait preview
+    private static final int IMAGE_WIDTH = 1280;
+    private static final int IMAGE_HEIGHT = 720;
+    private static final int VIEW_WIDTH = 1080;
+    private static final int VIEW_HEIGHT = 1920;
+
+    @Test
+    public void centredBoxMapsToBufferCentreAtNinetyDegrees() {
+        int[] out = new int[4];
+        // 600px box in the middle of the view; scale is 1920/1280 = 1.5
+        boolean mapped = RoiMapper.mapViewRectToImage(240, 660, 840, 1260,
+                VIEW_WIDTH, VIEW_HEIGHT, IMAGE_WIDTH, IMAGE_HEIGHT, 90, 32, out);
+
+        assertTrue(mapped);
+        assertArrayEquals(new int[]{440, 160, 840, 560}, out);
+    }
+
+    @Test
+    public void offCentreBoxFollowsRotation() {
+        int[] out = new int[4];
+        // Top-left quarter of the visible area
+        RoiMapper.mapViewRectToImage(0, 0, 540, 960,
+                VIEW_WIDTH, VIEW_HEIGHT, IMAGE_WIDTH, IMAGE_HEIGHT, 90, 32, out);
+        // Visible upright width is 1080/1.5 = 720 of 720, so no horizontal crop; top-left in
+        // upright space is the bottom-left of a buffer rotated by 90
+        assertArrayEquals(new int[]{0, 360, 640, 720}, out);
+
+        RoiMapper.mapViewRectToImage(0, 0, 540, 960,
+                VIEW_WIDTH, VIEW_HEIGHT, IMAGE_WIDTH, IMAGE_HEIGHT, 270, 32, out);
+        assertArrayEquals(new int[]{640, 0, 1280, 360}, out);
+    }
+
+    @Test
+    public void landscapeViewCropsOverflowEvenly() {
+        int[] out = new int[4];
+        // 16:9 buffer on a 4:3 view: scale 1.5, 480px of buffer width cropped off in total
+        boolean mapped = RoiMapper.mapViewRectToImage(0, 0, 1200, 1080,
+                1200, 1080, IMAGE_WIDTH, IMAGE_HEIGHT, 0, 32, out);
+
+        assertTrue(mapped);
+        assertArrayEquals(new int[]{240, 0, 1040, 720}, out);
+    }
+
+    @Test
+    public void boxOutsideImageIsRejected() {
+        int[] out = new int[4];
+        assertFalse(RoiMapper.mapViewRectToImage(-500, -500, -100, -100,
+                VIEW_WIDTH, VIEW_HEIGHT, IMAGE_WIDTH, IMAGE_HEIGHT, 90, 32, out));
+        assertFalse(RoiMapper.mapViewRectToImage(100, 100, 110, 110,
+                VIEW_WIDTH, VIEW_HEIGHT, IMAGE_WIDTH, IMAGE_HEIGHT, 0, 32, out));
+    }
+
+    @Test
+    public void croppedNv21MatchesSameRegionOfFullCopy() {
+        int width = 8;
+        int height = 6;
+        int rowStride = 10;
+        byte[] y = new byte[rowStride * height];
+        for (int i = 0; i < y.length; i++) {
+            y[i] = (byte) i;
+        }
+        byte[] uv = new byte[rowStride * height / 2];
+        for (int i = 0; i < uv.length; i++) {
+            uv[i] = (byte) (100 + i);
+        }
+        YuvFrame frame = new YuvFrame(width, height, 0, 0,
+                new ByteBuffer[]{ByteBuffer.wrap(y),
+                        ByteBuffer.wrap(uv, 0, uv.length - 1).slice(),
+                        ByteBuffer.wrap(uv, 1, uv.length - 1).slice()},
+                new int[]{rowStride, rowStride, rowStride},
+                new int[]{1, 2, 2},
+                null);
+        byte[] full = new byte[frame.nv21Size()];
+        frame.copyToNv21(full);
+
+        int left = 2;
+        int top = 2;
+        int cropWidth = 4;
+        int cropHeight = 4;
+        byte[] crop = new byte[YuvFrame.nv21Size(cropWidth, cropHeight)];
+        frame.copyToNv21(left, top, cropWidth, cropHeight, crop);
+
+        for (int row = 0; row < cropHeight; row++) {
+            for (int col = 0; col < cropWidth; col++) {
+                assertEquals(full[(top + row) * width + left + col], crop[row * cropWidth + col]);
+            }
+        }
+        int fullChroma = width * height;
+        int cropChroma = cropWidth * cropHeight;
+        for (int row = 0; row < cropHeight / 2; row++) {
+            for (int col = 0; col < cropWidth; col++) {
+                assertEquals(full[fullChroma + (top / 2 + row) * width + left + col],
+                        crop[cropChroma + row * cropWidth + col]);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void oddCropOriginIsRejected() {
+        YuvFrame frame = new YuvFrame(4, 4, 0, 0,
+                new ByteBuffer[]{ByteBuffer.allocate(16), ByteBuffer.allocate(4), ByteBuffer.allocate(4)},
+                new int[]{4, 2, 2},
+                new int[]{1, 1, 1},
+                null);
+        frame.copyToNv21(1, 0, 2, 2, new byte[6]);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import java.io.Closeable;
+
+import static org.junit.Assert.*;
+
+public class SwappableClientTest {
+    private static class FakeClient implements Closeable {
+        int closeCount = 0;
+
+        @Override
+        public void close() {
+            closeCount++;
+        }
+    }
+
+    @Test
+    public void replacedClientClosesAfterLeasesDrain() {
+        FakeClient first = new FakeClient();
+        FakeClient second = new FakeClient();
+        SwappableClient<FakeClient> holder = new SwappableClient<>(first);
+
+        SwappableClient.Lease<FakeClient> inFlight = holder.acquire();
+        assertTrue(holder.completeSwap(holder.beginSwap(), second));
+
+        // The frame already sent to the old client can still finish
+        assertEquals(0, first.closeCount);
+        assertSame(second, holder.acquire().get());
+
+        inFlight.release();
+        assertEquals(1, first.closeCount);
+        assertEquals(0, second.closeCount);
+    }
+
+    @Test
+    public void idleReplacedClientClosesImmediately() {
+        FakeClient first = new FakeClient();
+        SwappableClient<FakeClient> holder = new SwappableClient<>(first);
+
+        holder.completeSwap(holder.beginSwap(), new FakeClient());
+
+        assertEquals(1, first.closeCount);
+    }
+
+    @Test
+    public void onlyNewestReplacementIsInstalled() {
+        FakeClient stale = new FakeClient();
+        FakeClient newest = new FakeClient();
+        SwappableClient<FakeClient> holder = new SwappableClient<>(new FakeClient());
+
+        long staleGeneration = holder.beginSwap();
+        long newestGeneration = holder.beginSwap();
+        assertTrue(holder.completeSwap(newestGeneration, newest));
+        assertFalse(holder.completeSwap(staleGeneration, stale));
+
+        assertEquals(1, stale.closeCount);
+        assertSame(newest, holder.acquire().get());
+    }
+
+    @Test
+    public void closeWaitsForLeasesAndRejectsLateSwaps() {
+        FakeClient first = new FakeClient();
+        FakeClient late = new FakeClient();
+        SwappableClient<FakeClient> holder = new SwappableClient<>(first);
+        long generation = holder.beginSwap();
+
+        SwappableClient.Lease<FakeClient> inFlight = holder.acquire();
+        holder.close();
+
+        assertNull(holder.acquire());
+        assertEquals(0, first.closeCount);
+        inFlight.release();
+        assertEquals(1, first.closeCount);
+
+        assertFalse(holder.completeSwap(generation, late));
+        assertEquals(1, late.closeCount);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.mlkitapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UpdateThrottleTest {
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void spacesUpdatesByTheMinimumInterval() {
+        FakeClock clock = new FakeClock();
+        UpdateThrottle throttle = new UpdateThrottle(clock, 10f);
+
+        assertEquals(0, throttle.tryAcquire());
+        clock.now = 30 * MS;
+        assertEquals(70 * MS, throttle.tryAcquire());
+        clock.now = 100 * MS;
+        assertEquals(0, throttle.tryAcquire());
+        // A refused request does not push the next slot back
+        clock.now = 150 * MS;
+        assertEquals(50 * MS, throttle.tryAcquire());
+        clock.now = 200 * MS;
+        assertEquals(0, throttle.tryAcquire());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveRate() {
+        new UpdateThrottle(new FakeClock(), 0f);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.mlkitapp.benchmarks;
+
+import com.example.mlkitapp.BoxTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * One tracker update per detector result: predict, IoU association and Kalman correction
+ * for a scene of objects drifting a few pixels per frame.
+ */
+@State(Scope.Thread)
+public class BoxTrackerBenchmark {
+    private static final long FRAME_NANOS = 33_333_333L;
+
+    @Param({"5", "20"})
+    public int objectCount;
+
+    private BoxTracker tracker;
+    private float[] boxes;
+    private float[] velocities;
+    private int[] ids;
+    private long timestampNanos;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11);
+        tracker = new BoxTracker(64, 0.3f, 3, 1);
+        boxes = new float[objectCount * 4];
+        velocities = new float[objectCount * 2];
+        ids = new int[objectCount];
+        for (int i = 0; i < objectCount; i++) {
+            float left = random.nextInt(1100);
+            float top = random.nextInt(600);
+            boxes[i * 4] = left;
+            boxes[i * 4 + 1] = top;
+            boxes[i * 4 + 2] = left + 60 + random.nextInt(120);
+            boxes[i * 4 + 3] = top + 60 + random.nextInt(120);
+            velocities[i * 2] = random.nextFloat() * 8f - 4f;
+            velocities[i * 2 + 1] = random.nextFloat() * 8f - 4f;
+        }
+    }
+
+    @Benchmark
+    public int[] update() {
+        for (int i = 0; i < objectCount; i++) {
+            float dx = velocities[i * 2];
+            float dy = velocities[i * 2 + 1];
+            boxes[i * 4] += dx;
+            boxes[i * 4 + 1] += dy;
+            boxes[i * 4 + 2] += dx;
+            boxes[i * 4 + 3] += dy;
+        }
+        timestampNanos += FRAME_NANOS;
+        tracker.update(boxes, objectCount, timestampNanos, ids);
+        return ids;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.mlkitapp.benchmarks;
+
+import com.example.mlkitapp.BoxTransform;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * The rotation mapping BoundingBoxView.onDraw applies to every text box on every draw.
+ */
+@State(Scope.Thread)
+public class BoxTransformBenchmark {
+    private static final int BOX_COUNT = 50;
+
+    @Param({"0", "90", "180", "270"})
+    public int rotationDegrees;
+
+    private final float[] boxes = new float[BOX_COUNT * 4];
+    private final float[] mapped = new float[BOX_COUNT * 4];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        for (int i = 0; i < BOX_COUNT; i++) {
+            float left = random.nextInt(1000);
+            float top = random.nextInt(1800);
+            boxes[i * 4] = left;
+            boxes[i * 4 + 1] = top;
+            boxes[i * 4 + 2] = left + 20 + random.nextInt(300);
+            boxes[i * 4 + 3] = top + 20 + random.nextInt(80);
+        }
+    }
+
+    @Benchmark
+    public float[] mapAllBoxes() {
+        for (int i = 0; i < BOX_COUNT; i++) {
+            int o = i * 4;
+            BoxTransform.map(rotationDegrees, boxes[o], boxes[o + 1], boxes[o + 2], boxes[o + 3],
+                    0.75f, 0.75f, 1080, 2340, mapped, o);
+        }
+        return mapped;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.mlkitapp.benchmarks;
+
+import com.example.mlkitapp.Clock;
+import com.example.mlkitapp.FrameAdmissionController;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The admission decision the analyzer makes for every camera frame, plus the latency
+ * bookkeeping for the frames it admits.
+ */
+@State(Scope.Thread)
+public class FrameAdmissionBenchmark {
+
+    private long now;
+    private FrameAdmissionController controller;
+
+    @Setup
+    public void setUp() {
+        Clock clock = () -> now;
+        controller = new FrameAdmissionController(clock, 15f);
+    }
+
+    @Benchmark
+    public FrameAdmissionController.Decision admitAndComplete() {
+        // Frames arrive every 33ms and the detector takes 40ms
+        now += 33_000_000L;
+        FrameAdmissionController.Decision decision = controller.tryAdmit();
+        if (decision == FrameAdmissionController.Decision.ADMIT) {
+            controller.onComplete(controller.now() - 40_000_000L);
+        }
+        return decision;
+    }
+}
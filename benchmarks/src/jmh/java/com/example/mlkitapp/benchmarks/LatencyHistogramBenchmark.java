@@ -0,0 +1,45 @@
+package com.example.mlkitapp.benchmarks;
+
+import com.example.mlkitapp.LatencyHistogram;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Per-stage latency recording, which runs several times for every analyzed frame.
+ * The contended variant records from the analyzer and main threads at once.
+ */
+@State(Scope.Benchmark)
+public class LatencyHistogramBenchmark {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @State(Scope.Thread)
+    public static class Sample {
+        long nanos = 1_000_000L;
+
+        long next() {
+            // Walk through 1ms..65ms so different buckets are touched
+            nanos = 1_000_000L + ((nanos * 31 + 7_919) & 0x3FFFFFF);
+            return nanos;
+        }
+    }
+
+    @Benchmark
+    public void record(Sample sample) {
+        histogram.record(sample.next());
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void recordContended(Sample sample) {
+        histogram.record(sample.next());
+    }
+
+    @Benchmark
+    public long p99() {
+        return histogram.getValueAtPercentile(99);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.mlkitapp.benchmarks;
+
+import com.example.mlkitapp.LumaEnhancer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Luma enhancement of a 1280x720 text capture, single-threaded and striped across cores.
+ */
+@State(Scope.Thread)
+public class LumaEnhancerBenchmark {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    // Camera HALs commonly pad rows to a 64-byte boundary
+    private static final int ROW_STRIDE = 1344;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private LumaEnhancer enhancer;
+    private ByteBuffer plane;
+    private final byte[] lut = LumaEnhancer.contrastLut(1.2f, 10);
+
+    @Setup
+    public void setUp() {
+        enhancer = new LumaEnhancer(parallelism);
+        plane = ByteBuffer.allocateDirect(ROW_STRIDE * HEIGHT);
+        Random random = new Random(7);
+        for (int i = 0; i < plane.capacity(); i++) {
+            plane.put(i, (byte) (20 + random.nextInt(40)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        enhancer.close();
+    }
+
+    @Benchmark
+    public ByteBuffer lut() {
+        enhancer.applyLut(plane, WIDTH, HEIGHT, ROW_STRIDE, lut);
+        return plane;
+    }
+
+    @Benchmark
+    public ByteBuffer clahe() {
+        enhancer.applyClahe(plane, WIDTH, HEIGHT, ROW_STRIDE, 8, 6, 3.0f);
+        return plane;
+    }
+}
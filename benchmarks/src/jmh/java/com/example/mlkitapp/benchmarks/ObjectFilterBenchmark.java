@@ -0,0 +1,65 @@
+package com.example.mlkitapp.benchmarks;
+
+import com.example.mlkitapp.DetectionFilters;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Per-result work done by ObjectDetectionOverlay.updateObjects and ObjectAdapter.updateObjects:
+ * picking each object's top label, then thresholding or picking the single best object.
+ */
+@State(Scope.Thread)
+public class ObjectFilterBenchmark {
+
+    @Param({"5", "20"})
+    public int objectCount;
+
+    @Param({"1", "5"})
+    public int labelsPerObject;
+
+    private float[][] labelScores;
+    private float[] objectScores;
+    private int[] kept;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        labelScores = new float[objectCount][labelsPerObject];
+        for (float[] labels : labelScores) {
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = random.nextFloat();
+            }
+        }
+        objectScores = new float[objectCount];
+        kept = new int[objectCount];
+    }
+
+    @Benchmark
+    public int topLabelPerObject() {
+        int checksum = 0;
+        for (int i = 0; i < objectCount; i++) {
+            int top = DetectionFilters.argMax(labelScores[i], labelsPerObject);
+            objectScores[i] = labelScores[i][top];
+            checksum += top;
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public int filterByThreshold() {
+        topLabelPerObject();
+        return DetectionFilters.filterAtLeast(objectScores, objectCount, 0.5f, kept);
+    }
+
+    @Benchmark
+    public int selectSingleBestObject() {
+        topLabelPerObject();
+        return DetectionFilters.argMax(objectScores, objectCount);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.mlkitapp.benchmarks;
+
+import com.example.mlkitapp.YuvFrame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packing a strided semi-planar camera frame into NV21, as done for every replayed frame,
+ * and packing just a centred scan-box region, as done for every barcode frame.
+ */
+@State(Scope.Thread)
+public class YuvConversionBenchmark {
+    // A 250dp scan box on a typical phone covers about 400 buffer pixels
+    private static final int CROP_SIZE = 400;
+
+    @Param({"640x480", "1280x720"})
+    public String resolution;
+
+    private YuvFrame frame;
+    private byte[] nv21;
+    private byte[] cropNv21;
+    private int cropLeft;
+    private int cropTop;
+
+    @Setup
+    public void setUp() {
+        String[] parts = resolution.split("x");
+        int width = Integer.parseInt(parts[0]);
+        int height = Integer.parseInt(parts[1]);
+        int rowStride = (width + 63) & ~63;
+
+        ByteBuffer y = ByteBuffer.allocateDirect(rowStride * height);
+        ByteBuffer uv = ByteBuffer.allocateDirect(rowStride * height / 2);
+        uv.position(0).limit(uv.capacity() - 1);
+        ByteBuffer u = uv.slice();
+        uv.position(1).limit(uv.capacity());
+        ByteBuffer v = uv.slice();
+
+        frame = new YuvFrame(width, height, 90, 0,
+                new ByteBuffer[]{y, u, v},
+                new int[]{rowStride, rowStride, rowStride},
+                new int[]{1, 2, 2},
+                null);
+        nv21 = new byte[frame.nv21Size()];
+        cropLeft = ((width - CROP_SIZE) / 2) & ~1;
+        cropTop = ((height - CROP_SIZE) / 2) & ~1;
+        cropNv21 = new byte[YuvFrame.nv21Size(CROP_SIZE, CROP_SIZE)];
+    }
+
+    @Benchmark
+    public byte[] copyToNv21() {
+        frame.copyToNv21(nv21);
+        return nv21;
+    }
+
+    @Benchmark
+    public byte[] copyCropToNv21() {
+        frame.copyToNv21(cropLeft, cropTop, CROP_SIZE, CROP_SIZE, cropNv21);
+        return cropNv21;
+    }
+}